@@ -0,0 +1,112 @@
+package ru.socks.inventory.benchmark;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.service.CsvSockBatchReader;
+import ru.socks.inventory.service.NdjsonSockBatchReader;
+import ru.socks.inventory.service.SockBatchReader;
+import ru.socks.inventory.service.XlsxSockBatchReader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second of parsing and aggregating the same data set uploaded as XLSX, CSV and NDJSON.
+ * Aggregation is the same map merge as the upload path, so the difference is the reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(BatchFormatBenchmark.ROWS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchFormatBenchmark {
+
+    static final int ROWS = 200_000;
+
+    private static final String[] COLORS = {"Red", "Blue", "Green", "Black", "White", "Yellow", "Grey"};
+
+    @Param({"xlsx", "csv", "ndjson"})
+    String format;
+
+    private SockBatchReader reader;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Random random = new Random(42);
+        String[] colors = new String[ROWS];
+        int[] cottonContents = new int[ROWS];
+        int[] quantities = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            colors[i] = COLORS[random.nextInt(COLORS.length)];
+            cottonContents[i] = random.nextInt(101);
+            quantities[i] = 1 + random.nextInt(100);
+        }
+
+        file = Files.createTempFile("socks-format-", "." + format).toFile();
+        switch (format) {
+            case "xlsx" -> {
+                reader = new XlsxSockBatchReader();
+                try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+                     OutputStream out = Files.newOutputStream(file.toPath())) {
+                    Sheet sheet = workbook.createSheet();
+                    Row header = sheet.createRow(0);
+                    header.createCell(0).setCellValue("color");
+                    header.createCell(1).setCellValue("cottonContent");
+                    header.createCell(2).setCellValue("quantity");
+                    for (int i = 0; i < ROWS; i++) {
+                        Row row = sheet.createRow(i + 1);
+                        row.createCell(0).setCellValue(colors[i]);
+                        row.createCell(1).setCellValue(cottonContents[i]);
+                        row.createCell(2).setCellValue(quantities[i]);
+                    }
+                    workbook.write(out);
+                    workbook.dispose();
+                }
+            }
+            case "csv" -> {
+                reader = new CsvSockBatchReader();
+                try (BufferedWriter out = Files.newBufferedWriter(file.toPath())) {
+                    out.write("color,cottonContent,quantity\n");
+                    for (int i = 0; i < ROWS; i++) {
+                        out.write(colors[i] + "," + cottonContents[i] + "," + quantities[i] + "\n");
+                    }
+                }
+            }
+            case "ndjson" -> {
+                reader = new NdjsonSockBatchReader();
+                try (BufferedWriter out = Files.newBufferedWriter(file.toPath())) {
+                    for (int i = 0; i < ROWS; i++) {
+                        out.write("{\"color\":\"" + colors[i] + "\",\"cottonContent\":" + cottonContents[i]
+                                + ",\"quantity\":" + quantities[i] + "}\n");
+                    }
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public Map<SockKey, Integer> parseAndAggregate() throws Exception {
+        Map<SockKey, Integer> totals = new HashMap<>();
+        reader.read(file, (color, cottonContent, quantity) ->
+                totals.merge(new SockKey(color, cottonContent), quantity, Integer::sum));
+        return totals;
+    }
+}
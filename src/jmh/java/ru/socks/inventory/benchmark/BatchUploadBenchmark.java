@@ -0,0 +1,139 @@
+package ru.socks.inventory.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.service.ChunkedSockAggregator;
+import ru.socks.inventory.service.IngestionExecutor;
+import ru.socks.inventory.service.XlsxSockBatchReader;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row parsing and aggregation of {@code uploadBatch}: the streaming XLSX reader, and merging
+ * rows by color/cotton: per-chunk maps on the shared ingestion pool (current), a single
+ * {@link HashMap} and a {@link ConcurrentHashMap} (the original multi-threaded implementation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchUploadBenchmark {
+
+    private static final String[] COLORS = {"Red", "Blue", "Green", "Black", "White", "Yellow", "Grey"};
+
+    @Param({"10000", "100000"})
+    int rows;
+
+    private final XlsxSockBatchReader reader = new XlsxSockBatchReader();
+    private IngestionExecutor ingestionExecutor;
+    private File file;
+    private String[] colors;
+    private int[] cottonContents;
+    private int[] quantities;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ingestionExecutor = new IngestionExecutor(0, 64, new SimpleMeterRegistry());
+        colors = new String[rows];
+        cottonContents = new int[rows];
+        quantities = new int[rows];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < rows; i++) {
+            colors[i] = COLORS[random.nextInt(COLORS.length)];
+            cottonContents[i] = random.nextInt(101);
+            quantities[i] = 1 + random.nextInt(100);
+        }
+
+        file = Files.createTempFile("socks-benchmark-", ".xlsx").toFile();
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+             OutputStream out = Files.newOutputStream(file.toPath())) {
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("color");
+            header.createCell(1).setCellValue("cottonContent");
+            header.createCell(2).setCellValue("quantity");
+            for (int i = 0; i < rows; i++) {
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue(colors[i]);
+                row.createCell(1).setCellValue(cottonContents[i]);
+                row.createCell(2).setCellValue(quantities[i]);
+            }
+            workbook.write(out);
+            workbook.dispose();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ingestionExecutor.shutdown();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public Map<String, Sock> parseAndMerge() throws Exception {
+        Map<String, Sock> sockMap = new HashMap<>();
+        reader.read(file, (color, cottonContent, quantity) -> merge(sockMap, color, cottonContent, quantity));
+        return sockMap;
+    }
+
+    @Benchmark
+    public Map<SockKey, Integer> parseAndAggregateChunked() throws Exception {
+        ChunkedSockAggregator aggregator = new ChunkedSockAggregator(ingestionExecutor, 4096);
+        reader.read(file, aggregator);
+        return aggregator.finish();
+    }
+
+    @Benchmark
+    public void parseOnly(Blackhole blackhole) throws Exception {
+        reader.read(file, (color, cottonContent, quantity) -> {
+            blackhole.consume(color);
+            blackhole.consume(cottonContent);
+            blackhole.consume(quantity);
+        });
+    }
+
+    @Benchmark
+    public Map<String, Sock> mergeHashMap() {
+        Map<String, Sock> sockMap = new HashMap<>();
+        for (int i = 0; i < rows; i++) {
+            merge(sockMap, colors[i], cottonContents[i], quantities[i]);
+        }
+        return sockMap;
+    }
+
+    @Benchmark
+    public Map<String, Sock> mergeConcurrentHashMap() {
+        Map<String, Sock> sockMap = new ConcurrentHashMap<>();
+        for (int i = 0; i < rows; i++) {
+            merge(sockMap, colors[i], cottonContents[i], quantities[i]);
+        }
+        return sockMap;
+    }
+
+    private static void merge(Map<String, Sock> sockMap, String color, int cottonContent, int quantity) {
+        String key = color + "_" + cottonContent;
+        sockMap.merge(key, new Sock()
+                        .setColor(color)
+                        .setCottonContent(cottonContent)
+                        .setQuantity(quantity),
+                (existing, newSock) -> {
+                    existing.setQuantity(existing.getQuantity() + newSock.getQuantity());
+                    return existing;
+                });
+    }
+}
@@ -0,0 +1,49 @@
+package ru.socks.inventory.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.SocksInventoryApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application running against a throwaway Postgres container, for benchmarks that
+ * need the real repositories. Start it in a {@code @Setup(Level.Trial)} and close it in
+ * the matching {@code @TearDown}.
+ */
+final class BenchmarkApplication implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkApplication(String... properties) {
+        postgres.start();
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl() + "&reWriteBatchedInserts=true",
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.jpa.show-sql=false",
+                "--server.port=0"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        context = new SpringApplicationBuilder(SocksInventoryApplication.class)
+                .run(args.toArray(new String[0]));
+    }
+
+    static BenchmarkApplication start(String... properties) {
+        return new BenchmarkApplication(properties);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        postgres.stop();
+    }
+}
@@ -0,0 +1,31 @@
+package ru.socks.inventory.benchmark;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import ru.socks.inventory.controller.SocksController;
+import ru.socks.inventory.model.Sock;
+
+import java.util.List;
+
+/**
+ * Stand-in for {@link SocksController#getSocks} without the service behind it. Marked as a
+ * {@link RestController} so that the pointcuts of the logging aspects match it; it is only
+ * proxied by {@link LoggingOverheadBenchmark}, never registered as a bean.
+ */
+@RestController
+public class BenchmarkSocksController {
+
+    private final List<Sock> socks;
+
+    public BenchmarkSocksController(List<Sock> socks) {
+        this.socks = socks;
+    }
+
+    public ResponseEntity<List<Sock>> getSocks(String color,
+                                               String operation,
+                                               Integer cottonContent,
+                                               Integer maxCottonContent,
+                                               String sortBy) {
+        return ResponseEntity.ok(socks);
+    }
+}
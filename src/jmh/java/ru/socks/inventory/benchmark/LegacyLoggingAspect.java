@@ -0,0 +1,49 @@
+package ru.socks.inventory.benchmark;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+
+/**
+ * The logging aspect as it was before the production logging mode, kept as the baseline
+ * of {@link LoggingOverheadBenchmark}.
+ */
+@Aspect
+public class LegacyLoggingAspect {
+    private static final Logger log = LogManager.getLogger(LegacyLoggingAspect.class);
+
+    @Before("@within(org.springframework.web.bind.annotation.RestController)")
+    public void logRequest(JoinPoint joinPoint) {
+        log.debug("Request method: {}", joinPoint.getSignature().getName());
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Parameter[] parameters = method.getParameters();
+        Object[] args = joinPoint.getArgs();
+
+        for (int i = 0; i < parameters.length; i++) {
+            String parameterName = parameters[i].getName();
+            Object paramValue = args[i];
+            log.debug("{}: {}", parameterName, paramValue);
+        }
+    }
+
+    @AfterReturning(value = "@within(org.springframework.web.bind.annotation.RestController)", returning = "result")
+    public void logResponse(JoinPoint joinPoint, Object result) {
+        log.debug("Response method: {}", joinPoint.getSignature().getName());
+        log.debug("Response data: {}", result);
+    }
+
+    @AfterThrowing(value = "@within(org.springframework.web.bind.annotation.RestController)", throwing = "exception")
+    public void logException(JoinPoint joinPoint, Exception exception) {
+        log.error("Exception occurred in method: {}", joinPoint.getSignature().getName());
+        log.error("Exception message: {}", exception.getMessage());
+    }
+}
@@ -0,0 +1,69 @@
+package ru.socks.inventory.benchmark;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.ResponseEntity;
+import ru.socks.inventory.aop.LoggingAspect;
+import ru.socks.inventory.model.Sock;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request logging overhead of a {@code GET /api/socks} call returning {@code size} socks.
+ * <p>
+ * {@code legacy} + {@code log4j2.xml} is the logging before the production mode: the reflective
+ * aspect formatting the whole response into five synchronous files and the console.
+ * {@code current} + {@code log4j2-prod.xml} is the production mode: async loggers at INFO,
+ * so the aspect returns before touching the arguments. The other pairs separate the effect
+ * of the aspect from the effect of the configuration. Console output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingOverheadBenchmark {
+
+    @Param({"legacy", "current"})
+    String aspect;
+
+    @Param({"log4j2.xml", "log4j2-prod.xml"})
+    String config;
+
+    @Param({"1000"})
+    int size;
+
+    private BenchmarkSocksController controller;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Console-аппендер с follow="true" пишет в текущий System.out
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        context.setConfigLocation(getClass().getClassLoader().getResource(config).toURI());
+
+        List<Sock> socks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            socks.add(new Sock((long) i, "Color" + i / 101, i % 101, i % 1000));
+        }
+        AspectJProxyFactory factory = new AspectJProxyFactory(new BenchmarkSocksController(socks));
+        factory.setProxyTargetClass(true);
+        boolean production = config.equals("log4j2-prod.xml");
+        factory.addAspect(aspect.equals("legacy")
+                ? new LegacyLoggingAspect()
+                : new LoggingAspect(production ? 512 : 2000, production ? 0.01 : 1.0));
+        controller = factory.getProxy();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Sock>> getSocks() {
+        return controller.getSocks("Red", null, null, null, null);
+    }
+}
@@ -0,0 +1,42 @@
+package ru.socks.inventory.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Sort;
+import ru.socks.inventory.dto.OperatorEnum;
+import ru.socks.inventory.dto.SockFilter;
+import ru.socks.inventory.dto.SortingEnum;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the query parameters of {@code GET /api/socks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+
+    @Param({"cottonContent", "COLOR"})
+    String sortBy;
+
+    @Param({"moreThan", "EQUAL"})
+    String operation;
+
+    @Benchmark
+    public Sort getSort() {
+        return SortingEnum.getSort(sortBy);
+    }
+
+    @Benchmark
+    public OperatorEnum operatorFromString() {
+        return OperatorEnum.fromString(operation);
+    }
+
+    @Benchmark
+    public SockFilter filterOf() {
+        return SockFilter.of(null, operation, 50, null);
+    }
+}
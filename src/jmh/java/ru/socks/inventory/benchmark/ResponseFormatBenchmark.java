@@ -0,0 +1,55 @@
+package ru.socks.inventory.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.*;
+import ru.socks.inventory.dto.SockColumns;
+import ru.socks.inventory.model.Sock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode time of a {@code GET /api/socks} response in every format the endpoint offers: JSON
+ * (the default), CBOR of the same objects and the columnar CBOR layout. The columnar time
+ * includes building the columns from the list. Payload sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"json", "cbor", "columns"})
+    String format;
+
+    private ObjectWriter writer;
+    private List<Sock> socks;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        socks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            socks.add(new Sock((long) i, "Color" + i / 101, i % 101, i % 1000));
+        }
+        ObjectMapper objectMapper = format.equals("json") ? new ObjectMapper() : new ObjectMapper(new CBORFactory());
+        writer = format.equals("columns")
+                ? objectMapper.writerFor(SockColumns.class)
+                : objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Sock.class));
+        System.out.printf("%n%s, %d socks: %d bytes%n", format, size, encode().length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return format.equals("columns")
+                ? writer.writeValueAsBytes(SockColumns.of(socks))
+                : writer.writeValueAsBytes(socks);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.socks.inventory.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Sort;
+import ru.socks.inventory.dto.SockFilter;
+import ru.socks.inventory.dto.SockPage;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.repository.SockRepository;
+import ru.socks.inventory.service.SockService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository queries behind {@code GET /api/socks} against a local Postgres container
+ * filled with {@code colors} x 101 positions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SockRepositoryBenchmark {
+
+    @Param({"100"})
+    int colors;
+
+    private BenchmarkApplication application;
+    private SockRepository sockRepository;
+    private SockService sockService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        application = BenchmarkApplication.start();
+        sockRepository = application.getBean(SockRepository.class);
+        sockService = application.getBean(SockService.class);
+
+        List<Sock> socks = new ArrayList<>(colors * 101);
+        for (int color = 0; color < colors; color++) {
+            for (int cotton = 0; cotton <= 100; cotton++) {
+                socks.add(new Sock(null, color(color), cotton, 100));
+            }
+        }
+        sockRepository.mergeQuantities(socks);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public List<Sock> findByColor() {
+        return sockRepository.findByColorOrderByCottonContentAsc(randomColor());
+    }
+
+    @Benchmark
+    public List<Sock> findByCottonContentGreaterThan() {
+        return sockRepository.findByCottonContentGreaterThan(90, Sort.by("color"));
+    }
+
+    @Benchmark
+    public List<Sock> getSocksByColor() {
+        return sockService.getSocks(randomColor(), null, null, null, null);
+    }
+
+    @Benchmark
+    public SockPage getSocksPage() {
+        return sockService.getSocksPage(new SockFilter(null, 0, 100), null, 100);
+    }
+
+    @Benchmark
+    public void incrementOrInsertSock() {
+        sockService.registerIncome(new SockRequest(randomColor(),
+                ThreadLocalRandom.current().nextInt(101), 1));
+    }
+
+    private String randomColor() {
+        return color(ThreadLocalRandom.current().nextInt(colors));
+    }
+
+    private static String color(int index) {
+        return "Color" + index;
+    }
+}
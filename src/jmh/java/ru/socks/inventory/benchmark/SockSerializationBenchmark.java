@@ -0,0 +1,59 @@
+package ru.socks.inventory.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.openjdk.jmh.annotations.*;
+import ru.socks.inventory.model.Sock;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of large {@code List<Sock>} responses: the whole list at once,
+ * as {@code GET /api/socks} does, and element by element, as {@code GET /api/socks/stream} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SockSerializationBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectWriter listWriter;
+    private ObjectWriter sockWriter;
+    private List<Sock> socks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        socks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            socks.add(new Sock((long) i, "Color" + i / 101, i % 101, i % 1000));
+        }
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Sock.class));
+        sockWriter = objectMapper.writerFor(Sock.class);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws Exception {
+        return listWriter.writeValueAsBytes(socks);
+    }
+
+    @Benchmark
+    public int writeSequence() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size * 64);
+        try (SequenceWriter sequence = sockWriter.writeValuesAsArray(out)) {
+            for (Sock sock : socks) {
+                sequence.write(sock);
+            }
+        }
+        return out.size();
+    }
+}
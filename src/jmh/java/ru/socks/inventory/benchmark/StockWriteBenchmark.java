@@ -0,0 +1,72 @@
+package ru.socks.inventory.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.service.SockService;
+import ru.socks.inventory.service.SockWriteCoalescer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of concurrent incomes and outcomes on a few positions, through a transaction
+ * per request ({@code direct}) versus the group commit of {@link SockWriteCoalescer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(1)
+public class StockWriteBenchmark {
+
+    @Param({"direct", "coalescing"})
+    String mode;
+
+    @Param({"1", "16"})
+    int positions;
+
+    private BenchmarkApplication application;
+    private SockService sockService;
+    private SockWriteCoalescer writeCoalescer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        application = BenchmarkApplication.start("socks.coalescing.enabled=true");
+        sockService = application.getBean(SockService.class);
+        writeCoalescer = application.getBean(SockWriteCoalescer.class);
+        for (int position = 0; position < positions; position++) {
+            sockService.registerIncome(new SockRequest("Red", position, 1_000_000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public void income() {
+        SockRequest request = randomRequest();
+        if (mode.equals("coalescing")) {
+            writeCoalescer.registerIncome(request);
+        } else {
+            sockService.registerIncome(request);
+        }
+    }
+
+    @Benchmark
+    public void outcome() {
+        SockRequest request = randomRequest();
+        if (mode.equals("coalescing")) {
+            writeCoalescer.registerOutcome(request);
+        } else {
+            sockService.registerOutcome(request);
+        }
+    }
+
+    private SockRequest randomRequest() {
+        return new SockRequest("Red", ThreadLocalRandom.current().nextInt(positions), 1);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.socks.inventory.load;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks a key index in {@code [0, keys)}: uniformly, or Zipf-distributed so that key 0
+ * is the hottest.
+ */
+final class KeyChooser {
+
+    private final int keys;
+    // null для равномерного распределения
+    private final double[] cumulative;
+
+    private KeyChooser(int keys, double[] cumulative) {
+        this.keys = keys;
+        this.cumulative = cumulative;
+    }
+
+    static KeyChooser of(String distribution, int keys, double exponent) {
+        return switch (distribution) {
+            case "uniform" -> new KeyChooser(keys, null);
+            case "zipf" -> new KeyChooser(keys, zipf(keys, exponent));
+            default -> throw new IllegalArgumentException("Invalid load.distribution: " + distribution);
+        };
+    }
+
+    int next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (cumulative == null) {
+            return random.nextInt(keys);
+        }
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, keys - 1);
+    }
+
+    private static double[] zipf(int keys, double exponent) {
+        double[] cumulative = new double[keys];
+        double sum = 0;
+        for (int i = 0; i < keys; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < keys; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+}
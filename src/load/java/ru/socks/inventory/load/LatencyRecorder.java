@@ -0,0 +1,46 @@
+package ru.socks.inventory.load;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of one worker thread in microseconds; merged and sorted once at the end.
+ */
+final class LatencyRecorder {
+
+    private long[] latencies = new long[1 << 16];
+    private int size;
+
+    void record(long micros) {
+        if (size == latencies.length) {
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        latencies[size++] = micros;
+    }
+
+    int size() {
+        return size;
+    }
+
+    static long[] merged(Iterable<LatencyRecorder> recorders) {
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.size;
+        }
+        long[] merged = new long[total];
+        int position = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.latencies, 0, merged, position, recorder.size);
+            position += recorder.size;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
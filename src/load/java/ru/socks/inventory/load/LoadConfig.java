@@ -0,0 +1,71 @@
+package ru.socks.inventory.load;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Harness settings, read from {@code load.*} system properties
+ * ({@code ./gradlew loadTest -Pload.threads=64 -Pload.distribution=zipf}).
+ */
+record LoadConfig(int threads,
+                  int warmupSeconds,
+                  int durationSeconds,
+                  int keys,
+                  String distribution,
+                  double zipfExponent,
+                  int initialStock,
+                  int maxQuantity,
+                  Map<Operation, Integer> mix,
+                  int connections,
+                  List<String> modes,
+                  List<String> appProperties) {
+
+    enum Operation { INCOME, OUTCOME, GET, UPDATE }
+
+    static LoadConfig fromSystemProperties() {
+        return new LoadConfig(
+                Integer.getInteger("load.threads", 32),
+                Integer.getInteger("load.warmupSeconds", 5),
+                Integer.getInteger("load.durationSeconds", 30),
+                Integer.getInteger("load.keys", 1000),
+                System.getProperty("load.distribution", "uniform"),
+                Double.parseDouble(System.getProperty("load.zipfExponent", "1.1")),
+                Integer.getInteger("load.initialStock", 100),
+                Integer.getInteger("load.maxQuantity", 5),
+                parseMix(System.getProperty("load.mix", "income=40,outcome=40,get=15,update=5")),
+                Integer.getInteger("load.connections", 20),
+                parseList(System.getProperty("load.modes", "mvc")),
+                parseList(System.getProperty("load.app", "")));
+    }
+
+    /**
+     * {@code income=40,outcome=40,get=15,update=5}: relative weights of the operations.
+     */
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid load.mix entry: " + part);
+            }
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * Values separated by {@code ;}: application properties such as
+     * {@code socks.coalescing.enabled=true}, or serving modes such as {@code mvc;reactive}.
+     */
+    private static List<String> parseList(String value) {
+        List<String> values = new ArrayList<>();
+        for (String part : value.split(";")) {
+            if (!part.isBlank()) {
+                values.add(part.trim());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,259 @@
+package ru.socks.inventory.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to ready of the application started as a separate JVM, the way a pod starts it.
+ * <p>
+ * Starts Postgres in Testcontainers, migrates it with one start that is not measured, then
+ * starts the application {@code startup.runs} times per variant: the default profile, the
+ * {@code startup.profile} profile and, if the archive from {@code ./gradlew cdsArchive} exists,
+ * that profile with class data sharing. Time to ready is measured from process start to the
+ * first successful readiness probe. Prints the median per variant and the slowest bean
+ * instantiations from {@code /actuator/startup}, writes {@code build/reports/startup/result.json},
+ * and exits with 1 if the median of the last variant exceeds {@code startup.maxMillis}.
+ * <p>
+ * With {@code startup.train} set it instead makes a single training start of the profile that
+ * exits once ready and records the class data sharing archive at that path.
+ */
+public final class StartupBenchmark {
+
+    private static final String MAIN_CLASS = "ru.socks.inventory.SocksInventoryApplication";
+    private static final int SLOWEST_BEANS = 10;
+
+    private final String classpath = required("startup.classpath");
+    private final String profile = System.getProperty("startup.profile", "fast-start");
+    private final int runs = Integer.getInteger("startup.runs", 5);
+    private final long maxMillis = Long.getLong("startup.maxMillis", 15_000);
+    private final long timeoutSeconds = Long.getLong("startup.timeoutSeconds", 120);
+    private final Path archive = Path.of(System.getProperty("startup.archive", "build/cds/app.jsa"));
+    private final Path logDir = Path.of("build", "reports", "startup");
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PostgreSQLContainer<?> postgres;
+
+    public static void main(String[] args) throws Exception {
+        StartupBenchmark benchmark = new StartupBenchmark();
+        String train = System.getProperty("startup.train");
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")) {
+            postgres.start();
+            benchmark.postgres = postgres;
+            Files.createDirectories(benchmark.logDir);
+            if (train != null && !train.isBlank()) {
+                benchmark.train(Path.of(train));
+            } else {
+                System.exit(benchmark.run() ? 0 : 1);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        // Первый старт накатывает миграции и в замеры не входит
+        start("migrate", null, List.of()).stop();
+
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("default", List.of());
+        variants.put(profile, List.of());
+        if (Files.exists(archive)) {
+            variants.put(profile + "+cds", List.of("-XX:SharedArchiveFile=" + archive.toAbsolutePath()));
+        } else {
+            System.out.println("No class data sharing archive at " + archive + ", run ./gradlew cdsArchive to add it");
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        String gated = null;
+        long gatedMedian = 0;
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            String activeProfile = variant.getKey().equals("default") ? null : profile;
+            List<Long> millis = new ArrayList<>();
+            List<Map<String, Object>> slowest = List.of();
+            for (int i = 0; i < runs; i++) {
+                App app = start(variant.getKey() + "-" + i, activeProfile, variant.getValue());
+                millis.add(app.readyMillis());
+                if (i == runs - 1) {
+                    slowest = app.slowestBeans();
+                }
+                app.stop();
+            }
+            long median = median(millis);
+            System.out.printf("%-24s median %6d ms, runs %s%n", variant.getKey(), median, millis);
+            slowest.forEach(bean -> System.out.printf("    %-60s %6d ms%n", bean.get("bean"), bean.get("millis")));
+            report.put(variant.getKey(), Map.of("medianMillis", median, "runsMillis", millis, "slowestBeans", slowest));
+            gated = variant.getKey();
+            gatedMedian = median;
+        }
+
+        boolean passed = gatedMedian <= maxMillis;
+        report.put("gate", Map.of("variant", gated, "medianMillis", gatedMedian, "maxMillis", maxMillis, "passed", passed));
+        Files.writeString(logDir.resolve("result.json"),
+                objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report));
+        if (!passed) {
+            System.out.printf("Time to ready of %s is %d ms, more than startup.maxMillis=%d%n", gated, gatedMedian, maxMillis);
+        }
+        return passed;
+    }
+
+    private void train(Path output) throws Exception {
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.deleteIfExists(output);
+        Process process = launch("train", profile,
+                List.of("-XX:ArchiveClassesAtExit=" + output.toAbsolutePath()),
+                List.of("--socks.startup.exit-on-ready=true"), freePort());
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Training start did not finish, see " + logDir.resolve("train.log"));
+        }
+        if (!Files.exists(output)) {
+            throw new IllegalStateException("Archive was not written, see " + logDir.resolve("train.log"));
+        }
+        System.out.println("Class data sharing archive: " + output + " (" + Files.size(output) / 1024 + " KiB)");
+    }
+
+    private App start(String name, String activeProfile, List<String> jvmArgs) throws Exception {
+        int port = freePort();
+        long started = System.nanoTime();
+        Process process = launch(name, activeProfile, jvmArgs, List.of(), port);
+        String base = "http://localhost:" + port;
+        long deadline = started + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited during start, see " + logDir.resolve(name + ".log"));
+            }
+            if (ready(base)) {
+                return new App(process, base, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+            Thread.sleep(20);
+        }
+        process.destroyForcibly();
+        throw new IllegalStateException("Application was not ready in " + timeoutSeconds + " s");
+    }
+
+    private Process launch(String name, String activeProfile, List<String> jvmArgs, List<String> appArgs, int port)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(MAIN_CLASS);
+        command.add("--spring.datasource.url=" + postgres.getJdbcUrl());
+        command.add("--spring.datasource.username=" + postgres.getUsername());
+        command.add("--spring.datasource.password=" + postgres.getPassword());
+        command.add("--server.port=" + port);
+        command.add("--management.endpoint.health.probes.enabled=true");
+        if (activeProfile != null) {
+            command.add("--spring.profiles.active=" + activeProfile);
+        }
+        command.addAll(appArgs);
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logDir.resolve(name + ".log").toFile())
+                .start();
+    }
+
+    private boolean ready(String base) {
+        try {
+            HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(URI.create(base + "/actuator/health/readiness")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private final class App {
+        private final Process process;
+        private final String base;
+        private final long readyMillis;
+
+        private App(Process process, String base, long readyMillis) {
+            this.process = process;
+            this.base = base;
+            this.readyMillis = readyMillis;
+        }
+
+        long readyMillis() {
+            return readyMillis;
+        }
+
+        /**
+         * Longest {@code spring.beans.instantiate} steps of the startup timeline. A step includes
+         * the beans it pulled in, so the list shows where the time goes, not exclusive costs.
+         */
+        List<Map<String, Object>> slowestBeans() throws Exception {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(base + "/actuator/startup")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return List.of();
+            }
+            List<Map<String, Object>> beans = new ArrayList<>();
+            for (JsonNode event : objectMapper.readTree(response.body()).path("timeline").path("events")) {
+                JsonNode step = event.path("startupStep");
+                if (!"spring.beans.instantiate".equals(step.path("name").asText())) {
+                    continue;
+                }
+                String bean = null;
+                for (JsonNode tag : step.path("tags")) {
+                    if ("beanName".equals(tag.path("key").asText())) {
+                        bean = tag.path("value").asText();
+                    }
+                }
+                beans.add(Map.of("bean", String.valueOf(bean),
+                        "millis", Duration.parse(event.path("duration").asText()).toMillis()));
+            }
+            beans.sort(Comparator.comparing(bean -> -(Long) bean.get("millis")));
+            return beans.subList(0, Math.min(SLOWEST_BEANS, beans.size()));
+        }
+
+        void stop() throws InterruptedException {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String required(String property) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException(property + " is not set; run through ./gradlew startupBenchmark");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,365 @@
+package ru.socks.inventory.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.SocksInventoryApplication;
+import ru.socks.inventory.load.LoadConfig.Operation;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contention and throughput harness for the stock operations.
+ * <p>
+ * Starts the application against Postgres in Testcontainers and drives a weighted mix of
+ * income, outcome, get and update requests over HTTP from many threads. Keys are picked
+ * uniformly or Zipf-distributed. Incomes and outcomes work on one pool of positions, updates
+ * on a separate one, so the expected final stock of every income/outcome position is known
+ * exactly: initial stock plus accepted incomes minus accepted outcomes.
+ * <p>
+ * Reports throughput, p50/p99/p999 latency per operation, the 409 rate of outcomes and
+ * whether the final stock matches (no oversell, no lost update). With several
+ * {@code load.modes} the same load runs against each serving mode in turn and the results
+ * are printed side by side. The report is also written to {@code build/reports/load/result.json}.
+ */
+public final class StockLoadHarness {
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final int UPDATE_KEYS = 101;
+
+    private final LoadConfig config;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final KeyChooser keyChooser;
+    private final KeyChooser updateKeyChooser;
+    private final Operation[] weightedOperations;
+    private final AtomicLongArray stockDeltas;
+    private final long[] updateIds = new long[UPDATE_KEYS];
+    private String baseUrl;
+
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    private StockLoadHarness(LoadConfig config) {
+        this.config = config;
+        this.keyChooser = KeyChooser.of(config.distribution(), config.keys(), config.zipfExponent());
+        this.updateKeyChooser = KeyChooser.of(config.distribution(), UPDATE_KEYS, config.zipfExponent());
+        this.weightedOperations = weighted(config.mix());
+        this.stockDeltas = new AtomicLongArray(config.keys());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.fromSystemProperties();
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Map<String, Object> reports = new LinkedHashMap<>();
+        boolean stockCorrect = true;
+        for (String mode : config.modes()) {
+            Map<String, Object> report = runMode(config, mode);
+            reports.put(mode, report);
+            stockCorrect &= Boolean.TRUE.equals(report.get("stockCorrect"));
+        }
+
+        String json = objectMapper.writeValueAsString(reports);
+        System.out.println(json);
+        printComparison(reports);
+        Path output = Path.of("build", "reports", "load", "result.json");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, json);
+        if (!stockCorrect) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the load against a fresh database and application: {@code mvc} is the default
+     * servlet stack, {@code reactive} the WebFlux/R2DBC profile (needs the {@code -Preactive}
+     * build). Both get the same number of database connections.
+     */
+    private static Map<String, Object> runMode(LoadConfig config, String mode) throws Exception {
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")) {
+            postgres.start();
+            List<String> appArgs = new ArrayList<>(List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl() + "&reWriteBatchedInserts=true",
+                    "--spring.datasource.username=" + postgres.getUsername(),
+                    "--spring.datasource.password=" + postgres.getPassword(),
+                    "--spring.datasource.hikari.maximum-pool-size=" + config.connections(),
+                    "--spring.jpa.show-sql=false",
+                    "--server.port=0"));
+            switch (mode) {
+                case "mvc" -> {
+                }
+                case "reactive" -> {
+                    appArgs.add("--spring.profiles.active=reactive");
+                    appArgs.add("--spring.r2dbc.url=r2dbc:postgresql://" + postgres.getHost() + ":"
+                            + postgres.getFirstMappedPort() + "/" + postgres.getDatabaseName());
+                    appArgs.add("--spring.r2dbc.username=" + postgres.getUsername());
+                    appArgs.add("--spring.r2dbc.password=" + postgres.getPassword());
+                    appArgs.add("--spring.r2dbc.pool.max-size=" + config.connections());
+                }
+                default -> throw new IllegalArgumentException("Invalid load.modes entry: " + mode);
+            }
+            config.appProperties().forEach(property -> appArgs.add("--" + property));
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SocksInventoryApplication.class)
+                    .run(appArgs.toArray(new String[0]))) {
+                StockLoadHarness harness = new StockLoadHarness(config);
+                harness.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                return harness.run();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printComparison(Map<String, Object> reports) {
+        System.out.printf("%-10s %-8s %12s %10s %10s %10s %10s%n",
+                "mode", "op", "req/s", "p50 us", "p99 us", "p999 us", "409 rate");
+        reports.forEach((mode, report) -> {
+            Map<String, Object> operations = (Map<String, Object>) ((Map<String, Object>) report).get("operations");
+            operations.forEach((operation, value) -> {
+                Map<String, Object> stats = (Map<String, Object>) value;
+                System.out.printf("%-10s %-8s %12s %10s %10s %10s %10.4f%n", mode, operation,
+                        stats.get("throughputPerSecond"), stats.get("p50Micros"), stats.get("p99Micros"),
+                        stats.get("p999Micros"), (Double) stats.get("conflictRate"));
+            });
+        });
+    }
+
+    private Map<String, Object> run() throws Exception {
+        seed();
+
+        List<LatencyRecorder[]> recorders = new ArrayList<>();
+        long[][] conflicts = new long[config.threads()][OPERATIONS.length];
+        long[][] errors = new long[config.threads()][OPERATIONS.length];
+        CountDownLatch done = new CountDownLatch(config.threads());
+        for (int t = 0; t < config.threads(); t++) {
+            LatencyRecorder[] threadRecorders = new LatencyRecorder[OPERATIONS.length];
+            for (int o = 0; o < OPERATIONS.length; o++) {
+                threadRecorders[o] = new LatencyRecorder();
+            }
+            recorders.add(threadRecorders);
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    work(threadRecorders, conflicts[thread], errors[thread]);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-worker-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        Thread.sleep(config.warmupSeconds() * 1000L);
+        measuring = true;
+        long startedAt = System.nanoTime();
+        Thread.sleep(config.durationSeconds() * 1000L);
+        measuring = false;
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        stopped = true;
+        done.await();
+
+        return report(recorders, conflicts, errors, seconds);
+    }
+
+    private void work(LatencyRecorder[] recorders, long[] conflicts, long[] errors) {
+        while (!stopped) {
+            Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+            boolean measured = measuring;
+            long startedAt = System.nanoTime();
+            int status;
+            try {
+                status = execute(operation);
+            } catch (IOException | InterruptedException e) {
+                status = -1;
+            }
+            long micros = (System.nanoTime() - startedAt) / 1000;
+            if (measured) {
+                recorders[operation.ordinal()].record(micros);
+                if (status == 409) {
+                    conflicts[operation.ordinal()]++;
+                } else if (status != 200) {
+                    errors[operation.ordinal()]++;
+                }
+            }
+        }
+    }
+
+    private int execute(Operation operation) throws IOException, InterruptedException {
+        int quantity = 1 + ThreadLocalRandom.current().nextInt(config.maxQuantity());
+        switch (operation) {
+            case INCOME, OUTCOME -> {
+                int key = keyChooser.next();
+                int status = send(HttpRequest.newBuilder(uri("/api/socks/" + operation.name().toLowerCase()))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(sockJson(color(key), cotton(key), quantity))));
+                if (status == 200) {
+                    stockDeltas.addAndGet(key, operation == Operation.INCOME ? quantity : -quantity);
+                }
+                return status;
+            }
+            case GET -> {
+                return send(HttpRequest.newBuilder(uri("/api/socks?color=" + color(keyChooser.next()))).GET());
+            }
+            case UPDATE -> {
+                int key = updateKeyChooser.next();
+                return send(HttpRequest.newBuilder(uri("/api/socks/" + updateIds[key]))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(sockJson("Update", key, quantity))));
+            }
+            default -> throw new IllegalStateException("Unexpected operation: " + operation);
+        }
+    }
+
+    /**
+     * Puts the initial stock of every position in with one batch request and collects the
+     * ids of the update positions.
+     */
+    private void seed() throws IOException, InterruptedException {
+        StringBuilder movements = new StringBuilder("[");
+        for (int key = 0; key < config.keys(); key++) {
+            movements.append(movementJson(color(key), cotton(key), config.initialStock())).append(',');
+        }
+        for (int key = 0; key < UPDATE_KEYS; key++) {
+            movements.append(movementJson("Update", key, config.initialStock())).append(',');
+        }
+        movements.setCharAt(movements.length() - 1, ']');
+        int status = send(HttpRequest.newBuilder(uri("/api/socks/movements:batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(movements.toString())));
+        if (status != 200) {
+            throw new IllegalStateException("Seeding failed with status " + status);
+        }
+
+        for (JsonNode sock : fetch("/api/socks?color=Update")) {
+            updateIds[sock.get("cottonContent").asInt()] = sock.get("id").asLong();
+        }
+    }
+
+    private Map<String, Object> report(List<LatencyRecorder[]> recorders, long[][] conflicts, long[][] errors,
+                                       double seconds) throws IOException, InterruptedException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("threads", config.threads());
+        settings.put("durationSeconds", config.durationSeconds());
+        settings.put("keys", config.keys());
+        settings.put("distribution", config.distribution());
+        settings.put("zipfExponent", config.zipfExponent());
+        settings.put("mix", config.mix());
+        settings.put("connections", config.connections());
+        settings.put("app", config.appProperties());
+        report.put("settings", settings);
+
+        long totalRequests = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            List<LatencyRecorder> byOperation = new ArrayList<>();
+            long operationConflicts = 0;
+            long operationErrors = 0;
+            for (int t = 0; t < recorders.size(); t++) {
+                byOperation.add(recorders.get(t)[operation.ordinal()]);
+                operationConflicts += conflicts[t][operation.ordinal()];
+                operationErrors += errors[t][operation.ordinal()];
+            }
+            long[] latencies = LatencyRecorder.merged(byOperation);
+            if (latencies.length == 0) {
+                continue;
+            }
+            totalRequests += latencies.length;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", latencies.length);
+            stats.put("throughputPerSecond", Math.round(latencies.length / seconds));
+            stats.put("p50Micros", LatencyRecorder.percentile(latencies, 50));
+            stats.put("p99Micros", LatencyRecorder.percentile(latencies, 99));
+            stats.put("p999Micros", LatencyRecorder.percentile(latencies, 99.9));
+            stats.put("conflictRate", (double) operationConflicts / latencies.length);
+            stats.put("errors", operationErrors);
+            operations.put(operation.name().toLowerCase(), stats);
+        }
+        report.put("throughputPerSecond", Math.round(totalRequests / seconds));
+        report.put("operations", operations);
+
+        // Итоговый остаток: начальный плюс принятые приходы минус принятые отпуски
+        Map<String, Long> actual = new HashMap<>();
+        for (JsonNode sock : fetch("/api/socks")) {
+            actual.put(sock.get("color").asText() + "_" + sock.get("cottonContent").asInt(), sock.get("quantity").asLong());
+        }
+        int mismatches = 0;
+        int negative = 0;
+        for (int key = 0; key < config.keys(); key++) {
+            long expected = config.initialStock() + stockDeltas.get(key);
+            long quantity = actual.getOrDefault(color(key) + "_" + cotton(key), 0L);
+            if (quantity != expected) {
+                mismatches++;
+            }
+            if (quantity < 0) {
+                negative++;
+            }
+        }
+        report.put("stockMismatches", mismatches);
+        report.put("negativeStock", negative);
+        report.put("stockCorrect", mismatches == 0 && negative == 0);
+        return report;
+    }
+
+    private JsonNode fetch(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri(path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        return objectMapper.readTree(response.body());
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static Operation[] weighted(Map<Operation, Integer> mix) {
+        List<Operation> operations = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("load.mix has no operations");
+        }
+        return operations.toArray(new Operation[0]);
+    }
+
+    private static String color(int key) {
+        return "Load" + key / 101;
+    }
+
+    private static int cotton(int key) {
+        return key % 101;
+    }
+
+    private static String sockJson(String color, int cottonContent, int quantity) {
+        return String.format("{\"color\":\"%s\",\"cottonContent\":%d,\"quantity\":%d}", color, cottonContent, quantity);
+    }
+
+    private static String movementJson(String color, int cottonContent, int quantity) {
+        return String.format("{\"direction\":\"income\",\"color\":\"%s\",\"cottonContent\":%d,\"quantity\":%d}",
+                color, cottonContent, quantity);
+    }
+}
@@ -2,11 +2,18 @@ package ru.socks.inventory;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class SocksInventoryApplication {
 
+    // Шагов старта с запасом: по несколько на каждый бин
+    private static final int STARTUP_STEPS = 10_000;
+
     public static void main(String[] args) {
-        SpringApplication.run(SocksInventoryApplication.class, args);
+        SpringApplication application = new SpringApplication(SocksInventoryApplication.class);
+        // Хронология старта отдаётся на /actuator/startup
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        application.run(args);
     }
-}
\ No newline at end of file
+}
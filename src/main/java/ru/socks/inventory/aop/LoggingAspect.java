@@ -3,45 +3,84 @@ package ru.socks.inventory.aop;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.socks.inventory.config.RequestTraceFilter;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Aspect
 @Component
+@ConditionalOnProperty(prefix = "socks.logging.aspect", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class LoggingAspect {
     private static final Logger log = LogManager.getLogger(LoggingAspect.class);
 
-    @Before("execution(* ru.socks.inventory.controller.*.*(..))")
-    public void logRequest(JoinPoint joinPoint) {
-        log.debug("Request method: {}", joinPoint.getSignature().getName());
+    // Имена параметров читаются через reflection один раз на метод
+    private final Map<Method, String[]> parameterNames = new ConcurrentHashMap<>();
+    private final PayloadFormatter payloadFormatter;
+    private final double payloadSampleRate;
 
-        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
-        Parameter[] parameters = method.getParameters();
-        Object[] args = joinPoint.getArgs();
+    public LoggingAspect(@Value("${socks.logging.payload.max-length:2000}") int payloadMaxLength,
+                         @Value("${socks.logging.payload.sample-rate:1.0}") double payloadSampleRate) {
+        this.payloadFormatter = new PayloadFormatter(payloadMaxLength);
+        this.payloadSampleRate = payloadSampleRate;
+    }
 
-        for (int i = 0; i < parameters.length; i++) {
-            String parameterName = parameters[i].getName();
-            Object paramValue = args[i];
-            log.debug("{}: {}", parameterName, paramValue);
+    @Around("@within(org.springframework.web.bind.annotation.RestController)")
+    public Object logCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!log.isDebugEnabled()) {
+            return joinPoint.proceed();
         }
-    }
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        boolean payloads = logPayloads();
 
-    @AfterReturning(value = "execution(* ru.socks.inventory.controller.*.*(..))", returning = "result")
-    public void logResponse(JoinPoint joinPoint, Object result) {
-        log.debug("Response method: {}", joinPoint.getSignature().getName());
-        log.debug("Response data: {}", result);
+        log.debug("Request method: {}", signature.getName());
+        if (payloads) {
+            String[] names = parameterNames.computeIfAbsent(signature.getMethod(), LoggingAspect::namesOf);
+            Object[] args = joinPoint.getArgs();
+            for (int i = 0; i < names.length; i++) {
+                log.debug("{}: {}", names[i], payloadFormatter.format(args[i]));
+            }
+        }
+
+        Object result = joinPoint.proceed();
+
+        log.debug("Response method: {}", signature.getName());
+        if (payloads) {
+            log.debug("Response data: {}", payloadFormatter.format(result));
+        }
+        return result;
     }
 
-    @AfterThrowing(value = "execution(* ru.socks.inventory.controller.*.*(..))", throwing = "exception")
+    @AfterThrowing(value = "@within(org.springframework.web.bind.annotation.RestController)", throwing = "exception")
     public void logException(JoinPoint joinPoint, Exception exception) {
         log.error("Exception occurred in method: {}", joinPoint.getSignature().getName());
         log.error("Exception message: {}", exception.getMessage());
     }
+
+    // Трассируемые запросы логируются целиком, остальные - с заданной долей
+    private boolean logPayloads() {
+        return payloadSampleRate >= 1
+                || RequestTraceFilter.isTraced()
+                || ThreadLocalRandom.current().nextDouble() < payloadSampleRate;
+    }
+
+    private static String[] namesOf(Method method) {
+        Parameter[] parameters = method.getParameters();
+        String[] names = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            names[i] = parameters[i].getName();
+        }
+        return names;
+    }
 }
@@ -0,0 +1,61 @@
+package ru.socks.inventory.aop;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Renders request arguments and responses for the debug log with a bounded length.
+ * Collections are rendered element by element until the limit is reached, so a large
+ * {@code List<Sock>} is never turned into one big string.
+ */
+public final class PayloadFormatter {
+
+    private final int maxLength;
+
+    public PayloadFormatter(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public String format(Object value) {
+        StringBuilder out = new StringBuilder(Math.min(maxLength, 256));
+        append(out, value);
+        return out.toString();
+    }
+
+    private void append(StringBuilder out, Object value) {
+        if (value instanceof ResponseEntity<?> response) {
+            out.append(response.getStatusCodeValue()).append(' ');
+            append(out, response.getBody());
+        } else if (value instanceof Collection<?> collection) {
+            appendCollection(out, collection);
+        } else if (value instanceof MultipartFile file) {
+            out.append("file ").append(file.getOriginalFilename()).append(" (").append(file.getSize()).append(" bytes)");
+        } else {
+            appendBounded(out, String.valueOf(value));
+        }
+    }
+
+    private void appendCollection(StringBuilder out, Collection<?> collection) {
+        out.append("[size=").append(collection.size()).append(']');
+        Iterator<?> elements = collection.iterator();
+        while (elements.hasNext() && out.length() < maxLength) {
+            out.append(' ');
+            appendBounded(out, String.valueOf(elements.next()));
+        }
+        if (elements.hasNext()) {
+            out.append(" ...");
+        }
+    }
+
+    private void appendBounded(StringBuilder out, String text) {
+        int room = Math.max(maxLength - out.length(), 0);
+        if (text.length() <= room) {
+            out.append(text);
+        } else {
+            out.append(text, 0, room).append("...(").append(text.length()).append(" chars)");
+        }
+    }
+}
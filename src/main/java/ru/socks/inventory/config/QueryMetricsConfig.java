@@ -0,0 +1,119 @@
+package ru.socks.inventory.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import ru.socks.inventory.metrics.QueriesEndpoint;
+import ru.socks.inventory.metrics.QueryMetrics;
+import ru.socks.inventory.metrics.RepositoryMethodInterceptor;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Statement instrumentation: every {@link DataSource} bean is wrapped so its statements reach
+ * {@link QueryMetrics}, and repository calls mark the thread with the method being called.
+ * <p>
+ * The wrapper is a class-based proxy that only reroutes {@code getConnection}, so the bean
+ * keeps its type ({@link ReplicaRoutingDataSource}, Hikari) for everything injecting it by type
+ * or reading pool metrics.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "socks.queries", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class QueryMetricsConfig {
+
+    @Bean
+    public QueryMetrics queryMetrics(MeterRegistry registry,
+                                     ObjectProvider<DataSource> dataSource,
+                                     @Value("${socks.queries.slow-ms:200}") long slowMs,
+                                     @Value("${socks.queries.slow-sample-rate:1.0}") double slowSampleRate,
+                                     @Value("${socks.queries.explain:true}") boolean explain,
+                                     @Value("${socks.queries.slow-log-size:100}") int slowLogSize) {
+        return new QueryMetrics(registry, dataSource, slowMs, slowSampleRate, explain, slowLogSize);
+    }
+
+    @Bean
+    public QueriesEndpoint queriesEndpoint(QueryMetrics queryMetrics, EntityManagerFactory entityManagerFactory) {
+        return new QueriesEndpoint(queryMetrics, entityManagerFactory);
+    }
+
+    @Bean
+    public static BeanPostProcessor measuredDataSources(ObjectProvider<QueryMetrics> queryMetrics) {
+        // Слушатель достаётся лениво: постпроцессор создаётся раньше реестра метрик
+        QueryExecutionListener listener = new QueryExecutionListener() {
+            @Override
+            public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                queryMetrics.getObject().beforeQuery(execInfo, queryInfoList);
+            }
+
+            @Override
+            public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                queryMetrics.getObject().afterQuery(execInfo, queryInfoList);
+            }
+        };
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource || AopUtils.isAopProxy(bean)) {
+                    return bean;
+                }
+                DataSource measured = ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(listener)
+                        .build();
+                ProxyFactory proxy = new ProxyFactory(bean);
+                proxy.setProxyTargetClass(true);
+                proxy.addAdvice((MethodInterceptor) invocation -> {
+                    if (!invocation.getMethod().getName().equals("getConnection")) {
+                        return invocation.proceed();
+                    }
+                    Object[] args = invocation.getArguments();
+                    return args.length == 0
+                            ? measured.getConnection()
+                            : measured.getConnection((String) args[0], (String) args[1]);
+                });
+                return proxy.getProxy();
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor measuredRepositories() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxy, repository) -> proxy.addAdvice(new RepositoryMethodInterceptor(
+                                    repository.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Репозитории на JdbcTemplate и словарь цветов - обычные классы, не Spring Data
+    @Bean
+    public static Advisor measuredJdbcRepositories() {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression("within(ru.socks.inventory.repository..*)");
+        return new DefaultPointcutAdvisor(pointcut, new RepositoryMethodInterceptor(null));
+    }
+}
@@ -0,0 +1,56 @@
+package ru.socks.inventory.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Read-your-writes with a replica. Write responses carry the header {@value #READ_AFTER_HEADER}
+ * with the moment after their commit ({@link ReadAfterAdvice}); a read that sends it back is
+ * served by the replica only if the replica has replayed everything committed before that
+ * moment, otherwise by the primary. Without the header a read may lag up to
+ * {@code socks.replica.max-lag-ms}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "socks.replica", name = "enabled", havingValue = "true")
+public class ReadAfterFilter extends OncePerRequestFilter {
+
+    public static final String READ_AFTER_HEADER = "X-Read-After";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(READ_AFTER_HEADER);
+        if (header == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Instant readAfter;
+        try {
+            readAfter = Instant.parse(header);
+        } catch (DateTimeParseException e) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Invalid data format: Invalid " + READ_AFTER_HEADER + ": " + header);
+            return;
+        }
+        ReplicaRoutingDataSource.setReadAfter(readAfter);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.clearReadAfter();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ru.socks.inventory.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+/**
+ * Replaces the single connection pool with {@link ReplicaRoutingDataSource}. The primary
+ * pool keeps the {@code spring.datasource} settings; the replica and the fallback read pool
+ * are sized by {@code socks.replica.*}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "socks.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @Primary
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties properties,
+                                               Environment environment,
+                                               ObjectProvider<MeterRegistry> meterRegistry,
+                                               @Value("${socks.replica.url}") String url,
+                                               @Value("${socks.replica.username:}") String username,
+                                               @Value("${socks.replica.password:}") String password,
+                                               @Value("${socks.replica.pool-size:10}") int poolSize,
+                                               @Value("${socks.replica.primary-read-pool-size:4}") int primaryReadPoolSize,
+                                               @Value("${socks.replica.connection-timeout-ms:1000}") long connectionTimeoutMs,
+                                               @Value("${socks.replica.health-check-ms:500}") long healthCheckMs,
+                                               @Value("${socks.replica.max-lag-ms:5000}") long maxLagMs) {
+        if (url.isBlank()) {
+            throw new IllegalStateException("socks.replica.url is not set");
+        }
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("primary");
+        }
+        withMetrics(primary, registry);
+
+        HikariDataSource replica = readPool("replica", url,
+                username.isEmpty() ? primary.getUsername() : username,
+                password.isEmpty() ? primary.getPassword() : password,
+                poolSize, connectionTimeoutMs, registry);
+        // Отдельный пул на основной базе: чтения при отказе реплики не занимают соединения записи
+        HikariDataSource primaryReads = readPool("primary-reads", primary.getJdbcUrl(),
+                primary.getUsername(), primary.getPassword(), primaryReadPoolSize, connectionTimeoutMs, registry);
+
+        return new ReplicaRoutingDataSource(primary, replica, primaryReads, healthCheckMs, maxLagMs);
+    }
+
+    @Bean
+    public HealthIndicator replicaHealthIndicator(ReplicaRoutingDataSource dataSource) {
+        return dataSource.monitor();
+    }
+
+    private static HikariDataSource readPool(String name, String url, String username, String password,
+                                             int size, long connectionTimeoutMs, MeterRegistry registry) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(size);
+        pool.setConnectionTimeout(connectionTimeoutMs);
+        pool.setValidationTimeout(connectionTimeoutMs);
+        pool.setReadOnly(true);
+        // Пул не должен держать старт приложения, если реплика ещё не поднялась
+        pool.setInitializationFailTimeout(-1);
+        withMetrics(pool, registry);
+        return pool;
+    }
+
+    private static void withMetrics(HikariDataSource pool, MeterRegistry registry) {
+        if (registry != null) {
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        }
+    }
+}
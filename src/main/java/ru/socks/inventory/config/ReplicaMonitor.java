@@ -0,0 +1,179 @@
+package ru.socks.inventory.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks whether the replica can serve reads and how far behind the primary it is.
+ * <p>
+ * Every {@code socks.replica.health-check-ms} the current WAL position of the primary is
+ * sampled together with the time of the sample, and the replay position of the replica is
+ * read. Once the replica has replayed a sampled position, everything committed on the primary
+ * before that sample is visible on the replica: {@link #replayedAt()} moves to the sample time.
+ * A server that is not in recovery is taken as a synchronous copy. A failed check marks the
+ * replica down until the next successful one.
+ */
+public class ReplicaMonitor implements HealthIndicator, AutoCloseable {
+    private static final Logger log = LogManager.getLogger(ReplicaMonitor.class);
+
+    // Если реплика застряла, старые отметки отбрасываются: replayedAt от этого только консервативнее
+    private static final int MAX_SAMPLES = 10_000;
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+    private final ScheduledExecutorService checks;
+    // Отметки основной базы, ещё не воспроизведённые репликой; трогает только поток проверок
+    private final Deque<WalSample> pending = new ArrayDeque<>();
+
+    private volatile boolean up;
+    private volatile Instant replayedAt;
+    private volatile String lastError;
+    private boolean notInRecoveryLogged;
+
+    public ReplicaMonitor(DataSource primary, DataSource replica, long healthCheckMs, long maxLagMs) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagMs = maxLagMs;
+        this.checks = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sock-replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checks.scheduleWithFixedDelay(this::checkSafely, 0, healthCheckMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        checks.shutdownNow();
+    }
+
+    /**
+     * Whether a read may go to the replica: it is up, lags at most {@code socks.replica.max-lag-ms}
+     * and has replayed everything the primary committed before {@code readAfter}, if given.
+     */
+    public boolean canServe(Instant readAfter) {
+        Instant at = replayedAt;
+        if (!up || at == null) {
+            return false;
+        }
+        Instant bound = Instant.now().minusMillis(maxLagMs);
+        if (readAfter != null && readAfter.isAfter(bound)) {
+            bound = readAfter;
+        }
+        return !at.isBefore(bound);
+    }
+
+    /**
+     * Commits on the primary before this moment are visible on the replica; {@code null} until
+     * the first successful check.
+     */
+    public Instant replayedAt() {
+        return replayedAt;
+    }
+
+    /**
+     * Called when a replica connection could not be obtained; reads go to the primary until
+     * the next successful check.
+     */
+    public void markDown(String error) {
+        if (up) {
+            log.warn("Replica is unavailable, reads go to the primary: {}", error);
+        }
+        up = false;
+        lastError = error;
+    }
+
+    // Реплика недоступна - всё равно UP: чтения идут на основную базу
+    @Override
+    public Health health() {
+        Health.Builder health = Health.up()
+                .withDetail("route", canServe(null) ? "replica" : "primary")
+                .withDetail("available", up);
+        Instant at = replayedAt;
+        if (at != null) {
+            health.withDetail("replayedAt", at.toString())
+                    .withDetail("lagMs", Math.max(0, Instant.now().toEpochMilli() - at.toEpochMilli()));
+        }
+        String error = lastError;
+        if (error != null) {
+            health.withDetail("error", error);
+        }
+        return health.build();
+    }
+
+    void check() {
+        Instant sampledAt = Instant.now();
+        long primaryLsn;
+        try {
+            primaryLsn = parseLsn(primary.queryForObject("SELECT pg_current_wal_lsn()::text", String.class));
+        } catch (DataAccessException e) {
+            // Без отметки основной базы отставание не измерить; replayedAt стареет сам
+            log.warn("Primary WAL position is unavailable: {}", e.getMessage());
+            return;
+        }
+        if (pending.size() == MAX_SAMPLES) {
+            pending.removeFirst();
+        }
+        pending.addLast(new WalSample(sampledAt, primaryLsn));
+
+        Map<String, Object> state;
+        try {
+            state = replica.queryForMap(
+                    "SELECT pg_is_in_recovery() AS in_recovery, pg_last_wal_replay_lsn()::text AS replay_lsn");
+        } catch (DataAccessException e) {
+            markDown(e.getMessage());
+            return;
+        }
+
+        if (!Boolean.TRUE.equals(state.get("in_recovery"))) {
+            if (!notInRecoveryLogged) {
+                log.warn("Replica is not in recovery, its lag is not measured");
+                notInRecoveryLogged = true;
+            }
+            pending.clear();
+            replayedAt = sampledAt;
+        } else {
+            String replayLsn = (String) state.get("replay_lsn");
+            long replayed = replayLsn != null ? parseLsn(replayLsn) : -1;
+            while (!pending.isEmpty() && pending.peekFirst().lsn() <= replayed) {
+                replayedAt = pending.removeFirst().at();
+            }
+        }
+        if (!up) {
+            log.info("Replica is available");
+        }
+        up = true;
+        lastError = null;
+    }
+
+    private void checkSafely() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            log.error("Replica check failed", e);
+        }
+    }
+
+    // Позиция WAL в виде "16/B374D848"
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        return Long.parseLong(lsn.substring(0, slash), 16) << 32 | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+    private record WalSample(Instant at, long lsn) {
+    }
+}
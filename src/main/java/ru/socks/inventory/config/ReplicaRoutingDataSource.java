@@ -0,0 +1,93 @@
+package ru.socks.inventory.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary.
+ * <p>
+ * There are three pools: writes on the primary, reads on the replica, and a small pool of
+ * reads on the primary used while the replica is down, lagging or out of connections, so
+ * fallback reads never take connections from writes. The physical connection is picked on
+ * the first statement, when the read-only flag of the transaction is already known.
+ * <p>
+ * A request may carry the time of a write it has to see ({@link ReadAfterFilter}); the read
+ * then goes to the replica only if the replica has replayed everything committed before it.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private static final ThreadLocal<Instant> READ_AFTER = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final HikariDataSource primaryReads;
+    private final ReplicaMonitor monitor;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary,
+                                    HikariDataSource replica,
+                                    HikariDataSource primaryReads,
+                                    long healthCheckMs,
+                                    long maxLagMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.primaryReads = primaryReads;
+        this.monitor = new ReplicaMonitor(primaryReads, replica, healthCheckMs, maxLagMs);
+        // Без этих значений прокси взял бы соединение при старте, чтобы их узнать
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        setTargetDataSource(new Router());
+    }
+
+    static void setReadAfter(Instant readAfter) {
+        READ_AFTER.set(readAfter);
+    }
+
+    static void clearReadAfter() {
+        READ_AFTER.remove();
+    }
+
+    public ReplicaMonitor monitor() {
+        return monitor;
+    }
+
+    @Override
+    public void close() {
+        monitor.close();
+        primaryReads.close();
+        replica.close();
+        primary.close();
+    }
+
+    private Connection route() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary.getConnection();
+        }
+        if (monitor.canServe(READ_AFTER.get())) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                monitor.markDown(e.getMessage());
+            }
+        }
+        return primaryReads.getConnection();
+    }
+
+    private class Router extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return route();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLException("Routed connections use the credentials of their pool");
+        }
+    }
+}
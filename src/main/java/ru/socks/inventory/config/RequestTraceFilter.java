@@ -0,0 +1,52 @@
+package ru.socks.inventory.config;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Turns on full logging for a single request. A request carrying the header
+ * {@value #TRACE_HEADER} with the value of {@code socks.logging.trace-token} is marked in the
+ * Log4j2 thread context; {@code log4j2-prod.xml} then accepts its events down to TRACE,
+ * including Hibernate SQL and bind parameters. Without a configured token the switch is off.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RequestTraceFilter extends OncePerRequestFilter {
+
+    public static final String TRACE_HEADER = "X-Trace-Request";
+    public static final String TRACE_KEY = "socksTrace";
+
+    private final String traceToken;
+
+    public RequestTraceFilter(@Value("${socks.logging.trace-token:}") String traceToken) {
+        this.traceToken = traceToken;
+    }
+
+    public static boolean isTraced() {
+        return ThreadContext.containsKey(TRACE_KEY);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (traceToken.isEmpty() || !traceToken.equals(request.getHeader(TRACE_HEADER))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ThreadContext.put(TRACE_KEY, "true");
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ThreadContext.remove(TRACE_KEY);
+        }
+    }
+}
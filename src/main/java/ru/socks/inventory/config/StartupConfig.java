@@ -0,0 +1,44 @@
+package ru.socks.inventory.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.socks.inventory.service.InventoryReadModel;
+import ru.socks.inventory.service.InventoryVersionService;
+import ru.socks.inventory.service.ReservationService;
+import ru.socks.inventory.service.SockChangeFeed;
+import ru.socks.inventory.service.SockLedgerService;
+import ru.socks.inventory.service.UploadJobService;
+
+/**
+ * Startup settings used by the {@code fast-start} profile and the startup tooling.
+ */
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Beans that must exist from the start even with {@code spring.main.lazy-initialization}:
+     * they run background tasks, or, like the read model, must be loaded before the first
+     * change they listen to.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerSocksBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                SockLedgerService.class, InventoryVersionService.class, InventoryReadModel.class,
+                ReservationService.class, SockChangeFeed.class, UploadJobService.class);
+    }
+
+    /**
+     * Stops the application as soon as it is ready, for a training run that records a class
+     * data sharing archive ({@code ./gradlew cdsArchive}).
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "socks.startup", name = "exit-on-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitOnReady() {
+        return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
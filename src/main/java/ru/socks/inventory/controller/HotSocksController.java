@@ -0,0 +1,59 @@
+package ru.socks.inventory.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.socks.inventory.dto.HotSock;
+import ru.socks.inventory.service.ShardedStockService;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import java.util.List;
+
+@Validated
+@RestController
+@RequestMapping("/api/socks/hot")
+@ConditionalOnProperty(prefix = "socks.sharding", name = "enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Tag(name = "Hot Sock API", description = "API for spreading the stock of hot socks over several rows")
+public class HotSocksController {
+    private final ShardedStockService shardedStockService;
+
+    @Autowired
+    public HotSocksController(ShardedStockService shardedStockService) {
+        this.shardedStockService = shardedStockService;
+    }
+
+    @Operation(summary = "Get hot socks", description = "List socks whose stock is sharded.")
+    @ApiResponse(responseCode = "200", description = "List of hot socks fetched successfully")
+    @GetMapping
+    public ResponseEntity<List<HotSock>> getHotSocks() {
+        return ResponseEntity.ok(shardedStockService.getHotSocks());
+    }
+
+    @Operation(summary = "Mark sock as hot", description = "Spread the stock of a sock over several rows.")
+    @ApiResponse(responseCode = "200", description = "Sock marked as hot")
+    @ApiResponse(responseCode = "400", description = "Invalid request")
+    @PutMapping
+    public ResponseEntity<String> markHot(@RequestBody @Validated HotSock hotSock) {
+        shardedStockService.markHot(hotSock);
+        return ResponseEntity.ok("Sock marked as hot");
+    }
+
+    @Operation(summary = "Unmark hot sock", description = "Fold the shards of a sock back into a single row.")
+    @ApiResponse(responseCode = "200", description = "Sock is no longer hot")
+    @ApiResponse(responseCode = "409", description = "Sock is not marked as hot")
+    @DeleteMapping
+    public ResponseEntity<String> unmarkHot(@RequestParam @NotBlank String color,
+                                            @RequestParam @Min(0) @Max(100) Integer cottonContent) {
+        shardedStockService.unmarkHot(color, cottonContent);
+        return ResponseEntity.ok("Sock is no longer hot");
+    }
+}
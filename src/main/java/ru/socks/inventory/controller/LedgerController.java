@@ -0,0 +1,58 @@
+package ru.socks.inventory.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.socks.inventory.dto.LedgerPage;
+import ru.socks.inventory.dto.StockPosition;
+import ru.socks.inventory.service.SockLedgerService;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.List;
+
+@Validated
+@RestController
+@RequestMapping("/api/socks/ledger")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Tag(name = "Ledger API", description = "API for the history of stock movements")
+public class LedgerController {
+    private final SockLedgerService ledgerService;
+
+    @Autowired
+    public LedgerController(SockLedgerService ledgerService) {
+        this.ledgerService = ledgerService;
+    }
+
+    @Operation(summary = "Get stock movements", description = "Retrieve stock movements with from <= movedAt < to "
+            + "(ISO-8601 timestamps with offset, to defaults to now) in time order, optionally of one color and/or "
+            + "cotton content. Pass nextCursor of the previous page as cursor to get the next one.")
+    @ApiResponse(responseCode = "200", description = "Page of movements fetched successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content(schema = @Schema(implementation = String.class)))
+    @GetMapping("/movements")
+    public ResponseEntity<LedgerPage> getMovements(@RequestParam String from,
+                                                   @RequestParam(required = false) String to,
+                                                   @RequestParam(required = false) String color,
+                                                   @RequestParam(required = false) @Min(0) @Max(100) Integer cottonContent,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "1000") @Min(1) @Max(10000) Integer limit) {
+        return ResponseEntity.ok(ledgerService.getMovements(from, to, color, cottonContent, cursor, limit));
+    }
+
+    @Operation(summary = "Get stock as of a moment", description = "Rebuild the non-zero stock of every position "
+            + "as of the given ISO-8601 timestamp from the nearest snapshot and the movements after it.")
+    @ApiResponse(responseCode = "200", description = "Stock rebuilt successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid timestamp or earlier than the kept history",
+            content = @Content(schema = @Schema(implementation = String.class)))
+    @GetMapping("/stock")
+    public ResponseEntity<List<StockPosition>> getStockAt(@RequestParam String at) {
+        return ResponseEntity.ok(ledgerService.getStockAt(at));
+    }
+}
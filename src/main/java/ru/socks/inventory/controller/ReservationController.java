@@ -0,0 +1,62 @@
+package ru.socks.inventory.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.socks.inventory.dto.Reservation;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.service.ReservationService;
+
+import javax.validation.constraints.Positive;
+import java.util.UUID;
+
+@Validated
+@RestController
+@RequestMapping("/api/socks/reservations")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Tag(name = "Reservation API", description = "API for holding stock during checkout")
+public class ReservationController {
+    private final ReservationService reservationService;
+
+    @Autowired
+    public ReservationController(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    @Operation(summary = "Reserve socks", description = "Take socks from the stock for a checkout. "
+            + "The reservation must be committed before it expires, otherwise the socks return to the stock.")
+    @ApiResponse(responseCode = "201", description = "Socks reserved")
+    @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content(schema = @Schema(implementation = String.class)))
+    @ApiResponse(responseCode = "409", description = "Not enough socks in stock", content = @Content(schema = @Schema(implementation = String.class)))
+    @PostMapping
+    public ResponseEntity<Reservation> reserve(@RequestBody @Validated SockRequest request,
+                                               @RequestParam(required = false) @Positive Long ttlSeconds) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(reservationService.reserve(request, ttlSeconds));
+    }
+
+    @Operation(summary = "Commit reservation", description = "Turn the reservation into a final outcome.")
+    @ApiResponse(responseCode = "200", description = "Reservation committed")
+    @ApiResponse(responseCode = "400", description = "Invalid reservation id", content = @Content(schema = @Schema(implementation = String.class)))
+    @ApiResponse(responseCode = "404", description = "Reservation not found, released or expired", content = @Content(schema = @Schema(implementation = String.class)))
+    @PostMapping("/{id}:commit")
+    public ResponseEntity<Reservation> commit(@PathVariable String id) {
+        return ResponseEntity.ok(reservationService.commit(UUID.fromString(id)));
+    }
+
+    @Operation(summary = "Release reservation", description = "Cancel the reservation and return its socks to the stock.")
+    @ApiResponse(responseCode = "200", description = "Reservation released")
+    @ApiResponse(responseCode = "400", description = "Invalid reservation id", content = @Content(schema = @Schema(implementation = String.class)))
+    @ApiResponse(responseCode = "404", description = "Reservation not found, committed or expired", content = @Content(schema = @Schema(implementation = String.class)))
+    @PostMapping("/{id}:release")
+    public ResponseEntity<Reservation> release(@PathVariable String id) {
+        return ResponseEntity.ok(reservationService.release(UUID.fromString(id)));
+    }
+}
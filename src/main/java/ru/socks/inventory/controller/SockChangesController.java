@@ -0,0 +1,46 @@
+package ru.socks.inventory.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.socks.inventory.service.SockChangeFeed;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@Validated
+@RestController
+@RequestMapping("/api/socks/changes")
+@ConditionalOnProperty(prefix = "socks.changes", name = "enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Tag(name = "Stock Change API", description = "API for following stock changes without polling")
+public class SockChangesController {
+    private final SockChangeFeed changeFeed;
+
+    @Autowired
+    public SockChangesController(SockChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @Operation(summary = "Follow stock changes", description = "Server-sent events: a 'stock' event with the current "
+            + "sock for every changed position, bursts coalesced, and a 'reset' event when the client has to read "
+            + "GET /api/socks again. Reconnect with Last-Event-ID to get the missed events.")
+    @ApiResponse(responseCode = "200", description = "Stream opened")
+    @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content(schema = @Schema(implementation = String.class)))
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getChanges(@RequestParam(required = false) String color,
+                                 @RequestParam(defaultValue = "0") @Min(0) @Max(100) Integer minCottonContent,
+                                 @RequestParam(defaultValue = "100") @Min(0) @Max(100) Integer maxCottonContent,
+                                 @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return changeFeed.subscribe(color, minCottonContent, maxCottonContent, lastEventId);
+    }
+}
@@ -1,44 +1,95 @@
 package ru.socks.inventory.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.socks.inventory.dto.GroupingEnum;
+import ru.socks.inventory.dto.SockAggregate;
+import ru.socks.inventory.dto.SockColumns;
+import ru.socks.inventory.dto.SockFilter;
+import ru.socks.inventory.dto.SockMovement;
+import ru.socks.inventory.dto.SockMovementResult;
+import ru.socks.inventory.dto.SockPage;
 import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.dto.VersionedSocks;
 import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.service.InventoryReadModel;
+import ru.socks.inventory.service.SockAggregateService;
+import ru.socks.inventory.service.SockMovementService;
 import ru.socks.inventory.service.SockService;
+import ru.socks.inventory.service.SockWriteCoalescer;
 
+import javax.validation.Valid;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 
 @Validated
 @RestController
 @RequestMapping("/api/socks")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Tag(name = "Sock API", description = "API for managing socks inventory")
 public class SocksController {
+    // Как часто сбрасывать буфер при потоковой выдаче, в записях
+    private static final int STREAM_FLUSH_EVERY = 500;
+    private static final MediaType COLUMNS = MediaType.parseMediaType(SockColumns.MEDIA_TYPE);
+
     private final SockService sockService;
+    private final SockAggregateService aggregateService;
+    private final SockMovementService movementService;
+    private final ObjectMapper objectMapper;
+    // null, если группировка записей (socks.coalescing.enabled) выключена
+    private final SockWriteCoalescer writeCoalescer;
+    // null, если чтение из памяти (socks.read-model.enabled) выключено
+    private final InventoryReadModel readModel;
 
     @Autowired
-    public SocksController(SockService sockService) {
+    public SocksController(SockService sockService,
+                           SockAggregateService aggregateService,
+                           SockMovementService movementService,
+                           ObjectMapper objectMapper,
+                           ObjectProvider<SockWriteCoalescer> writeCoalescer,
+                           ObjectProvider<InventoryReadModel> readModel) {
         this.sockService = sockService;
+        this.aggregateService = aggregateService;
+        this.movementService = movementService;
+        this.objectMapper = objectMapper;
+        this.writeCoalescer = writeCoalescer.getIfAvailable();
+        this.readModel = readModel.getIfAvailable();
     }
 
     @Operation(summary = "Register sock income", description = "Register the income of a new batch of socks.")
     @ApiResponse(responseCode = "200", description = "Income registered successfully")
     @PostMapping("/income")
     public ResponseEntity<String> registerIncome(@RequestBody @Validated SockRequest socks) {
-        sockService.registerIncome(socks);
+        if (writeCoalescer != null && !sockService.isHot(socks)) {
+            writeCoalescer.registerIncome(socks);
+        } else {
+            sockService.registerIncome(socks);
+        }
         return ResponseEntity.ok("Income registered successfully");
     }
 
@@ -48,19 +99,122 @@ public class SocksController {
     @ApiResponse(responseCode = "409", description = "Conflict while searching for socks")
     @PostMapping("/outcome")
     public ResponseEntity<String> registerOutcome(@RequestBody @Validated SockRequest socks) {
-        sockService.registerOutcome(socks);
+        if (writeCoalescer != null && !sockService.isHot(socks)) {
+            writeCoalescer.registerOutcome(socks);
+        } else {
+            sockService.registerOutcome(socks);
+        }
         return ResponseEntity.ok("Outcome registered successfully");
     }
 
-    @Operation(summary = "Get socks by filters", description = "Retrieve a list of socks based on optional filters.")
+    @Operation(summary = "Register sock movements", description = "Register many incomes and outcomes in request order. "
+            + "Returns the status of every movement: ok, or insufficientStock for an outcome that was not applied.")
+    @ApiResponse(responseCode = "200", description = "Movements processed")
+    @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content(schema = @Schema(implementation = String.class)))
+    @PostMapping("/movements:batch")
+    public ResponseEntity<SockMovementResult> registerMovements(@RequestBody @NotEmpty List<@Valid SockMovement> movements) {
+        return ResponseEntity.ok(movementService.registerMovements(movements));
+    }
+
+    @Operation(summary = "Get socks by filters", description = "Retrieve a list of socks based on optional filters. "
+            + "The response carries an ETag; send it back in If-None-Match to get 304 while the inventory is unchanged. "
+            + "Besides JSON, the list is available as application/cbor and, with every color sent once and one array "
+            + "per field, as " + SockColumns.MEDIA_TYPE + ".")
     @ApiResponse(responseCode = "200", description = "List of socks fetched successfully", content = @Content(schema = @Schema(implementation = Sock.class)))
-    @GetMapping
-    public ResponseEntity<List<Sock>> getSocks(@RequestParam(required = false) String color,
-                                               @RequestParam(required = false) String operation,
-                                               @RequestParam(required = false) @Min(0) Integer cottonContent,
-                                               @RequestParam(required = false) @Max(100) Integer maxCottonContent,
-                                               @RequestParam(required = false) String sortBy) {
-        return ResponseEntity.ok(sockService.getSocks(color, operation, cottonContent, maxCottonContent, sortBy));
+    @ApiResponse(responseCode = "304", description = "Inventory has not changed since the given ETag")
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, SockColumns.MEDIA_TYPE})
+    public ResponseEntity<?> getSocks(@RequestParam(required = false) String color,
+                                      @RequestParam(required = false) String operation,
+                                      @RequestParam(required = false) @Min(0) Integer cottonContent,
+                                      @RequestParam(required = false) @Max(100) Integer maxCottonContent,
+                                      @RequestParam(required = false) String sortBy,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Представление зависит от Accept, поэтому и ETag тоже
+        VersionedSocks result = readModel != null
+                ? readModel.getSocksIfNoneMatch(color, operation, cottonContent, maxCottonContent, sortBy, accept, ifNoneMatch)
+                : sockService.getSocksIfNoneMatch(color, operation, cottonContent, maxCottonContent, sortBy, accept, ifNoneMatch);
+        if (result.notModified()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(result.etag()).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(result.etag()).varyBy(HttpHeaders.ACCEPT);
+        return prefersColumns(accept)
+                ? response.contentType(COLUMNS).body(SockColumns.of(result.socks()))
+                : response.body(result.socks());
+    }
+
+    @Operation(summary = "Get socks page", description = "Retrieve socks page by page in (color, cottonContent, id) order. "
+            + "Pass nextCursor of the previous page as cursor to get the next one.")
+    @ApiResponse(responseCode = "200", description = "Page of socks fetched successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content(schema = @Schema(implementation = String.class)))
+    @GetMapping("/page")
+    public ResponseEntity<SockPage> getSocksPage(@RequestParam(required = false) String color,
+                                                 @RequestParam(required = false) String operation,
+                                                 @RequestParam(required = false) @Min(0) Integer cottonContent,
+                                                 @RequestParam(required = false) @Max(100) Integer maxCottonContent,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "100") @Min(1) @Max(1000) Integer limit) {
+        SockFilter filter = SockFilter.of(color, operation, cottonContent, maxCottonContent);
+        return ResponseEntity.ok(sockService.getSocksPage(filter, cursor, limit));
+    }
+
+    @Operation(summary = "Stream socks", description = "Stream all socks matching the filters as a JSON array, "
+            + "or as NDJSON when requested with Accept: application/x-ndjson.")
+    @ApiResponse(responseCode = "200", description = "Socks streamed successfully")
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamSocks(@RequestParam(required = false) String color,
+                                                             @RequestParam(required = false) String operation,
+                                                             @RequestParam(required = false) @Min(0) Integer cottonContent,
+                                                             @RequestParam(required = false) @Max(100) Integer maxCottonContent,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        SockFilter filter = SockFilter.of(color, operation, cottonContent, maxCottonContent);
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        ObjectWriter writer = objectMapper.writerFor(Sock.class);
+
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter sequence = ndjson
+                    ? writer.withRootValueSeparator("\n").writeValues(out)
+                    : writer.writeValuesAsArray(out)) {
+                int[] written = {0};
+                sockService.streamSocks(filter, sock -> {
+                    try {
+                        sequence.write(sock);
+                        if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                            sequence.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @Operation(summary = "Get socks totals", description = "Get the total quantity and the number of positions "
+            + "matching the filters, optionally grouped by color or by cotton content ranges of bucketSize.")
+    @ApiResponse(responseCode = "200", description = "Totals fetched successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content(schema = @Schema(implementation = String.class)))
+    @GetMapping("/aggregate")
+    public ResponseEntity<SockAggregate> getAggregate(@RequestParam(required = false) String color,
+                                                      @RequestParam(required = false) String operation,
+                                                      @RequestParam(required = false) @Min(0) Integer cottonContent,
+                                                      @RequestParam(required = false) @Max(100) Integer maxCottonContent,
+                                                      @RequestParam(required = false) String groupBy,
+                                                      @RequestParam(defaultValue = "10") @Min(1) @Max(101) Integer bucketSize) {
+        SockFilter filter = SockFilter.of(color, operation, cottonContent, maxCottonContent);
+        GroupingEnum grouping = groupBy != null ? GroupingEnum.fromString(groupBy) : null;
+        return ResponseEntity.ok(aggregateService.aggregate(filter, grouping, bucketSize));
+    }
+
+    @Operation(summary = "Check socks totals", description = "Compare the maintained totals with the socks table. "
+            + "An empty list means they agree.")
+    @ApiResponse(responseCode = "200", description = "Check completed")
+    @GetMapping("/aggregate/consistency")
+    public ResponseEntity<List<String>> checkAggregateConsistency() {
+        return ResponseEntity.ok(aggregateService.checkConsistency());
     }
 
     @Operation(summary = "Update sock data", description = "Update details of an existing sock in the inventory.")
@@ -73,7 +227,8 @@ public class SocksController {
         return ResponseEntity.ok("Socks updated successfully");
     }
 
-    @Operation(summary = "Upload socks batch", description = "Upload a batch of socks via a file.")
+    @Operation(summary = "Upload socks batch", description = "Upload a batch of socks via an XLSX, CSV or NDJSON file. "
+            + "The format is taken from the file extension, then from the part content type.")
     @ApiResponse(responseCode = "200", description = "Batch uploaded successfully")
     @ApiResponse(responseCode = "413", description = "Payload Too Large", content = @Content(schema = @Schema(implementation = String.class)))
     @PostMapping("/batch")
@@ -81,4 +236,14 @@ public class SocksController {
         sockService.uploadBatch(file);
         return ResponseEntity.ok("Batch uploaded successfully");
     }
+
+    // Колоночный вид отдаём, только если клиент предпочитает его остальным
+    private static boolean prefersColumns(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> mediaTypes = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        return !mediaTypes.isEmpty() && mediaTypes.get(0).equalsTypeAndSubtype(COLUMNS);
+    }
 }
@@ -0,0 +1,57 @@
+package ru.socks.inventory.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import ru.socks.inventory.dto.UploadJob;
+import ru.socks.inventory.service.UploadJobService;
+
+@RestController
+@RequestMapping("/api/socks/batch/jobs")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Tag(name = "Upload Job API", description = "API for uploading large socks batches in the background")
+public class UploadJobController {
+    private final UploadJobService uploadJobService;
+
+    @Autowired
+    public UploadJobController(UploadJobService uploadJobService) {
+        this.uploadJobService = uploadJobService;
+    }
+
+    @Operation(summary = "Start upload job", description = "Upload a batch of socks via a file and apply it in the background. "
+            + "Rows are committed in chunks; poll the returned job for progress.")
+    @ApiResponse(responseCode = "202", description = "Upload job created")
+    @ApiResponse(responseCode = "413", description = "Payload Too Large", content = @Content(schema = @Schema(implementation = String.class)))
+    @ApiResponse(responseCode = "503", description = "Too many jobs waiting, the job is failed and can be resumed later",
+            content = @Content(schema = @Schema(implementation = String.class)))
+    @PostMapping
+    public ResponseEntity<UploadJob> submit(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.accepted().body(uploadJobService.submit(file));
+    }
+
+    @Operation(summary = "Get upload job", description = "Get the status, committed rows and error of an upload job.")
+    @ApiResponse(responseCode = "200", description = "Upload job fetched successfully")
+    @ApiResponse(responseCode = "404", description = "Upload job not found", content = @Content(schema = @Schema(implementation = String.class)))
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadJob> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(uploadJobService.getJob(id));
+    }
+
+    @Operation(summary = "Resume upload job", description = "Continue a failed upload job after its last committed chunk.")
+    @ApiResponse(responseCode = "202", description = "Upload job resumed")
+    @ApiResponse(responseCode = "404", description = "Upload job not found", content = @Content(schema = @Schema(implementation = String.class)))
+    @ApiResponse(responseCode = "409", description = "Upload job is not failed or its file is not on this node",
+            content = @Content(schema = @Schema(implementation = String.class)))
+    @ApiResponse(responseCode = "503", description = "Too many jobs waiting", content = @Content(schema = @Schema(implementation = String.class)))
+    @PostMapping("/{id}:resume")
+    public ResponseEntity<UploadJob> resume(@PathVariable String id) {
+        return ResponseEntity.accepted().body(uploadJobService.resume(id));
+    }
+}
@@ -0,0 +1,46 @@
+package ru.socks.inventory.dto;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+@Getter
+public enum BatchFormatEnum {
+    XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+    CSV("csv", "text/csv"),
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String extension;
+    private final String contentType;
+
+    BatchFormatEnum(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Format of an uploaded file: by file extension, then by content type. Anything
+     * unrecognised is treated as XLSX, the original upload format.
+     */
+    public static BatchFormatEnum detect(String contentType, String fileName) {
+        if (fileName != null) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            for (BatchFormatEnum format : BatchFormatEnum.values()) {
+                if (name.endsWith("." + format.getExtension())) {
+                    return format;
+                }
+            }
+        }
+        if (contentType != null) {
+            for (BatchFormatEnum format : BatchFormatEnum.values()) {
+                if (contentType.toLowerCase(Locale.ROOT).startsWith(format.getContentType())) {
+                    return format;
+                }
+            }
+        }
+        return XLSX;
+    }
+}
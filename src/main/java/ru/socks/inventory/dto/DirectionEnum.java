@@ -0,0 +1,28 @@
+package ru.socks.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Getter;
+
+@Getter
+public enum DirectionEnum {
+    INCOME("income"),
+    OUTCOME("outcome");
+
+    @JsonValue
+    private final String direction;
+
+    DirectionEnum(String direction) {
+        this.direction = direction;
+    }
+
+    @JsonCreator
+    public static DirectionEnum fromString(String direction) {
+        for (DirectionEnum directionEnum : DirectionEnum.values()) {
+            if (directionEnum.getDirection().equalsIgnoreCase(direction)) {
+                return directionEnum;
+            }
+        }
+        throw new IllegalArgumentException("Invalid direction: " + direction);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.socks.inventory.dto;
+
+import lombok.Getter;
+
+@Getter
+public enum GroupingEnum {
+    COLOR("color"),
+    COTTON_CONTENT("cottonContent");
+
+    private final String type;
+
+    GroupingEnum(String type) {
+        this.type = type;
+    }
+
+    public static GroupingEnum fromString(String type) {
+        for (GroupingEnum groupingEnum : GroupingEnum.values()) {
+            if (groupingEnum.getType().equalsIgnoreCase(type)) {
+                return groupingEnum;
+            }
+        }
+        throw new IllegalArgumentException("Invalid grouping type: " + type);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.socks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class HotSock {
+    @NotBlank
+    private String color;
+
+    @NotNull
+    @Min(0)
+    @Max(100)
+    private Integer cottonContent;
+
+    /**
+     * Number of rows the stock is spread over, including the main {@code socks} row.
+     * Defaults to {@code socks.sharding.default-shards} when omitted.
+     */
+    @Min(2)
+    @Max(64)
+    private Integer shards;
+}
@@ -0,0 +1,36 @@
+package ru.socks.inventory.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position after the last entry of a ledger page in (movedAt, id) order.
+ * Sent to clients as an opaque URL-safe token.
+ */
+public record LedgerCursor(Instant movedAt, long id) {
+
+    public static LedgerCursor after(LedgerEntry entry) {
+        return new LedgerCursor(entry.getMovedAt(), entry.getId());
+    }
+
+    /**
+     * {@code null} for the first page.
+     */
+    public static LedgerCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("/", 2);
+            return new LedgerCursor(Instant.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        String value = movedAt + "/" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
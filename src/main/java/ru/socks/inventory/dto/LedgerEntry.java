@@ -0,0 +1,21 @@
+package ru.socks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One change of the stock of a position: positive for incomes, negative for outcomes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+    private long id;
+    private Instant movedAt;
+    private String color;
+    private int cottonContent;
+    private int delta;
+}
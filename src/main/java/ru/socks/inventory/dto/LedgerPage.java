@@ -0,0 +1,19 @@
+package ru.socks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerPage {
+    private List<LedgerEntry> movements;
+
+    /**
+     * Token for the next page, {@code null} on the last page.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package ru.socks.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Getter;
+
+@Getter
+public enum MovementStatusEnum {
+    OK("ok"),
+    INSUFFICIENT_STOCK("insufficientStock");
+
+    @JsonValue
+    private final String status;
+
+    MovementStatusEnum(String status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.socks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Reservation {
+    private UUID id;
+    private String color;
+    private int cottonContent;
+    private int quantity;
+
+    /**
+     * Until this moment the reservation can be committed; after it the stock is returned.
+     */
+    private Instant expiresAt;
+}
@@ -0,0 +1,34 @@
+package ru.socks.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SockAggregate {
+    private long totalQuantity;
+    private long skuCount;
+
+    /**
+     * Per-group totals, present only when grouping was requested.
+     */
+    private List<Group> groups;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Group {
+        /**
+         * Color, or cotton content range such as {@code 50-59}.
+         */
+        private String group;
+        private long totalQuantity;
+        private long skuCount;
+    }
+}
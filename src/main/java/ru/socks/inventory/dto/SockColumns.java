@@ -0,0 +1,51 @@
+package ru.socks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.socks.inventory.model.Sock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar form of a sock list for binary responses: every color once, then one array per
+ * field. Sock {@code i} is {@code ids[i]}, {@code colors[colorIndexes[i]]},
+ * {@code cottonContents[i]}, {@code quantities[i]}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SockColumns {
+
+    public static final String MEDIA_TYPE = "application/vnd.socks.columns+cbor";
+
+    private List<String> colors;
+    private long[] ids;
+    private int[] colorIndexes;
+    private int[] cottonContents;
+    private int[] quantities;
+
+    public static SockColumns of(List<Sock> socks) {
+        int size = socks.size();
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> colors = new ArrayList<>();
+        long[] ids = new long[size];
+        int[] colorIndexes = new int[size];
+        int[] cottonContents = new int[size];
+        int[] quantities = new int[size];
+        for (int i = 0; i < size; i++) {
+            Sock sock = socks.get(i);
+            colorIndexes[i] = indexes.computeIfAbsent(sock.getColor(), color -> {
+                colors.add(color);
+                return colors.size() - 1;
+            });
+            ids[i] = sock.getId();
+            cottonContents[i] = sock.getCottonContent();
+            quantities[i] = sock.getQuantity();
+        }
+        return new SockColumns(colors, ids, colorIndexes, cottonContents, quantities);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.socks.inventory.dto;
+
+import ru.socks.inventory.model.Sock;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last sock of a page in (color, cottonContent, id) order.
+ * Sent to clients as an opaque URL-safe token.
+ */
+public record SockCursor(String color, int cottonContent, long id) {
+
+    /**
+     * Sorts before every row: the empty string is the smallest color.
+     */
+    public static final SockCursor START = new SockCursor("", Integer.MIN_VALUE, Long.MIN_VALUE);
+
+    public static SockCursor after(Sock sock) {
+        return new SockCursor(sock.getColor(), sock.getCottonContent(), sock.getId());
+    }
+
+    public static SockCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return START;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 3);
+            return new SockCursor(parts[2], Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        String value = cottonContent + ":" + id + ":" + color;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
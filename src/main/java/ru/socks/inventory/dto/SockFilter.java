@@ -0,0 +1,29 @@
+package ru.socks.inventory.dto;
+
+/**
+ * The filter of {@code GET /api/socks} reduced to an optional color and an inclusive
+ * cotton content range. Parameters take precedence the same way as in
+ * {@code SockService.getSocks}: operation first, then color, then the between range.
+ */
+public record SockFilter(String color, int minCottonContent, int maxCottonContent) {
+
+    public static final int MIN_COTTON_CONTENT = 0;
+    public static final int MAX_COTTON_CONTENT = 100;
+
+    public static SockFilter of(String color, String operation, Integer cottonContent, Integer maxCottonContent) {
+        if (operation != null && cottonContent != null) {
+            int bound = Math.min(cottonContent, MAX_COTTON_CONTENT + 1);
+            return switch (OperatorEnum.fromString(operation)) {
+                case MORE_THAN -> new SockFilter(null, bound + 1, MAX_COTTON_CONTENT);
+                case LESS_THAN -> new SockFilter(null, MIN_COTTON_CONTENT, bound - 1);
+                case EQUAL -> new SockFilter(null, bound, bound);
+            };
+        } else if (color != null) {
+            return new SockFilter(color, MIN_COTTON_CONTENT, MAX_COTTON_CONTENT);
+        } else if (cottonContent != null && maxCottonContent != null) {
+            return new SockFilter(null, cottonContent, maxCottonContent);
+        } else {
+            return new SockFilter(null, MIN_COTTON_CONTENT, MAX_COTTON_CONTENT);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.socks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.*;
+
+/**
+ * One item of {@code POST /api/socks/movements:batch}: a {@link SockRequest} with its direction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class SockMovement {
+    @NotNull
+    private DirectionEnum direction;
+
+    @NotBlank
+    private String color;
+
+    @NotNull
+    @Min(0)
+    @Max(100)
+    private Integer cottonContent;
+
+    @NotNull
+    @Positive
+    private Integer quantity;
+}
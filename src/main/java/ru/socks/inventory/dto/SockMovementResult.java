@@ -0,0 +1,20 @@
+package ru.socks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SockMovementResult {
+    private int accepted;
+    private int rejected;
+
+    /**
+     * Status of every movement, in the order of the request.
+     */
+    private List<MovementStatusEnum> statuses;
+}
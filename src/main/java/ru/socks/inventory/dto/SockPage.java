@@ -0,0 +1,20 @@
+package ru.socks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.socks.inventory.model.Sock;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SockPage {
+    private List<Sock> items;
+
+    /**
+     * Token for the next page, {@code null} on the last page.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package ru.socks.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock of a position at some moment, rebuilt from the ledger.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockPosition {
+    private String color;
+    private int cottonContent;
+    private long quantity;
+}
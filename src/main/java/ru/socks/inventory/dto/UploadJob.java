@@ -0,0 +1,35 @@
+package ru.socks.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UploadJob {
+    private String id;
+    private UploadJobStatusEnum status;
+    private String fileName;
+    private long fileBytes;
+
+    /**
+     * Data rows already applied to the stock. A resumed job continues after this row.
+     */
+    private long rowsCommitted;
+    private int chunksCommitted;
+    private String error;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    @JsonIgnore
+    private String filePath;
+
+    @JsonIgnore
+    private int attempt;
+}
@@ -0,0 +1,19 @@
+package ru.socks.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Getter;
+
+@Getter
+public enum UploadJobStatusEnum {
+    QUEUED("queued"),
+    RUNNING("running"),
+    COMPLETED("completed"),
+    FAILED("failed");
+
+    @JsonValue
+    private final String status;
+
+    UploadJobStatusEnum(String status) {
+        this.status = status;
+    }
+}
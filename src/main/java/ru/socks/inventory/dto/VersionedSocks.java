@@ -0,0 +1,16 @@
+package ru.socks.inventory.dto;
+
+import ru.socks.inventory.model.Sock;
+
+import java.util.List;
+
+/**
+ * Result of a conditional read: {@code socks} is {@code null} when the client's copy,
+ * identified by {@code If-None-Match}, is still current.
+ */
+public record VersionedSocks(String etag, List<Sock> socks) {
+
+    public boolean notModified() {
+        return socks == null;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.socks.inventory.event;
+
+import ru.socks.inventory.model.SockKey;
+
+/**
+ * Published inside a write transaction, or after the auto-committed statement of the reactive
+ * profile, when a sock was overwritten by id.
+ * The color and cotton content may differ from {@code previousKey}; then no position is left
+ * under {@code previousKey}.
+ */
+public record SockUpdatedEvent(long id, SockKey previousKey, SockKey key, int quantity) {
+}
@@ -0,0 +1,20 @@
+package ru.socks.inventory.event;
+
+import ru.socks.inventory.model.SockKey;
+
+import java.util.List;
+
+/**
+ * Published inside a write transaction, or after the auto-committed statement of the reactive
+ * profile, when stock quantities change by a known amount. Listeners that keep derived state
+ * should react after commit.
+ */
+public record StockChangedEvent(List<StockDelta> deltas) {
+
+    public static StockChangedEvent of(String color, int cottonContent, int delta) {
+        return new StockChangedEvent(List.of(new StockDelta(new SockKey(color, cottonContent), delta)));
+    }
+
+    public record StockDelta(SockKey key, int delta) {
+    }
+}
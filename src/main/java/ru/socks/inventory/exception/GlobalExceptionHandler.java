@@ -50,6 +50,31 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body("Conflict while searching for socks: " + ex.getMessage());
     }
 
+    @ExceptionHandler(WriteNotConfirmedException.class)
+    public ResponseEntity<String> handleWriteNotConfirmed(WriteNotConfirmedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Write not confirmed: " + ex.getMessage());
+    }
+
+    @ExceptionHandler(UploadJobNotFoundException.class)
+    public ResponseEntity<String> handleUploadJobNotFound(UploadJobNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload job not found: " + ex.getMessage());
+    }
+
+    @ExceptionHandler(UploadJobConflictException.class)
+    public ResponseEntity<String> handleUploadJobConflict(UploadJobConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Upload job conflict: " + ex.getMessage());
+    }
+
+    @ExceptionHandler(UploadQueueFullException.class)
+    public ResponseEntity<String> handleUploadQueueFull(UploadQueueFullException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Upload queue is full: " + ex.getMessage());
+    }
+
+    @ExceptionHandler(ReservationNotFoundException.class)
+    public ResponseEntity<String> handleReservationNotFound(ReservationNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Reservation not found or expired: " + ex.getMessage());
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<String> handleFileSizeExceeded(MaxUploadSizeExceededException ex) {
         return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("File size exceeds limit: " + ex.getMessage());
@@ -0,0 +1,7 @@
+package ru.socks.inventory.exception;
+
+public class ReservationNotFoundException extends RuntimeException {
+    public ReservationNotFoundException(String id) {
+        super(id);
+    }
+}
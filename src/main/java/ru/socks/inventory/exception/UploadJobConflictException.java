@@ -0,0 +1,7 @@
+package ru.socks.inventory.exception;
+
+public class UploadJobConflictException extends RuntimeException {
+    public UploadJobConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.socks.inventory.exception;
+
+public class UploadJobNotFoundException extends RuntimeException {
+    public UploadJobNotFoundException(String id) {
+        super(id);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.socks.inventory.exception;
+
+public class UploadQueueFullException extends RuntimeException {
+    public UploadQueueFullException(String message) {
+        super(message);
+    }
+}
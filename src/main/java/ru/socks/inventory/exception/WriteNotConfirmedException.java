@@ -0,0 +1,7 @@
+package ru.socks.inventory.exception;
+
+public class WriteNotConfirmedException extends RuntimeException {
+    public WriteNotConfirmedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.socks.inventory.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/queries}: statement timings per repository method, recent slow queries with
+ * their plans and the most expensive Hibernate queries from {@code generate_statistics}.
+ * {@code DELETE} clears the slow queries and the Hibernate statistics.
+ */
+@Endpoint(id = "queries")
+public class QueriesEndpoint {
+
+    private static final int TOP_HIBERNATE_QUERIES = 20;
+
+    private final QueryMetrics queryMetrics;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public QueriesEndpoint(QueryMetrics queryMetrics, EntityManagerFactory entityManagerFactory) {
+        this.queryMetrics = queryMetrics;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @ReadOperation
+    public Map<String, Object> queries() {
+        Map<String, Object> queries = new LinkedHashMap<>();
+        queries.put("statements", queryMetrics.statements());
+        queries.put("slowQueries", queryMetrics.slowQueries());
+        queries.put("hibernateQueries", hibernateQueries());
+        return queries;
+    }
+
+    @DeleteOperation
+    public void clear() {
+        queryMetrics.clearSlowQueries();
+        statistics().clear();
+    }
+
+    private List<Map<String, Object>> hibernateQueries() {
+        Statistics statistics = statistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return List.of();
+        }
+        List<Map<String, Object>> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics stats = statistics.getQueryStatistics(query);
+            queries.add(Map.of(
+                    "query", query,
+                    "count", stats.getExecutionCount(),
+                    "rows", stats.getExecutionRowCount(),
+                    "totalMs", stats.getExecutionTotalTime(),
+                    "meanMs", stats.getExecutionAvgTime(),
+                    "maxMs", stats.getExecutionMaxTime()));
+        }
+        queries.sort(Comparator.comparing(q -> -(Long) q.get("totalMs")));
+        return queries.subList(0, Math.min(TOP_HIBERNATE_QUERIES, queries.size()));
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
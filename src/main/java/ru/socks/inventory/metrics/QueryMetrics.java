@@ -0,0 +1,275 @@
+package ru.socks.inventory.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Times every JDBC statement of the application and attributes it to the repository method
+ * that issued it ({@link RepositoryMethodInterceptor}); statements outside repositories go
+ * under {@value #NONE}. Timings are published as {@code socks.db.statements}.
+ * <p>
+ * A sampled share of statements slower than {@code socks.queries.slow-ms} is logged with its
+ * bind parameters and kept in a bounded list of recent slow queries. Their plans are captured
+ * by {@code EXPLAIN} (without {@code ANALYZE}, so nothing is executed twice) on a separate
+ * connection in the background, so the slow request is not delayed further.
+ */
+public class QueryMetrics implements QueryExecutionListener {
+    private static final Logger log = LogManager.getLogger(QueryMetrics.class);
+
+    public static final String NONE = "none";
+
+    private static final String STARTED = "socks.started";
+    private static final int MAX_PARAMETER_LENGTH = 200;
+    // Комментарии Hibernate (use_sql_comments) перед самим запросом
+    private static final Pattern EXPLAINABLE = Pattern.compile(
+            "\\s*(/\\*.*?\\*/\\s*)*(select|with|insert|update|delete)\\b", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final ThreadLocal<List<String>> CAPTURE = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> EXPLAINING = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+    private final ObjectProvider<DataSource> dataSource;
+    private final long slowNanos;
+    private final double slowSampleRate;
+    private final boolean explain;
+    private final int slowLogSize;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private final ThreadPoolExecutor explainer;
+
+    public QueryMetrics(MeterRegistry registry,
+                        ObjectProvider<DataSource> dataSource,
+                        long slowMs,
+                        double slowSampleRate,
+                        boolean explain,
+                        int slowLogSize) {
+        this.registry = registry;
+        this.dataSource = dataSource;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMs);
+        this.slowSampleRate = slowSampleRate;
+        this.explain = explain;
+        this.slowLogSize = slowLogSize;
+        // Очередь ограничена: при лавине медленных запросов лишние попадают в лог без плана
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, slowLogSize)), r -> {
+            Thread thread = new Thread(r, "sock-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        explainer.shutdownNow();
+    }
+
+    /**
+     * Runs {@code action} and returns the SQL of every statement the current thread executed
+     * during it, one entry per execution (a JDBC batch counts once).
+     */
+    public static List<String> capture(Runnable action) {
+        List<String> outer = CAPTURE.get();
+        List<String> statements = new ArrayList<>();
+        CAPTURE.set(statements);
+        try {
+            action.run();
+        } finally {
+            if (outer == null) {
+                CAPTURE.remove();
+            } else {
+                CAPTURE.set(outer);
+                outer.addAll(statements);
+            }
+        }
+        return statements;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(STARTED, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (EXPLAINING.get() != null) {
+            return;
+        }
+        Long started = execInfo.getCustomValue(STARTED, Long.class);
+        long nanos = started != null
+                ? System.nanoTime() - started
+                : TimeUnit.MILLISECONDS.toNanos(execInfo.getElapsedTime());
+        String[] method = RepositoryMethodInterceptor.current();
+        String repository = method != null ? method[0] : NONE;
+        String methodName = method != null ? method[1] : NONE;
+        timer(repository, methodName).record(nanos, TimeUnit.NANOSECONDS);
+
+        List<String> captured = CAPTURE.get();
+        if (captured != null) {
+            queryInfoList.forEach(query -> captured.add(query.getQuery()));
+        }
+        if (nanos >= slowNanos && execInfo.isSuccess() && !queryInfoList.isEmpty() && sampled()) {
+            slow(repository, methodName, nanos, execInfo, queryInfoList.get(0));
+        }
+    }
+
+    /**
+     * Timings per repository method, the most expensive in total first. {@code maxMs} covers
+     * the recent window of the timer, not the whole uptime.
+     */
+    public List<Map<String, Object>> statements() {
+        List<Map<String, Object>> statements = new ArrayList<>();
+        timers.values().forEach(timer -> statements.add(Map.of(
+                "repository", timer.getId().getTag("repository"),
+                "method", timer.getId().getTag("method"),
+                "count", timer.count(),
+                "totalMs", timer.totalTime(TimeUnit.MILLISECONDS),
+                "meanMs", timer.mean(TimeUnit.MILLISECONDS),
+                "maxMs", timer.max(TimeUnit.MILLISECONDS))));
+        statements.sort(Comparator.comparing(s -> -(Double) s.get("totalMs")));
+        return statements;
+    }
+
+    /**
+     * Recent slow queries, the newest first.
+     */
+    public synchronized List<SlowQuery> slowQueries() {
+        return new ArrayList<>(slowQueries);
+    }
+
+    public synchronized void clearSlowQueries() {
+        slowQueries.clear();
+    }
+
+    private Timer timer(String repository, String method) {
+        return timers.computeIfAbsent(repository + '.' + method, key -> Timer.builder("socks.db.statements")
+                .description("JDBC statements by the repository method that issued them")
+                .tag("repository", repository)
+                .tag("method", method)
+                .register(registry));
+    }
+
+    private boolean sampled() {
+        return slowSampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < slowSampleRate;
+    }
+
+    private void slow(String repository, String method, long nanos, ExecutionInfo execInfo, QueryInfo query) {
+        List<ParameterSetOperation> parameters = query.getParametersList().isEmpty()
+                ? List.of()
+                : new ArrayList<>(query.getParametersList().get(0));
+        parameters.sort(Comparator.comparingInt(p -> p.getArgs()[0] instanceof Integer index ? index : Integer.MAX_VALUE));
+        SlowQuery slowQuery = new SlowQuery(Instant.now(), repository, method, nanos / 1e6,
+                query.getQuery(), formatted(parameters), Math.max(1, execInfo.getBatchSize()), null);
+        if (!explain || execInfo.isBatch() || !EXPLAINABLE.matcher(query.getQuery()).lookingAt()) {
+            record(slowQuery);
+            return;
+        }
+        try {
+            explainer.execute(() -> record(slowQuery.withPlan(explain(query.getQuery(), parameters))));
+        } catch (RejectedExecutionException e) {
+            record(slowQuery);
+        }
+    }
+
+    private void record(SlowQuery slowQuery) {
+        log.warn("Slow query {} ms in {}.{}: {} {}{}", String.format("%.1f", slowQuery.elapsedMs()),
+                slowQuery.repository(), slowQuery.method(), slowQuery.sql(), slowQuery.parameters(),
+                slowQuery.plan() != null ? "\n" + slowQuery.plan() : "");
+        synchronized (this) {
+            if (slowQueries.size() >= slowLogSize) {
+                slowQueries.removeLast();
+            }
+            slowQueries.addFirst(slowQuery);
+        }
+    }
+
+    private String explain(String sql, List<ParameterSetOperation> parameters) {
+        DataSource target = dataSource.getIfAvailable();
+        if (target == null) {
+            return null;
+        }
+        EXPLAINING.set(Boolean.TRUE);
+        try (Connection connection = target.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (ParameterSetOperation parameter : parameters) {
+                Object[] args = parameter.getArgs();
+                if (!(args[0] instanceof Integer index)) {
+                    return "Named parameters are not explained";
+                }
+                if ("setNull".equals(parameter.getMethod().getName())) {
+                    statement.setNull(index, (Integer) args[1]);
+                } else {
+                    statement.setObject(index, args[1]);
+                }
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(plan.length() > 0 ? "\n" : "").append(rs.getString(1));
+                }
+            }
+            return plan.toString();
+        } catch (SQLException | RuntimeException e) {
+            return "EXPLAIN failed: " + e.getMessage();
+        } finally {
+            EXPLAINING.remove();
+        }
+    }
+
+    private static List<String> formatted(List<ParameterSetOperation> parameters) {
+        List<String> values = new ArrayList<>(parameters.size());
+        for (ParameterSetOperation parameter : parameters) {
+            Object[] args = parameter.getArgs();
+            String value = "setNull".equals(parameter.getMethod().getName()) || args.length < 2
+                    ? "null"
+                    : String.valueOf(args[1]);
+            values.add(value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "..." : value);
+        }
+        return values;
+    }
+
+    /**
+     * A statement slower than the threshold. {@code parameters} are the bind values of the
+     * first set of a batch; {@code plan} is {@code null} if it was not captured.
+     */
+    public record SlowQuery(Instant at,
+                            String repository,
+                            String method,
+                            double elapsedMs,
+                            String sql,
+                            List<String> parameters,
+                            int batchSize,
+                            String plan) {
+
+        SlowQuery withPlan(String plan) {
+            return new SlowQuery(at, repository, method, elapsedMs, sql, parameters, batchSize, plan);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.socks.inventory.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Marks the current thread with the repository method being called, so the statements it
+ * executes are attributed to that method by {@link QueryMetrics}. Statements of nested calls,
+ * such as a custom fragment or the color dictionary under a Spring Data method, are
+ * attributed to the outermost repository method.
+ */
+public class RepositoryMethodInterceptor implements MethodInterceptor {
+
+    private static final ThreadLocal<String[]> CURRENT = new ThreadLocal<>();
+
+    // null - имя берётся из класса бина
+    private final String repository;
+
+    public RepositoryMethodInterceptor(String repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Repository simple name and method name of the current call, or {@code null} outside
+     * repository calls.
+     */
+    static String[] current() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (CURRENT.get() != null) {
+            return invocation.proceed();
+        }
+        String name = repository != null
+                ? repository
+                : ClassUtils.getUserClass(invocation.getThis()).getSimpleName();
+        CURRENT.set(new String[]{name, invocation.getMethod().getName()});
+        try {
+            return invocation.proceed();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ru.socks.inventory.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Business meters of the inventory. Request timers, repository timers, the Hikari pool and
+ * Hibernate statistics are bound by Spring Boot; this class adds what only the services know.
+ */
+@Component
+public class SockMetrics {
+
+    public static final String DIRECT = "direct";
+    public static final String COALESCED = "coalesced";
+    public static final String BATCH = "batch";
+
+    public static final String RESERVED = "reserved";
+    public static final String COMMITTED = "committed";
+    public static final String RELEASED = "released";
+    public static final String EXPIRED = "expired";
+
+    private final MeterRegistry registry;
+    private final Counter updateConflicts;
+    private final Counter uploadFailures;
+    private final Counter uploadRows;
+    private final Counter uploadBytes;
+    private final Timer uploadDuration;
+    private final DistributionSummary uploadRowsPerSecond;
+    private final DistributionSummary uploadBytesPerSecond;
+
+    public SockMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.updateConflicts = Counter.builder("socks.update.conflicts")
+                .description("Updates rejected because the sock was not found or the color/cotton pair is taken")
+                .register(registry);
+        this.uploadFailures = Counter.builder("socks.upload.failures")
+                .description("Batch uploads that failed and were rolled back")
+                .register(registry);
+        this.uploadRows = Counter.builder("socks.upload.rows")
+                .description("Rows read from successful batch uploads")
+                .register(registry);
+        this.uploadBytes = Counter.builder("socks.upload.bytes")
+                .description("Bytes of successful batch uploads")
+                .baseUnit("bytes")
+                .register(registry);
+        this.uploadDuration = Timer.builder("socks.upload.duration")
+                .description("Duration of successful batch uploads")
+                .register(registry);
+        this.uploadRowsPerSecond = DistributionSummary.builder("socks.upload.rows.rate")
+                .description("Rows per second of each successful batch upload")
+                .register(registry);
+        this.uploadBytesPerSecond = DistributionSummary.builder("socks.upload.bytes.rate")
+                .description("Bytes per second of each successful batch upload")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Outcomes rejected for lack of stock; {@code path} is {@link #DIRECT}, {@link #COALESCED} or {@link #BATCH}.
+     */
+    public void outcomeConflicts(String path, int count) {
+        if (count > 0) {
+            registry.counter("socks.outcome.conflicts", "path", path).increment(count);
+        }
+    }
+
+    /**
+     * Reservations that reached {@code outcome}: {@link #RESERVED}, {@link #COMMITTED},
+     * {@link #RELEASED} or {@link #EXPIRED}.
+     */
+    public void reservations(String outcome, int count) {
+        if (count > 0) {
+            registry.counter("socks.reservations", "outcome", outcome).increment(count);
+        }
+    }
+
+    /**
+     * Reservations currently held by this node.
+     */
+    public void reservationsHeld(Map<?, ?> holds) {
+        registry.gaugeMapSize("socks.reservations.held", Tags.empty(), holds);
+    }
+
+    /**
+     * Open {@code GET /api/socks/changes} streams of this node.
+     */
+    public void changeSubscribers(Collection<?> subscribers) {
+        registry.gaugeCollectionSize("socks.changes.subscribers", Tags.empty(), subscribers);
+    }
+
+    /**
+     * Positions named by change notifications and the events they were coalesced into.
+     */
+    public void changeEvents(int positions, int events) {
+        registry.counter("socks.changes.positions").increment(positions);
+        registry.counter("socks.changes.events").increment(events);
+    }
+
+    public void updateConflict() {
+        updateConflicts.increment();
+    }
+
+    public void uploadFailed() {
+        uploadFailures.increment();
+    }
+
+    public void uploadCompleted(long rows, long bytes, long durationNanos) {
+        uploadRows.increment(rows);
+        uploadBytes.increment(bytes);
+        uploadDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+        double seconds = Math.max(durationNanos, 1) / 1e9;
+        uploadRowsPerSecond.record(rows / seconds);
+        uploadBytesPerSecond.record(bytes / seconds);
+    }
+}
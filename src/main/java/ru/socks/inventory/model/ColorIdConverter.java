@@ -0,0 +1,32 @@
+package ru.socks.inventory.model;
+
+import org.springframework.stereotype.Component;
+import ru.socks.inventory.repository.ColorDictionary;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores {@link Sock#getColor()} as its {@link ColorDictionary} id. Hibernate obtains the
+ * converter from the Spring context, so the dictionary is injected.
+ */
+@Component
+@Converter
+public class ColorIdConverter implements AttributeConverter<String, Integer> {
+
+    private final ColorDictionary colors;
+
+    public ColorIdConverter(ColorDictionary colors) {
+        this.colors = colors;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String color) {
+        return color != null ? colors.idOf(color) : null;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer colorId) {
+        return colorId != null ? colors.nameOf(colorId) : null;
+    }
+}
@@ -3,6 +3,7 @@ package ru.socks.inventory.model;
 import lombok.*;
 import lombok.experimental.Accessors;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -17,10 +18,15 @@ import java.util.UUID;
 public class Sock {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sock_seq")
-    @SequenceGenerator(name = "sock_seq", sequenceName = "sock_sequence", allocationSize = 1)
+    @GenericGenerator(name = "sock_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "sock_sequence"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
-    @Column(nullable = false)
+    @Convert(converter = ColorIdConverter.class)
+    @Column(name = "color_id", nullable = false)
     private String color;
 
     @Column(nullable = false)
@@ -0,0 +1,11 @@
+package ru.socks.inventory.model;
+
+/**
+ * Identifies a stock position: socks are unique by color and cotton content.
+ */
+public record SockKey(String color, int cottonContent) {
+
+    public static SockKey of(Sock sock) {
+        return new SockKey(sock.getColor(), sock.getCottonContent());
+    }
+}
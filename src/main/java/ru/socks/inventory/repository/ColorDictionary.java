@@ -0,0 +1,221 @@
+package ru.socks.inventory.repository;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory copy of the {@code sock_colors} dictionary: color names to compact ids and back.
+ * <p>
+ * Colors are matched ignoring case and surrounding/repeated whitespace; the first spelling
+ * stored is the one returned by the API. The dictionary is loaded at startup, so known colors
+ * resolve without touching the database. A missing color is read or inserted on the
+ * connection of the caller's transaction, never on a second pool connection; what a
+ * transaction reads or adds is shared only after it commits, so a rolled back color is never
+ * cached. Entries are never removed, so a cached id or name is never stale.
+ */
+@Component
+public class ColorDictionary implements SmartInitializingSingleton {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final String SELECT_SQL = "SELECT id, name FROM sock_colors";
+
+    // DO NOTHING, а не DO UPDATE: существующий цвет не блокируется до конца транзакции
+    private static final String INSERT_SQL = """
+                INSERT INTO sock_colors (id, name, name_key)
+                VALUES (nextval('sock_color_sequence'), ?, ?)
+                ON CONFLICT (name_key) DO NOTHING
+                RETURNING id, name
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Integer> idsByKey = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public ColorDictionary(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensureLoaded();
+    }
+
+    /**
+     * Trims the color and collapses inner whitespace.
+     */
+    public static String normalize(String color) {
+        return WHITESPACE.matcher(color.strip()).replaceAll(" ");
+    }
+
+    /**
+     * Id of the color, adding it to the dictionary if it is new. Use on write paths, in the
+     * writing transaction.
+     */
+    public int idOf(String color) {
+        String key = key(color);
+        Integer id = knownId(key);
+        if (id != null) {
+            return id;
+        }
+        return query(INSERT_SQL, normalize(color), key)
+                .or(() -> query(SELECT_SQL + " WHERE name_key = ?", key))
+                .orElseThrow(() -> new IllegalStateException("Color was not stored: " + color));
+    }
+
+    /**
+     * Id of the color if it is known. Use on read paths, so filters never grow the dictionary.
+     */
+    public Optional<Integer> findId(String color) {
+        String key = key(color);
+        Integer id = knownId(key);
+        if (id != null) {
+            return Optional.of(id);
+        }
+        return query(SELECT_SQL + " WHERE name_key = ?", key);
+    }
+
+    /**
+     * Id of the color if it is already in memory, including colors read or added by the current
+     * transaction, otherwise {@code null}. Never touches the database, so it is safe on
+     * non-blocking threads and in commit callbacks.
+     */
+    public Integer cachedId(String color) {
+        return memoryId(key(color));
+    }
+
+    public String nameOf(int id) {
+        String name = knownName(id);
+        if (name == null) {
+            // Цвет добавлен другим узлом
+            query(SELECT_SQL + " WHERE id = ?", id);
+            name = knownName(id);
+            if (name == null) {
+                throw new IllegalStateException("Unknown color id: " + id);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Stored spelling of the color if it is known.
+     */
+    public Optional<String> findName(String color) {
+        return findId(color).map(this::nameOf);
+    }
+
+    private static String key(String color) {
+        return normalize(color).toLowerCase(Locale.ROOT);
+    }
+
+    private Integer knownId(String key) {
+        ensureLoaded();
+        return memoryId(key);
+    }
+
+    private Integer memoryId(String key) {
+        Integer id = idsByKey.get(key);
+        if (id == null) {
+            Pending pending = pending(false);
+            if (pending != null) {
+                id = pending.idsByKey.get(key);
+            }
+        }
+        return id;
+    }
+
+    private String knownName(int id) {
+        ensureLoaded();
+        String name = namesById.get(id);
+        if (name == null) {
+            Pending pending = pending(false);
+            if (pending != null) {
+                name = pending.namesById.get(id);
+            }
+        }
+        return name;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            loadAll();
+        }
+    }
+
+    private synchronized void loadAll() {
+        if (loaded) {
+            return;
+        }
+        // Только закоммиченные строки: загрузка идёт раньше любой вставки этой транзакции
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            cache(rs.getInt("id"), rs.getString("name"));
+        });
+        loaded = true;
+    }
+
+    private Optional<Integer> query(String sql, Object... parameters) {
+        List<Integer> ids = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            int id = rs.getInt("id");
+            put(id, rs.getString("name"));
+            return id;
+        }, parameters);
+        return ids.stream().findFirst();
+    }
+
+    private void put(int id, String name) {
+        Pending pending = pending(true);
+        if (pending != null) {
+            pending.namesById.put(id, name);
+            pending.idsByKey.put(key(name), id);
+        } else {
+            cache(id, name);
+        }
+    }
+
+    private void cache(int id, String name) {
+        namesById.put(id, name);
+        idsByKey.put(key(name), id);
+    }
+
+    // Найденное и добавленное в транзакции, до её коммита; null вне транзакции
+    private Pending pending(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null && create) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private final class Pending implements TransactionSynchronization {
+        private final Map<String, Integer> idsByKey = new HashMap<>();
+        private final Map<Integer, String> namesById = new HashMap<>();
+
+        @Override
+        public void afterCommit() {
+            namesById.forEach(ColorDictionary.this::cache);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ColorDictionary.this);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.socks.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Inventory version kept in {@code inventory_version_slots}: triggers on {@code socks} and
+ * {@code sock_stock_shards} increment the row of the current connection, the version is the
+ * sum of all rows. It grows with every committed write, whichever node made it.
+ */
+@Repository
+public class InventoryVersionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventoryVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long currentVersion() {
+        Long version = jdbcTemplate.queryForObject(
+                "SELECT coalesce(sum(version), 0) FROM inventory_version_slots", Long.class);
+        return version != null ? version : 0;
+    }
+
+    /**
+     * Folds the rows of closed connections into row 0 in one statement, so readers never see
+     * the sum change.
+     *
+     * @return number of rows folded
+     */
+    public int compact() {
+        Integer folded = jdbcTemplate.queryForObject("""
+                    WITH folded AS (
+                        DELETE FROM inventory_version_slots s
+                        WHERE s.backend_pid <> 0
+                          AND NOT EXISTS (SELECT 1 FROM pg_stat_activity a WHERE a.pid = s.backend_pid)
+                        RETURNING version
+                    ), base AS (
+                        UPDATE inventory_version_slots
+                        SET version = version + (SELECT coalesce(sum(version), 0) FROM folded)
+                        WHERE backend_pid = 0
+                    )
+                    SELECT count(*) FROM folded
+                """, Integer.class);
+        return folded != null ? folded : 0;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.socks.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.socks.inventory.dto.Reservation;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Durable copy of the stock reservations. A reservation is removed exactly once: by commit,
+ * release or expiry, whichever deletes the row first; only that caller acts on it.
+ */
+@Repository
+public class ReservationRepository {
+
+    private static final String COLUMNS = "id, color_id, cotton_content, quantity, expires_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RowMapper<Reservation> reservationRowMapper;
+
+    public ReservationRepository(JdbcTemplate jdbcTemplate, ColorDictionary colors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reservationRowMapper = (rs, rowNum) -> new Reservation(
+                rs.getObject("id", UUID.class),
+                colors.nameOf(rs.getInt("color_id")),
+                rs.getInt("cotton_content"),
+                rs.getInt("quantity"),
+                rs.getTimestamp("expires_at").toInstant());
+    }
+
+    public void insert(UUID id, int colorId, int cottonContent, int quantity, Instant expiresAt) {
+        jdbcTemplate.update("""
+                    INSERT INTO sock_reservations (id, color_id, cotton_content, quantity, expires_at)
+                    VALUES (?, ?, ?, ?, ?)
+                """, id, colorId, cottonContent, quantity, Timestamp.from(expiresAt));
+    }
+
+    public List<Reservation> findAll() {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM sock_reservations", reservationRowMapper);
+    }
+
+    /**
+     * Removes the reservation; empty if it was already committed, released or expired.
+     */
+    public Optional<Reservation> delete(UUID id) {
+        return jdbcTemplate.query("DELETE FROM sock_reservations WHERE id = ? RETURNING " + COLUMNS,
+                reservationRowMapper, id).stream().findFirst();
+    }
+
+    /**
+     * Removes those of the given reservations that expired by {@code now}.
+     */
+    public List<Reservation> deleteExpired(Collection<UUID> ids, Instant now) {
+        return jdbcTemplate.query("""
+                    DELETE FROM sock_reservations
+                    WHERE id = ANY(?) AND expires_at <= ?
+                    RETURNING id, color_id, cotton_content, quantity, expires_at
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+            ps.setTimestamp(2, Timestamp.from(now));
+        }, reservationRowMapper);
+    }
+
+    /**
+     * Removes up to {@code limit} reservations that expired by {@code now}, whichever node
+     * made them. Rows locked by a concurrent commit or release are skipped.
+     */
+    public List<Reservation> deleteAnyExpired(Instant now, int limit) {
+        return jdbcTemplate.query("""
+                    DELETE FROM sock_reservations
+                    WHERE id IN (
+                        SELECT id FROM sock_reservations
+                        WHERE expires_at <= ?
+                        ORDER BY expires_at
+                        LIMIT ?
+                        FOR UPDATE SKIP LOCKED
+                    )
+                    RETURNING id, color_id, cotton_content, quantity, expires_at
+                """, reservationRowMapper, Timestamp.from(now), limit);
+    }
+}
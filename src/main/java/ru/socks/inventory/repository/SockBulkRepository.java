@@ -0,0 +1,67 @@
+package ru.socks.inventory.repository;
+
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface SockBulkRepository {
+
+    /**
+     * Adds the quantity to the stock of the pair, inserting the pair if it is missing.
+     */
+    void incrementOrInsertSock(String color, int cottonContent, int quantity);
+
+    /**
+     * Subtracts the quantity if the stock of the pair covers it.
+     *
+     * @return 1 if the stock was decreased, 0 if there was not enough stock or no such pair
+     */
+    int decreaseStock(String color, int cottonContent, int quantity);
+
+    /**
+     * Replaces the pair and quantity of the sock unless another sock already has that pair.
+     *
+     * @return the pair the sock had before, empty if it does not exist or the new pair is taken
+     */
+    Optional<SockKey> updateSockWithUniqueCheck(Long id, String color, int cottonContent, int quantity);
+
+    /**
+     * Adds the quantities of the given socks to the stock, inserting missing color/cotton pairs.
+     * Spellings of the same color are summed into one pair.
+     */
+    void mergeQuantities(Collection<Sock> socks);
+
+    /**
+     * Returns the existing stock rows of the given pairs.
+     */
+    List<Sock> findByKeys(Collection<SockKey> keys);
+
+    /**
+     * Locks the existing stock rows of the given pairs until the end of the transaction.
+     * Rows are locked in color id/cotton order to keep concurrent flushes deadlock-free.
+     */
+    List<Sock> lockForUpdate(Collection<SockKey> keys);
+
+    /**
+     * Subtracts the quantities of the given socks. Availability must have been checked
+     * under {@link #lockForUpdate} in the same transaction.
+     */
+    void decreaseQuantities(Collection<Sock> socks);
+
+    /**
+     * Adds the quantity of every sock with a JDBC batch of the upsert of
+     * {@link #incrementOrInsertSock}. Spellings of the same color are summed into one pair.
+     */
+    void incrementEach(List<Sock> socks);
+
+    /**
+     * Subtracts the quantity of every sock in list order with a JDBC batch of the conditional
+     * update of {@link #decreaseStock}.
+     *
+     * @return updated row count per sock; 0 means there was not enough stock
+     */
+    int[] decreaseEach(List<Sock> socks);
+}
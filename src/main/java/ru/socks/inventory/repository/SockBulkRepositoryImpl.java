@@ -0,0 +1,276 @@
+package ru.socks.inventory.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Set-based statements over many color/cotton pairs: every chunk is sent as arrays and
+ * applied by a single statement over {@code unnest(...)}. The merge follows the same rule
+ * as {@link SockRepository#incrementOrInsertSock}.
+ * <p>
+ * Where every pair needs its own result, the single-row statements are sent as JDBC batches
+ * of {@code hibernate.jdbc.batch_size}; the driver rewrites batched inserts into multi-row
+ * inserts ({@code reWriteBatchedInserts}).
+ * <p>
+ * Colors are sent as {@link ColorDictionary} ids; writes add new colors to the dictionary,
+ * reads of an unknown color match nothing.
+ * <p>
+ * Writes touch rows in {@code (color_id, cotton_content)} order, the order of {@code LOCK_SQL},
+ * so concurrent writes over overlapping positions wait for each other instead of deadlocking.
+ */
+public class SockBulkRepositoryImpl implements SockBulkRepository {
+
+    private static final int CHUNK_SIZE = 10_000;
+
+    private static final String MERGE_SQL = """
+                INSERT INTO socks (id, color_id, cotton_content, quantity)
+                SELECT nextval('sock_sequence'), batch.color_id, batch.cotton_content, batch.quantity
+                FROM unnest(?::int[], ?::int[], ?::int[]) AS batch(color_id, cotton_content, quantity)
+                ON CONFLICT (color_id, cotton_content)
+                DO UPDATE SET quantity = socks.quantity + excluded.quantity
+            """;
+
+    private static final String FIND_SQL = """
+                SELECT s.id, s.color_id, s.cotton_content, s.quantity
+                FROM socks s
+                JOIN unnest(?::int[], ?::int[]) AS batch(color_id, cotton_content)
+                  ON s.color_id = batch.color_id AND s.cotton_content = batch.cotton_content
+            """;
+
+    private static final String LOCK_SQL = FIND_SQL + """
+                ORDER BY s.color_id, s.cotton_content
+                FOR UPDATE OF s
+            """;
+
+    private static final String DECREASE_SQL = """
+                UPDATE socks
+                SET quantity = socks.quantity - batch.quantity
+                FROM unnest(?::int[], ?::int[], ?::int[]) AS batch(color_id, cotton_content, quantity)
+                WHERE socks.color_id = batch.color_id AND socks.cotton_content = batch.cotton_content
+            """;
+
+    private static final String INCREMENT_SQL = """
+                INSERT INTO socks (id, color_id, cotton_content, quantity)
+                VALUES (nextval('sock_sequence'), ?, ?, ?)
+                ON CONFLICT (color_id, cotton_content)
+                DO UPDATE SET quantity = socks.quantity + excluded.quantity
+            """;
+
+    private static final String DECREASE_ONE_SQL = """
+                UPDATE socks
+                SET quantity = quantity - ?
+                WHERE color_id = ? AND cotton_content = ? AND quantity >= ?
+            """;
+
+    // Прежняя пара читается под блокировкой строки, в том же операторе, что и обновление
+    private static final String UPDATE_WITH_UNIQUE_CHECK_SQL = """
+                UPDATE socks
+                SET color_id = ?, cotton_content = ?, quantity = ?
+                FROM (SELECT id, color_id, cotton_content FROM socks WHERE id = ? FOR UPDATE) AS previous
+                WHERE socks.id = previous.id
+                  AND NOT EXISTS (
+                      SELECT 1
+                      FROM socks other
+                      WHERE other.color_id = ? AND other.cotton_content = ? AND other.id != ?
+                  )
+                RETURNING previous.color_id, previous.cotton_content
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ColorDictionary colors;
+    private final int batchSize;
+    private final RowMapper<Sock> sockRowMapper;
+
+    public SockBulkRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                  ColorDictionary colors,
+                                  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.colors = colors;
+        this.batchSize = batchSize;
+        this.sockRowMapper = (rs, rowNum) -> new Sock(
+                rs.getLong("id"),
+                colors.nameOf(rs.getInt("color_id")),
+                rs.getInt("cotton_content"),
+                rs.getInt("quantity"));
+    }
+
+    @Override
+    public void incrementOrInsertSock(String color, int cottonContent, int quantity) {
+        jdbcTemplate.update(INCREMENT_SQL, colors.idOf(color), cottonContent, quantity);
+    }
+
+    @Override
+    public int decreaseStock(String color, int cottonContent, int quantity) {
+        Optional<Integer> colorId = colors.findId(color);
+        if (colorId.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(DECREASE_ONE_SQL, quantity, colorId.get(), cottonContent, quantity);
+    }
+
+    @Override
+    public Optional<SockKey> updateSockWithUniqueCheck(Long id, String color, int cottonContent, int quantity) {
+        int colorId = colors.idOf(color);
+        return jdbcTemplate.query(UPDATE_WITH_UNIQUE_CHECK_SQL,
+                        (rs, rowNum) -> new SockKey(colors.nameOf(rs.getInt("color_id")), rs.getInt("cotton_content")),
+                        colorId, cottonContent, quantity, id, colorId, cottonContent, id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public void mergeQuantities(Collection<Sock> socks) {
+        forEachChunk(sumByPair(socks, true).entrySet(), chunk -> updateWithSocks(MERGE_SQL, chunk));
+    }
+
+    @Override
+    public List<Sock> findByKeys(Collection<SockKey> keys) {
+        return queryByKeys(FIND_SQL, keys);
+    }
+
+    @Override
+    public List<Sock> lockForUpdate(Collection<SockKey> keys) {
+        return queryByKeys(LOCK_SQL, keys);
+    }
+
+    @Override
+    public void decreaseQuantities(Collection<Sock> socks) {
+        forEachChunk(sumByPair(socks, false).entrySet(), chunk -> updateWithSocks(DECREASE_SQL, chunk));
+    }
+
+    @Override
+    public void incrementEach(List<Sock> socks) {
+        List<Map.Entry<Long, Integer>> pairs = new ArrayList<>(sumByPair(socks, true).entrySet());
+        jdbcTemplate.batchUpdate(INCREMENT_SQL, pairs, batchSize, (ps, pair) -> {
+            ps.setInt(1, colorIdOf(pair.getKey()));
+            ps.setInt(2, cottonContentOf(pair.getKey()));
+            ps.setInt(3, pair.getValue());
+        });
+    }
+
+    @Override
+    public int[] decreaseEach(List<Sock> socks) {
+        int[][] batches = jdbcTemplate.batchUpdate(DECREASE_ONE_SQL, socks, batchSize, (ps, sock) -> {
+            ps.setInt(1, sock.getQuantity());
+            ps.setInt(2, colors.findId(sock.getColor()).orElse(0));
+            ps.setInt(3, sock.getCottonContent());
+            ps.setInt(4, sock.getQuantity());
+        });
+        int[] updatedRows = new int[socks.size()];
+        int i = 0;
+        for (int[] batch : batches) {
+            for (int count : batch) {
+                updatedRows[i++] = count;
+            }
+        }
+        return updatedRows;
+    }
+
+    private List<Sock> queryByKeys(String sql, Collection<SockKey> keys) {
+        // Неизвестный цвет не может быть в таблице: такие пары не отправляем
+        Set<Long> pairs = new TreeSet<>();
+        for (SockKey key : keys) {
+            colors.findId(key.color()).ifPresent(colorId -> pairs.add(pairOf(colorId, key.cottonContent())));
+        }
+        List<Sock> found = new ArrayList<>(pairs.size());
+        forEachChunk(pairs, chunk -> {
+            Integer[] colorIds = new Integer[chunk.size()];
+            Integer[] cottonContents = new Integer[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                colorIds[i] = colorIdOf(chunk.get(i));
+                cottonContents[i] = cottonContentOf(chunk.get(i));
+            }
+            found.addAll(jdbcTemplate.query(sql, ps -> {
+                Connection connection = ps.getConnection();
+                ps.setArray(1, connection.createArrayOf("int4", colorIds));
+                ps.setArray(2, connection.createArrayOf("int4", cottonContents));
+            }, sockRowMapper));
+        });
+        return found;
+    }
+
+    private void updateWithSocks(String sql, List<Map.Entry<Long, Integer>> quantitiesByPair) {
+        if (quantitiesByPair.isEmpty()) {
+            return;
+        }
+        Integer[] colorIds = new Integer[quantitiesByPair.size()];
+        Integer[] cottonContents = new Integer[quantitiesByPair.size()];
+        Integer[] quantities = new Integer[quantitiesByPair.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : quantitiesByPair) {
+            colorIds[i] = colorIdOf(entry.getKey());
+            cottonContents[i] = cottonContentOf(entry.getKey());
+            quantities[i] = entry.getValue();
+            i++;
+        }
+
+        jdbcTemplate.update(sql, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("int4", colorIds));
+            ps.setArray(2, connection.createArrayOf("int4", cottonContents));
+            ps.setArray(3, connection.createArrayOf("int4", quantities));
+        });
+    }
+
+    /**
+     * Quantities per color id/cotton pair packed into a long. Spellings of one color share
+     * an id, and a statement must not touch the same row twice, so their quantities are summed.
+     * Unless {@code addColors} is set, socks of colors missing from the dictionary are skipped:
+     * they have no stock to change.
+     * <p>
+     * Ids and cotton contents are not negative, so the packed pairs sort as
+     * {@code (color_id, cotton_content)}; all chunks of one call follow that order.
+     */
+    private Map<Long, Integer> sumByPair(Collection<Sock> socks, boolean addColors) {
+        Map<Long, Integer> quantitiesByPair = new TreeMap<>();
+        for (Sock sock : socks) {
+            Optional<Integer> colorId = addColors
+                    ? Optional.of(colors.idOf(sock.getColor()))
+                    : colors.findId(sock.getColor());
+            if (colorId.isEmpty()) {
+                continue;
+            }
+            try {
+                quantitiesByPair.merge(pairOf(colorId.get(), sock.getCottonContent()), sock.getQuantity(), Math::addExact);
+            } catch (ArithmeticException e) {
+                // Суммируются и разные написания одного цвета, поэтому проверка повторяется здесь
+                throw new IllegalArgumentException("Invalid row: total quantity of " + sock.getColor() + ", "
+                        + sock.getCottonContent() + " exceeds " + Integer.MAX_VALUE);
+            }
+        }
+        return quantitiesByPair;
+    }
+
+    private static long pairOf(int colorId, int cottonContent) {
+        return (long) colorId << 32 | (cottonContent & 0xFFFFFFFFL);
+    }
+
+    private static int colorIdOf(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    private static int cottonContentOf(long pair) {
+        return (int) pair;
+    }
+
+    private static <T> void forEachChunk(Collection<T> items, Consumer<List<T>> action) {
+        List<T> rows = new ArrayList<>(items);
+        for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+            action.accept(rows.subList(from, Math.min(from + CHUNK_SIZE, rows.size())));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.socks.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.socks.inventory.model.Sock;
+
+import java.util.List;
+
+/**
+ * Change notifications on the {@code sock_changes} channel and the positions they point to.
+ * A notification is sent in the writing transaction, so Postgres delivers it to every
+ * listening node only after commit, in commit order, and drops it on rollback.
+ */
+@Repository
+public class SockChangeRepository {
+
+    public static final String CHANNEL = "sock_changes";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ColorDictionary colors;
+
+    public SockChangeRepository(JdbcTemplate jdbcTemplate, ColorDictionary colors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.colors = colors;
+    }
+
+    /**
+     * Sends all payloads in one statement. Identical payloads of one transaction are
+     * delivered once.
+     */
+    public void notify(List<String> payloads) {
+        jdbcTemplate.query("SELECT pg_notify(?, payload) FROM unnest(?::text[]) AS payload", ps -> {
+            ps.setString(1, CHANNEL);
+            ps.setArray(2, ps.getConnection().createArrayOf("text", payloads.toArray()));
+        }, rs -> {
+        });
+    }
+
+    /**
+     * Current positions by color id and cotton content, the stock of hot socks summed over
+     * their shards. A pair without a position, e.g. one whose sock was moved to another pair,
+     * comes back with no id and quantity 0.
+     */
+    public List<Sock> findPositions(List<Integer> colorIds, List<Integer> cottonContents) {
+        return jdbcTemplate.query("""
+                    SELECT s.id, batch.color_id, batch.cotton_content,
+                           coalesce(s.quantity + coalesce((SELECT sum(sh.quantity)
+                                                           FROM sock_stock_shards sh
+                                                           WHERE sh.color_id = s.color_id
+                                                             AND sh.cotton_content = s.cotton_content), 0), 0) AS quantity
+                    FROM unnest(?::int[], ?::int[]) AS batch(color_id, cotton_content)
+                    LEFT JOIN socks s
+                      ON s.color_id = batch.color_id AND s.cotton_content = batch.cotton_content
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("int4", colorIds.toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("int4", cottonContents.toArray()));
+        }, (rs, rowNum) -> new Sock(
+                rs.getObject("id", Long.class),
+                colors.nameOf(rs.getInt("color_id")),
+                rs.getInt("cotton_content"),
+                rs.getInt("quantity")));
+    }
+}
@@ -0,0 +1,206 @@
+package ru.socks.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.socks.inventory.dto.LedgerCursor;
+import ru.socks.inventory.dto.LedgerEntry;
+import ru.socks.inventory.dto.StockPosition;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the movement ledger {@code sock_ledger} and manages its monthly partitions and the
+ * stock snapshots. Ledger rows are written by triggers on {@code socks} and
+ * {@code sock_stock_shards}, and for moves between the shards of a position by
+ * {@link SockShardRepository#recordMovement}.
+ */
+@Repository
+public class SockLedgerRepository {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("sock_ledger_p(\\d{4})(\\d{2})");
+
+    // Произвольный, но постоянный ключ: обслуживание журнала идёт на одном узле за раз
+    private static final long MAINTENANCE_LOCK = 0x50CC_1ED6_E000_0001L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RowMapper<LedgerEntry> entryRowMapper;
+    private final RowMapper<StockPosition> positionRowMapper;
+
+    public SockLedgerRepository(JdbcTemplate jdbcTemplate, ColorDictionary colors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entryRowMapper = (rs, rowNum) -> new LedgerEntry(
+                rs.getLong("id"),
+                rs.getTimestamp("moved_at").toInstant(),
+                colors.nameOf(rs.getInt("color_id")),
+                rs.getInt("cotton_content"),
+                rs.getInt("delta"));
+        this.positionRowMapper = (rs, rowNum) -> new StockPosition(
+                colors.nameOf(rs.getInt("color_id")),
+                rs.getInt("cotton_content"),
+                rs.getLong("quantity"));
+    }
+
+    /**
+     * Movements with {@code from <= moved_at < to} in (moved_at, id) order, optionally of one
+     * color and/or cotton content, starting after the cursor.
+     */
+    public List<LedgerEntry> findMovements(Instant from, Instant to, Integer colorId, Integer cottonContent,
+                                           LedgerCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                    SELECT id, moved_at, color_id, cotton_content, delta
+                    FROM sock_ledger
+                    WHERE moved_at >= ? AND moved_at < ?
+                """);
+        List<Object> parameters = new ArrayList<>(List.of(Timestamp.from(from), Timestamp.from(to)));
+        if (colorId != null) {
+            sql.append(" AND color_id = ?");
+            parameters.add(colorId);
+        }
+        if (cottonContent != null) {
+            sql.append(" AND cotton_content = ?");
+            parameters.add(cottonContent);
+        }
+        if (after != null) {
+            sql.append(" AND (moved_at, id) > (?, ?)");
+            parameters.add(Timestamp.from(after.movedAt()));
+            parameters.add(after.id());
+        }
+        sql.append(" ORDER BY moved_at, id LIMIT ?");
+        parameters.add(limit);
+        return jdbcTemplate.query(sql.toString(), entryRowMapper, parameters.toArray());
+    }
+
+    /**
+     * The latest snapshot taken at or before {@code at}.
+     */
+    public Optional<Instant> findSnapshotAtOrBefore(Instant at) {
+        return findInstant("SELECT max(taken_at) FROM stock_snapshots WHERE taken_at <= ?", Timestamp.from(at));
+    }
+
+    public Optional<Instant> findEarliestSnapshot() {
+        return findInstant("SELECT min(taken_at) FROM stock_snapshots");
+    }
+
+    public Optional<Instant> findLatestSnapshot() {
+        return findInstant("SELECT max(taken_at) FROM stock_snapshots");
+    }
+
+    /**
+     * Non-zero stock per position at {@code at}: the rows of the snapshot taken at
+     * {@code snapshotAt} plus the movements after it up to {@code at} inclusive.
+     */
+    public List<StockPosition> findStockAt(Instant snapshotAt, Instant at) {
+        return jdbcTemplate.query("""
+                    SELECT color_id, cotton_content, sum(quantity) AS quantity
+                    FROM (SELECT color_id, cotton_content, quantity
+                          FROM stock_snapshot_rows
+                          WHERE taken_at = ?
+                          UNION ALL
+                          SELECT color_id, cotton_content, delta
+                          FROM sock_ledger
+                          WHERE moved_at > ? AND moved_at <= ?) rows
+                    GROUP BY color_id, cotton_content
+                    HAVING sum(quantity) <> 0
+                """, positionRowMapper, Timestamp.from(snapshotAt), Timestamp.from(snapshotAt), Timestamp.from(at));
+    }
+
+    /**
+     * Stores the stock at {@code at}, computed from the snapshot at {@code baseAt}.
+     */
+    public void createSnapshot(Instant at, Instant baseAt) {
+        jdbcTemplate.update("INSERT INTO stock_snapshots (taken_at) VALUES (?)", Timestamp.from(at));
+        jdbcTemplate.update("""
+                    INSERT INTO stock_snapshot_rows (taken_at, color_id, cotton_content, quantity)
+                    SELECT ?, color_id, cotton_content, sum(quantity)
+                    FROM (SELECT color_id, cotton_content, quantity
+                          FROM stock_snapshot_rows
+                          WHERE taken_at = ?
+                          UNION ALL
+                          SELECT color_id, cotton_content, delta
+                          FROM sock_ledger
+                          WHERE moved_at > ? AND moved_at <= ?) rows
+                    GROUP BY color_id, cotton_content
+                    HAVING sum(quantity) <> 0
+                """, Timestamp.from(at), Timestamp.from(baseAt), Timestamp.from(baseAt), Timestamp.from(at));
+    }
+
+    public int deleteSnapshotsBefore(Instant at) {
+        return jdbcTemplate.update("DELETE FROM stock_snapshots WHERE taken_at < ?", Timestamp.from(at));
+    }
+
+    /**
+     * Months that have a partition of their own.
+     */
+    public List<YearMonth> findPartitions() {
+        List<YearMonth> months = new ArrayList<>();
+        jdbcTemplate.query("""
+                    SELECT c.relname
+                    FROM pg_inherits i
+                    JOIN pg_class c ON c.oid = i.inhrelid
+                    WHERE i.inhparent = 'sock_ledger'::regclass
+                """, rs -> {
+            Matcher matcher = PARTITION_NAME.matcher(rs.getString("relname"));
+            if (matcher.matches()) {
+                months.add(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+            }
+        });
+        months.sort(null);
+        return months;
+    }
+
+    /**
+     * Months (UTC) of the rows that landed in the default partition.
+     */
+    public List<YearMonth> findDefaultPartitionMonths() {
+        return jdbcTemplate.queryForList("""
+                            SELECT DISTINCT date_trunc('month', moved_at AT TIME ZONE 'UTC')::date
+                            FROM sock_ledger_default
+                        """, Date.class)
+                .stream()
+                .map(month -> YearMonth.from(month.toLocalDate()))
+                .toList();
+    }
+
+    /**
+     * Creates the partition of the month, moving its rows out of the default partition.
+     *
+     * @return {@code false} if the partition already exists
+     */
+    public boolean createPartition(YearMonth month) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT sock_ledger_create_partition(?)",
+                Boolean.class, Date.valueOf(month.atDay(1))));
+    }
+
+    /**
+     * Detaches the partition of the month and drops it with all its rows.
+     */
+    public void dropPartition(YearMonth month) {
+        String name = String.format("sock_ledger_p%04d%02d", month.getYear(), month.getMonthValue());
+        jdbcTemplate.execute("ALTER TABLE sock_ledger DETACH PARTITION " + name);
+        jdbcTemplate.execute("DROP TABLE " + name);
+    }
+
+    private Optional<Instant> findInstant(String sql, Object... parameters) {
+        Timestamp timestamp = jdbcTemplate.queryForObject(sql, Timestamp.class, parameters);
+        return Optional.ofNullable(timestamp).map(Timestamp::toInstant);
+    }
+
+    /**
+     * Takes the maintenance lock until the end of the transaction.
+     *
+     * @return {@code false} if another node holds it
+     */
+    public boolean tryLockMaintenance() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)",
+                Boolean.class, MAINTENANCE_LOCK));
+    }
+}
@@ -3,62 +3,83 @@ package ru.socks.inventory.repository;
 import org.hibernate.annotations.BatchSize;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.socks.inventory.model.Sock;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface SockRepository extends JpaRepository<Sock, Long> {
+public interface SockRepository extends JpaRepository<Sock, Long>, SockBulkRepository {
+
+    List<Sock> findByCottonContentGreaterThan(int cottonContent, Sort sort);
+
+    List<Sock> findByCottonContentLessThan(int cottonContent, Sort sort);
+
+    List<Sock> findByCottonContent(int cottonContent, Sort sort);
+
+    List<Sock> findByCottonContentBetween(int minCottonContent, int maxCottonContent, Sort sort);
+
+    List<Sock> findByColorOrderByCottonContentAsc(String color);
 
-    @Modifying
+    // В socks только id цвета: по имени сортируем через словарь, в collation базы
     @Query(value = """
-                INSERT INTO socks (id, color, cotton_content, quantity)
-                VALUES (nextval('sock_sequence'), :color, :cottonContent, :quantity)
-                ON CONFLICT (color, cotton_content)
-                DO UPDATE SET quantity = socks.quantity + :quantity
+                SELECT s.* FROM socks s
+                JOIN sock_colors c ON c.id = s.color_id
+                WHERE s.cotton_content > :above AND s.cotton_content < :below
+                ORDER BY c.name, s.cotton_content, s.id
             """, nativeQuery = true)
-    void incrementOrInsertSock(@Param("color") String color,
-                               @Param("cottonContent") int cottonContent,
-                               @Param("quantity") int quantity);
+    List<Sock> findByCottonContentInsideOrderByColorName(@Param("above") long above,
+                                                       @Param("below") long below);
 
-    @Modifying
     @Query(value = """
-                UPDATE socks
-                SET quantity = quantity - :quantity
-                WHERE color = :color AND cotton_content = :cottonContent AND quantity >= :quantity
+                SELECT s.* FROM socks s
+                JOIN sock_colors c ON c.id = s.color_id
+                WHERE s.cotton_content BETWEEN :minCottonContent AND :maxCottonContent
+                  AND (c.name, s.cotton_content, s.id) > (:afterColor, :afterCottonContent, :afterId)
+                ORDER BY c.name, s.cotton_content, s.id
+                LIMIT :limit
             """, nativeQuery = true)
-    int decreaseStock(@Param("color") String color,
-                      @Param("cottonContent") int cottonContent,
-                      @Param("quantity") int quantity);
+    List<Sock> findPage(@Param("minCottonContent") int minCottonContent,
+                        @Param("maxCottonContent") int maxCottonContent,
+                        @Param("afterColor") String afterColor,
+                        @Param("afterCottonContent") int afterCottonContent,
+                        @Param("afterId") long afterId,
+                        @Param("limit") int limit);
 
-    @Modifying
     @Query(value = """
-                UPDATE socks
-                SET color = :color, cotton_content = :cottonContent, quantity = :quantity
-                WHERE id = :id
-                  AND NOT EXISTS (
-                      SELECT 1
-                      FROM socks
-                      WHERE color = :color AND cotton_content = :cottonContent AND id != :id
-                  )
+                SELECT * FROM socks
+                WHERE color_id = :colorId
+                  AND cotton_content BETWEEN :minCottonContent AND :maxCottonContent
+                  AND (cotton_content, id) > (:afterCottonContent, :afterId)
+                ORDER BY cotton_content, id
+                LIMIT :limit
             """, nativeQuery = true)
-    int updateSockWithUniqueCheck(@Param("id") Long id,
-                                  @Param("color") String color,
-                                  @Param("cottonContent") int cottonContent,
-                                  @Param("quantity") int quantity);
+    List<Sock> findPageByColor(@Param("colorId") int colorId,
+                               @Param("minCottonContent") int minCottonContent,
+                               @Param("maxCottonContent") int maxCottonContent,
+                               @Param("afterCottonContent") int afterCottonContent,
+                               @Param("afterId") long afterId,
+                               @Param("limit") int limit);
 
-    List<Sock> findByCottonContentGreaterThan(int cottonContent, Sort sort);
-
-    List<Sock> findByCottonContentLessThan(int cottonContent, Sort sort);
-
-    List<Sock> findByCottonContent(int cottonContent, Sort sort);
-
-    List<Sock> findByCottonContentBetween(int minCottonContent, int maxCottonContent, Sort sort);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = """
+                SELECT s.* FROM socks s
+                JOIN sock_colors c ON c.id = s.color_id
+                WHERE s.cotton_content BETWEEN :minCottonContent AND :maxCottonContent
+                ORDER BY c.name, s.cotton_content
+            """, nativeQuery = true)
+    Stream<Sock> streamByCottonContentBetweenOrderByColorAscCottonContentAsc(
+            @Param("minCottonContent") int minCottonContent,
+            @Param("maxCottonContent") int maxCottonContent);
 
-    List<Sock> findByColorOrderByCottonContentAsc(String color);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<Sock> streamByColorAndCottonContentBetweenOrderByCottonContentAsc(String color, int minCottonContent, int maxCottonContent);
 }
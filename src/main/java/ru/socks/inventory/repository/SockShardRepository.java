@@ -0,0 +1,208 @@
+package ru.socks.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.socks.inventory.dto.HotSock;
+import ru.socks.inventory.model.SockKey;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Storage of sharded stock counters. Shard 0 of a position is its {@code socks} row,
+ * shards 1..N-1 live in {@code sock_stock_shards}. Shard rows have no identity of their
+ * own, so they are accessed with plain JDBC rather than through an entity. Keys returned
+ * from here carry the dictionary spelling of the color.
+ */
+@Repository
+public class SockShardRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ColorDictionary colors;
+
+    public SockShardRepository(JdbcTemplate jdbcTemplate, ColorDictionary colors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.colors = colors;
+    }
+
+    public List<HotSock> findHotSocks() {
+        return jdbcTemplate.query("SELECT color_id, cotton_content, shard_count FROM hot_socks",
+                (rs, rowNum) -> new HotSock(colors.nameOf(rs.getInt("color_id")), rs.getInt("cotton_content"),
+                        rs.getInt("shard_count")));
+    }
+
+    public void saveHotSock(SockKey key, int shards) {
+        jdbcTemplate.update("""
+                    INSERT INTO hot_socks (color_id, cotton_content, shard_count)
+                    VALUES (?, ?, ?)
+                    ON CONFLICT (color_id, cotton_content)
+                    DO UPDATE SET shard_count = excluded.shard_count
+                """, existingId(key), key.cottonContent(), shards);
+    }
+
+    public int deleteHotSock(SockKey key) {
+        return jdbcTemplate.update("DELETE FROM hot_socks WHERE color_id = ? AND cotton_content = ?",
+                knownId(key), key.cottonContent());
+    }
+
+    public void increment(SockKey key, int shard, int quantity) {
+        jdbcTemplate.update("""
+                    INSERT INTO sock_stock_shards (color_id, cotton_content, shard_no, quantity)
+                    VALUES (?, ?, ?, ?)
+                    ON CONFLICT (color_id, cotton_content, shard_no)
+                    DO UPDATE SET quantity = sock_stock_shards.quantity + excluded.quantity
+                """, colors.idOf(key.color()), key.cottonContent(), shard, quantity);
+    }
+
+    public int decrease(SockKey key, int shard, int quantity) {
+        return jdbcTemplate.update("""
+                    UPDATE sock_stock_shards
+                    SET quantity = quantity - ?
+                    WHERE color_id = ? AND cotton_content = ? AND shard_no = ? AND quantity >= ?
+                """, quantity, knownId(key), key.cottonContent(), shard, quantity);
+    }
+
+    /**
+     * Locks the main row and all shard rows of a position, in that order, and returns
+     * their quantities keyed by shard number. Empty if the position does not exist.
+     */
+    public Map<Integer, Integer> lockAllShards(SockKey key) {
+        Map<Integer, Integer> shards = new TreeMap<>();
+        int colorId = knownId(key);
+        jdbcTemplate.query("SELECT quantity FROM socks WHERE color_id = ? AND cotton_content = ? FOR UPDATE",
+                rs -> {
+                    shards.put(0, rs.getInt("quantity"));
+                }, colorId, key.cottonContent());
+        if (shards.isEmpty()) {
+            return shards;
+        }
+        jdbcTemplate.query("""
+                    SELECT shard_no, quantity
+                    FROM sock_stock_shards
+                    WHERE color_id = ? AND cotton_content = ?
+                    ORDER BY shard_no
+                    FOR UPDATE
+                """, rs -> {
+            shards.put(rs.getInt("shard_no"), rs.getInt("quantity"));
+        }, colorId, key.cottonContent());
+        return shards;
+    }
+
+    public void setQuantity(SockKey key, int shard, int quantity) {
+        if (shard == 0) {
+            jdbcTemplate.update("UPDATE socks SET quantity = ? WHERE color_id = ? AND cotton_content = ?",
+                    quantity, knownId(key), key.cottonContent());
+        } else {
+            jdbcTemplate.update("""
+                        UPDATE sock_stock_shards SET quantity = ?
+                        WHERE color_id = ? AND cotton_content = ? AND shard_no = ?
+                    """, quantity, knownId(key), key.cottonContent(), shard);
+        }
+    }
+
+    /**
+     * Removes the shard rows of a position and returns the quantity they held.
+     */
+    public long deleteShards(SockKey key) {
+        return jdbcTemplate.queryForList("""
+                            DELETE FROM sock_stock_shards
+                            WHERE color_id = ? AND cotton_content = ?
+                            RETURNING quantity
+                        """, Integer.class, knownId(key), key.cottonContent())
+                .stream()
+                .mapToLong(Integer::longValue)
+                .sum();
+    }
+
+    /**
+     * Moves the quantity held in the shard rows of the position currently stored under
+     * the given sock id into its main row and removes the shard rows.
+     */
+    public void foldShardsOfSock(Long id) {
+        jdbcTemplate.update("""
+                    WITH folded AS (
+                        DELETE FROM sock_stock_shards sh
+                        USING socks s
+                        WHERE s.id = ? AND sh.color_id = s.color_id AND sh.cotton_content = s.cotton_content
+                        RETURNING sh.quantity
+                    )
+                    UPDATE socks
+                    SET quantity = quantity + (SELECT sum(quantity) FROM folded)
+                    WHERE id = ? AND EXISTS (SELECT 1 FROM folded)
+                """, id, id);
+    }
+
+    /**
+     * Until {@link #endTransfer()}, changes of {@code socks} and shard rows made by the current
+     * transaction only move stock inside a position, and the ledger triggers skip them.
+     */
+    public void beginTransfer() {
+        jdbcTemplate.queryForObject("SELECT set_config('socks.ledger_transfer', 'on', true)", String.class);
+    }
+
+    public void endTransfer() {
+        jdbcTemplate.queryForObject("SELECT set_config('socks.ledger_transfer', 'off', true)", String.class);
+    }
+
+    /**
+     * Records the net change of a position made under {@link #beginTransfer()} as one movement.
+     */
+    public void recordMovement(SockKey key, long delta) {
+        jdbcTemplate.query("SELECT sock_ledger_append(?, ?, ?)", rs -> {
+        }, knownId(key), key.cottonContent(), delta);
+    }
+
+    /**
+     * Moves the hot mark of the position currently stored under the given sock id to {@code key}.
+     *
+     * @return {@code false} if the position is not hot
+     */
+    public boolean moveHotSock(Long id, SockKey key) {
+        List<Integer> shards = jdbcTemplate.queryForList("""
+                    DELETE FROM hot_socks h
+                    USING socks s
+                    WHERE s.id = ? AND h.color_id = s.color_id AND h.cotton_content = s.cotton_content
+                    RETURNING h.shard_count
+                """, Integer.class, id);
+        if (shards.isEmpty()) {
+            return false;
+        }
+        // Обновление записывает строку с этим цветом, так что его можно добавить в словарь
+        jdbcTemplate.update("""
+                    INSERT INTO hot_socks (color_id, cotton_content, shard_count)
+                    VALUES (?, ?, ?)
+                    ON CONFLICT (color_id, cotton_content)
+                    DO UPDATE SET shard_count = excluded.shard_count
+                """, colors.idOf(key.color()), key.cottonContent(), shards.get(0));
+        return true;
+    }
+
+    /**
+     * Quantities held in shards 1..N-1, summed per position.
+     */
+    public Map<SockKey, Long> findShardTotals() {
+        Map<SockKey, Long> totals = new HashMap<>();
+        jdbcTemplate.query("""
+                    SELECT color_id, cotton_content, sum(quantity) AS total
+                    FROM sock_stock_shards
+                    GROUP BY color_id, cotton_content
+                """, rs -> {
+            totals.put(new SockKey(colors.nameOf(rs.getInt("color_id")), rs.getInt("cotton_content")),
+                    rs.getLong("total"));
+        });
+        return totals;
+    }
+
+    // Неизвестный цвет не добавляется в словарь: id 0 не выдаётся и ни с чем не совпадает
+    private int knownId(SockKey key) {
+        return colors.findId(key.color()).orElse(0);
+    }
+
+    // Основная строка позиции уже вставлена: цвет в словаре есть
+    private int existingId(SockKey key) {
+        return colors.findId(key.color())
+                .orElseThrow(() -> new IllegalStateException("Unknown color: " + key.color()));
+    }
+}
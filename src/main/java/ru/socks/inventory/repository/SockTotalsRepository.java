@@ -0,0 +1,162 @@
+package ru.socks.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads the summary tables {@code sock_color_totals} and {@code sock_cotton_totals}.
+ * Both are maintained by triggers on {@code socks} and {@code sock_stock_shards}.
+ */
+@Repository
+public class SockTotalsRepository {
+
+    private static final RowMapper<TotalsRow> TOTALS_ROW_MAPPER = (rs, rowNum) -> new TotalsRow(
+            rs.getString("color"),
+            (Integer) rs.getObject("cotton_content"),
+            rs.getLong("total_quantity"),
+            rs.getLong("sku_count"));
+
+    private static final String ACTUAL_SQL = """
+                SELECT c.name AS color, s.cotton_content,
+                       s.quantity + coalesce(sh.quantity, 0) AS total_quantity,
+                       1 AS sku_count
+                FROM socks s
+                JOIN sock_colors c ON c.id = s.color_id
+                LEFT JOIN (SELECT color_id, cotton_content, sum(quantity) AS quantity
+                           FROM sock_stock_shards
+                           GROUP BY color_id, cotton_content) sh
+                  ON sh.color_id = s.color_id AND sh.cotton_content = s.cotton_content
+                WHERE s.cotton_content BETWEEN ? AND ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ColorDictionary colors;
+
+    public SockTotalsRepository(JdbcTemplate jdbcTemplate, ColorDictionary colors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.colors = colors;
+    }
+
+    /**
+     * Summary totals per color; for one color only when {@code color} is given.
+     */
+    public List<TotalsRow> findColorTotals(String color) {
+        String sql = """
+                    SELECT c.name AS color, NULL::int AS cotton_content,
+                           sum(t.total_quantity) AS total_quantity, sum(t.sku_count) AS sku_count
+                    FROM sock_color_totals t
+                    JOIN sock_colors c ON c.id = t.color_id
+                """;
+        if (color != null) {
+            Optional<Integer> colorId = colors.findId(color);
+            if (colorId.isEmpty()) {
+                return List.of();
+            }
+            return jdbcTemplate.query(sql + " WHERE t.color_id = ? GROUP BY c.name", TOTALS_ROW_MAPPER, colorId.get());
+        }
+        return jdbcTemplate.query(sql + " GROUP BY c.name", TOTALS_ROW_MAPPER);
+    }
+
+    /**
+     * Summary totals per cotton content within the inclusive range.
+     */
+    public List<TotalsRow> findCottonTotals(int minCottonContent, int maxCottonContent) {
+        return jdbcTemplate.query("""
+                    SELECT NULL AS color, cotton_content,
+                           sum(total_quantity) AS total_quantity, sum(sku_count) AS sku_count
+                    FROM sock_cotton_totals
+                    WHERE cotton_content BETWEEN ? AND ?
+                    GROUP BY cotton_content
+                """, TOTALS_ROW_MAPPER, minCottonContent, maxCottonContent);
+    }
+
+    /**
+     * Per-position totals computed from {@code socks} and its shards, bypassing the summary.
+     */
+    public List<TotalsRow> findActualTotals(String color, int minCottonContent, int maxCottonContent) {
+        if (color != null) {
+            Optional<Integer> colorId = colors.findId(color);
+            if (colorId.isEmpty()) {
+                return List.of();
+            }
+            return jdbcTemplate.query(ACTUAL_SQL + " AND s.color_id = ?", TOTALS_ROW_MAPPER,
+                    minCottonContent, maxCottonContent, colorId.get());
+        }
+        return jdbcTemplate.query(ACTUAL_SQL, TOTALS_ROW_MAPPER, minCottonContent, maxCottonContent);
+    }
+
+    /**
+     * Compares both summaries with totals recomputed from {@code socks} and its shards.
+     *
+     * @return one line per mismatching color or cotton content, empty when consistent
+     */
+    public List<String> findMismatches() {
+        List<String> mismatches = new ArrayList<>();
+        jdbcTemplate.query("""
+                    WITH actual AS (
+                        SELECT color_id, sum(quantity) AS total_quantity, sum(sku) AS sku_count
+                        FROM (SELECT color_id, quantity, 1 AS sku FROM socks
+                              UNION ALL
+                              SELECT color_id, quantity, 0 AS sku FROM sock_stock_shards) rows
+                        GROUP BY color_id
+                    ), summary AS (
+                        SELECT color_id, sum(total_quantity) AS total_quantity, sum(sku_count) AS sku_count
+                        FROM sock_color_totals
+                        GROUP BY color_id
+                    )
+                    SELECT c.name AS key,
+                           coalesce(a.total_quantity, 0) AS actual_quantity, coalesce(a.sku_count, 0) AS actual_skus,
+                           coalesce(s.total_quantity, 0) AS summary_quantity, coalesce(s.sku_count, 0) AS summary_skus
+                    FROM actual a
+                    FULL JOIN summary s ON s.color_id = a.color_id
+                    JOIN sock_colors c ON c.id = coalesce(a.color_id, s.color_id)
+                    WHERE coalesce(a.total_quantity, 0) <> coalesce(s.total_quantity, 0)
+                       OR coalesce(a.sku_count, 0) <> coalesce(s.sku_count, 0)
+                """, rs -> {
+            mismatches.add(describe("color", rs.getString("key"), rs.getLong("summary_quantity"),
+                    rs.getLong("summary_skus"), rs.getLong("actual_quantity"), rs.getLong("actual_skus")));
+        });
+        jdbcTemplate.query("""
+                    WITH actual AS (
+                        SELECT cotton_content, sum(quantity) AS total_quantity, sum(sku) AS sku_count
+                        FROM (SELECT cotton_content, quantity, 1 AS sku FROM socks
+                              UNION ALL
+                              SELECT cotton_content, quantity, 0 AS sku FROM sock_stock_shards) rows
+                        GROUP BY cotton_content
+                    ), summary AS (
+                        SELECT cotton_content, sum(total_quantity) AS total_quantity, sum(sku_count) AS sku_count
+                        FROM sock_cotton_totals
+                        GROUP BY cotton_content
+                    )
+                    SELECT coalesce(a.cotton_content, s.cotton_content)::text AS key,
+                           coalesce(a.total_quantity, 0) AS actual_quantity, coalesce(a.sku_count, 0) AS actual_skus,
+                           coalesce(s.total_quantity, 0) AS summary_quantity, coalesce(s.sku_count, 0) AS summary_skus
+                    FROM actual a
+                    FULL JOIN summary s ON s.cotton_content = a.cotton_content
+                    WHERE coalesce(a.total_quantity, 0) <> coalesce(s.total_quantity, 0)
+                       OR coalesce(a.sku_count, 0) <> coalesce(s.sku_count, 0)
+                """, rs -> {
+            mismatches.add(describe("cottonContent", rs.getString("key"), rs.getLong("summary_quantity"),
+                    rs.getLong("summary_skus"), rs.getLong("actual_quantity"), rs.getLong("actual_skus")));
+        });
+        return mismatches;
+    }
+
+    private static String describe(String dimension, String key, long summaryQuantity, long summarySkus,
+                                   long actualQuantity, long actualSkus) {
+        return String.format("%s %s: summary %d/%d, actual %d/%d",
+                dimension, key, summaryQuantity, summarySkus, actualQuantity, actualSkus);
+    }
+
+    /**
+     * Totals of one color or one cotton content (the other key is {@code null}),
+     * or of a single position when both are set.
+     */
+    public record TotalsRow(String color, Integer cottonContent, long totalQuantity, long skuCount) {
+    }
+}
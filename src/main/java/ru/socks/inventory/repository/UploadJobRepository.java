@@ -0,0 +1,123 @@
+package ru.socks.inventory.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.socks.inventory.dto.UploadJob;
+import ru.socks.inventory.dto.UploadJobStatusEnum;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage of background upload jobs.
+ * <p>
+ * Every update made by a job runner is conditioned on the job's {@code attempt}: resuming a
+ * job increments it, so a runner that was given up on can no longer move the checkpoint or
+ * change the status.
+ */
+@Repository
+public class UploadJobRepository {
+
+    private static final RowMapper<UploadJob> UPLOAD_JOB_ROW_MAPPER = (rs, rowNum) -> new UploadJob(
+            rs.getString("id"),
+            UploadJobStatusEnum.valueOf(rs.getString("status")),
+            rs.getString("file_name"),
+            rs.getLong("file_bytes"),
+            rs.getLong("rows_committed"),
+            rs.getInt("chunks_committed"),
+            rs.getString("error"),
+            rs.getTimestamp("created_at").toInstant(),
+            rs.getTimestamp("updated_at").toInstant(),
+            rs.getString("file_path"),
+            rs.getInt("attempt"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UploadJobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void create(String id, String fileName, String filePath, long fileBytes) {
+        jdbcTemplate.update("""
+                    INSERT INTO upload_jobs (id, status, file_name, file_path, file_bytes)
+                    VALUES (?, 'QUEUED', ?, ?, ?)
+                """, id, fileName, filePath, fileBytes);
+    }
+
+    public Optional<UploadJob> findById(String id) {
+        List<UploadJob> jobs = jdbcTemplate.query("SELECT * FROM upload_jobs WHERE id = ?", UPLOAD_JOB_ROW_MAPPER, id);
+        return jobs.stream().findFirst();
+    }
+
+    /**
+     * Queues a failed job again, or a queued/running one that has not made progress for
+     * {@code staleSeconds} (its node is gone). Returns the new attempt, or empty if the job
+     * cannot be resumed.
+     */
+    public Optional<Integer> requeue(String id, long staleSeconds) {
+        List<Integer> attempts = jdbcTemplate.queryForList("""
+                    UPDATE upload_jobs
+                    SET status = 'QUEUED', attempt = attempt + 1, error = NULL, updated_at = now()
+                    WHERE id = ?
+                      AND (status = 'FAILED'
+                           OR status IN ('QUEUED', 'RUNNING') AND updated_at < now() - ? * interval '1 second')
+                    RETURNING attempt
+                """, Integer.class, id, staleSeconds);
+        return attempts.stream().findFirst();
+    }
+
+    public boolean markRunning(String id, int attempt) {
+        return jdbcTemplate.update("""
+                    UPDATE upload_jobs SET status = 'RUNNING', updated_at = now()
+                    WHERE id = ? AND attempt = ? AND status = 'QUEUED'
+                """, id, attempt) > 0;
+    }
+
+    /**
+     * Moves the checkpoint from {@code fromRow} to {@code toRow}; must run in the transaction
+     * that applies those rows.
+     */
+    public boolean checkpoint(String id, int attempt, long fromRow, long toRow) {
+        return jdbcTemplate.update("""
+                    UPDATE upload_jobs
+                    SET rows_committed = ?, chunks_committed = chunks_committed + 1, updated_at = now()
+                    WHERE id = ? AND attempt = ? AND status = 'RUNNING' AND rows_committed = ?
+                """, toRow, id, attempt, fromRow) > 0;
+    }
+
+    public boolean markCompleted(String id, int attempt) {
+        return jdbcTemplate.update("""
+                    UPDATE upload_jobs SET status = 'COMPLETED', updated_at = now()
+                    WHERE id = ? AND attempt = ? AND status = 'RUNNING'
+                """, id, attempt) > 0;
+    }
+
+    public void markFailed(String id, int attempt, String error) {
+        jdbcTemplate.update("""
+                    UPDATE upload_jobs SET status = 'FAILED', error = ?, updated_at = now()
+                    WHERE id = ? AND attempt = ? AND status IN ('QUEUED', 'RUNNING')
+                """, error, id, attempt);
+    }
+
+    public List<UploadJob> findQueued() {
+        return jdbcTemplate.query("SELECT * FROM upload_jobs WHERE status = 'QUEUED'", UPLOAD_JOB_ROW_MAPPER);
+    }
+
+    /**
+     * Failed jobs that have not been resumed for {@code retentionSeconds}.
+     */
+    public List<UploadJob> findFailedBefore(long retentionSeconds) {
+        return jdbcTemplate.query("""
+                    SELECT * FROM upload_jobs
+                    WHERE status = 'FAILED' AND updated_at < now() - ? * interval '1 second'
+                """, UPLOAD_JOB_ROW_MAPPER, retentionSeconds);
+    }
+
+    public void noteFileRemoved(String id) {
+        jdbcTemplate.update("""
+                    UPDATE upload_jobs SET error = concat_ws('; ', error, 'spooled file removed')
+                    WHERE id = ? AND status = 'FAILED'
+                """, id);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.socks.inventory.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Shared pieces of the text batch readers: the file is parsed in place as bytes, numbers are
+ * read without creating strings and colors are decoded once per distinct value.
+ */
+final class ByteRows {
+
+    // Файлы меньше этого размера дешевле прочитать в память, чем отображать
+    private static final int MAP_THRESHOLD = 1 << 20;
+
+    private ByteRows() {
+    }
+
+    /**
+     * Whole file as a buffer: memory-mapped for large files, read into the heap for small ones.
+     */
+    static ByteBuffer open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File is too large: " + size + " bytes");
+            }
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Читаем до конца файла
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Position after a UTF-8 byte order mark, if the buffer starts with one.
+     */
+    static int skipBom(ByteBuffer buffer) {
+        return buffer.limit() >= 3
+                && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF ? 3 : 0;
+    }
+
+    static int lineEnd(ByteBuffer buffer, int from) {
+        int limit = buffer.limit();
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    static int skipSpaces(ByteBuffer buffer, int from, int to) {
+        while (from < to && isSpace(buffer.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    static int trimEnd(ByteBuffer buffer, int from, int to) {
+        while (to > from && isSpace(buffer.get(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Parses a signed decimal integer. A fractional part is dropped, as the XLSX reader does
+     * with numeric cells.
+     *
+     * @throws NumberFormatException if the bytes are not a number or do not fit an int
+     */
+    static int parseInt(ByteBuffer buffer, int from, int to) {
+        if (from >= to) {
+            throw new NumberFormatException();
+        }
+        boolean negative = buffer.get(from) == '-';
+        int i = negative || buffer.get(from) == '+' ? from + 1 : from;
+        if (i >= to || !isDigit(buffer.get(i))) {
+            throw new NumberFormatException();
+        }
+        long value = 0;
+        for (; i < to && isDigit(buffer.get(i)); i++) {
+            value = value * 10 + (buffer.get(i) - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new NumberFormatException();
+            }
+        }
+        if (i < to && buffer.get(i) == '.') {
+            for (i++; i < to && isDigit(buffer.get(i)); i++) {
+                // Дробная часть отбрасывается
+            }
+        }
+        if (i != to) {
+            throw new NumberFormatException();
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Decoded colors by their bytes. A file has few distinct colors, so after the first rows
+     * every color is a lookup instead of a new string.
+     */
+    static final class ColorCache {
+        private static final int SLOTS = 1024;
+
+        private final byte[][] keys = new byte[SLOTS][];
+        private final String[] values = new String[SLOTS];
+
+        String get(ByteBuffer buffer, int from, int to) {
+            int hash = 1;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+            byte[] key = keys[slot];
+            if (key != null && matches(key, buffer, from, to)) {
+                return values[slot];
+            }
+            byte[] bytes = new byte[to - from];
+            buffer.get(from, bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            keys[slot] = bytes;
+            values[slot] = value;
+            return value;
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buffer, int from, int to) {
+            if (key.length != to - from) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(from + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
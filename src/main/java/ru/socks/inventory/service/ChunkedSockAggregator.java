@@ -0,0 +1,132 @@
+package ru.socks.inventory.service;
+
+import ru.socks.inventory.model.SockKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Sums uploaded rows by color/cotton on the {@link IngestionExecutor}.
+ * <p>
+ * The parser thread only copies rows into fixed-size chunks; each full chunk is validated
+ * and summed into its own map by a pool thread. {@link #finish()} merges the chunk maps in
+ * file order, so the first invalid row reported is the same as with a sequential pass.
+ * A position whose total does not fit an {@code int} is reported as an invalid row.
+ * One instance serves one upload and is not thread-safe.
+ */
+public class ChunkedSockAggregator implements SockRowHandler {
+
+    private final IngestionExecutor executor;
+    private final int chunkSize;
+    private final List<Future<Map<SockKey, Integer>>> chunks = new ArrayList<>();
+
+    private String[] colors;
+    private int[] cottonContents;
+    private int[] quantities;
+    private int size;
+    private long rows;
+
+    public ChunkedSockAggregator(IngestionExecutor executor, int chunkSize) {
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        newChunk();
+    }
+
+    @Override
+    public void onRow(String color, int cottonContent, int quantity) {
+        colors[size] = color;
+        cottonContents[size] = cottonContent;
+        quantities[size] = quantity;
+        size++;
+        rows++;
+        if (size == chunkSize) {
+            submitChunk();
+        }
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Waits for all chunks and returns the summed quantity per position.
+     *
+     * @throws IllegalArgumentException if a chunk contains an invalid row
+     */
+    public Map<SockKey, Integer> finish() throws InterruptedException {
+        if (size > 0) {
+            submitChunk();
+        }
+        Map<SockKey, Integer> totals = new HashMap<>();
+        try {
+            for (Future<Map<SockKey, Integer>> chunk : chunks) {
+                chunk.get().forEach((key, quantity) -> add(totals, key, quantity));
+            }
+
+        } catch (ExecutionException e) {
+            cancel();
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException | CancellationException e) {
+            cancel();
+            throw e;
+        }
+        return totals;
+    }
+
+    /**
+     * Drops chunks that have not started yet, e.g. when the parser failed.
+     */
+    public void cancel() {
+        for (Future<Map<SockKey, Integer>> chunk : chunks) {
+            chunk.cancel(false);
+        }
+    }
+
+    private void submitChunk() {
+        String[] chunkColors = colors;
+        int[] chunkCottonContents = cottonContents;
+        int[] chunkQuantities = quantities;
+        int chunkRows = size;
+        chunks.add(executor.submit(() -> sum(chunkColors, chunkCottonContents, chunkQuantities, chunkRows)));
+        newChunk();
+    }
+
+    private void newChunk() {
+        colors = new String[chunkSize];
+        cottonContents = new int[chunkSize];
+        quantities = new int[chunkSize];
+        size = 0;
+    }
+
+    private static Map<SockKey, Integer> sum(String[] colors, int[] cottonContents, int[] quantities, int rows) {
+        Map<SockKey, Integer> totals = new HashMap<>();
+        for (int i = 0; i < rows; i++) {
+            if (cottonContents[i] < 0 || cottonContents[i] > 100 || quantities[i] <= 0) {
+                throw new IllegalArgumentException("Invalid row: " + colors[i] + ", " + cottonContents[i] + ", " + quantities[i]);
+            }
+            add(totals, new SockKey(colors[i], cottonContents[i]), quantities[i]);
+        }
+        return totals;
+    }
+
+    /**
+     * Adds {@code quantity} to the total of {@code key}; a total past {@code int} is an invalid row,
+     * not a silently wrapped negative quantity.
+     */
+    static void add(Map<SockKey, Integer> totals, SockKey key, int quantity) {
+        try {
+            totals.merge(key, quantity, Math::addExact);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid row: total quantity of " + key.color() + ", "
+                    + key.cottonContent() + " exceeds " + Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ru.socks.inventory.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads comma-separated rows {@code color,cottonContent,quantity} straight from the file bytes.
+ * <p>
+ * Colors may be quoted ({@code "Light, blue"}, with {@code ""} for a quote); further columns
+ * are ignored, as in XLSX. A first line whose cotton column is not a number is a header and
+ * is skipped. Blank lines are skipped; rows are numbered by line.
+ */
+@Component
+public class CsvSockBatchReader implements SockBatchReader {
+
+    @Override
+    public void read(File file, SockRowHandler handler) throws IOException {
+        ByteBuffer buffer = ByteRows.open(file);
+        ByteRows.ColorCache colors = new ByteRows.ColorCache();
+        int[] fields = new int[6];
+        boolean first = true;
+        int rowNum = 0;
+        int pos = ByteRows.skipBom(buffer);
+        while (pos < buffer.limit()) {
+            rowNum++;
+            int end = ByteRows.lineEnd(buffer, pos);
+            int lineEnd = ByteRows.trimEnd(buffer, pos, end);
+            if (ByteRows.skipSpaces(buffer, pos, lineEnd) < lineEnd) {
+                boolean quoteEscaped = split(buffer, pos, lineEnd, fields, rowNum);
+                boolean header = first && isHeader(buffer, fields);
+                first = false;
+                if (!header) {
+                    String color = colors.get(buffer, fields[0], fields[1]);
+                    handler.onRow(quoteEscaped ? color.replace("\"\"", "\"") : color,
+                            toInt(buffer, fields[2], fields[3], rowNum),
+                            toInt(buffer, fields[4], fields[5], rowNum));
+                }
+            }
+            pos = end + 1;
+        }
+    }
+
+    /**
+     * Finds the bounds of the first three fields; returns whether the color contains escaped quotes.
+     */
+    private static boolean split(ByteBuffer buffer, int from, int to, int[] fields, int rowNum) {
+        boolean quoteEscaped = false;
+        int pos = from;
+        for (int field = 0; field < 3; field++) {
+            if (pos > to) {
+                throw missingColumns(rowNum);
+            }
+            pos = ByteRows.skipSpaces(buffer, pos, to);
+            int start;
+            int end;
+            if (pos < to && buffer.get(pos) == '"') {
+                start = pos + 1;
+                end = start;
+                while (true) {
+                    if (end >= to) {
+                        throw new IllegalArgumentException("Row " + rowNum + " contains an unterminated quote");
+                    }
+                    if (buffer.get(end) == '"') {
+                        if (end + 1 < to && buffer.get(end + 1) == '"') {
+                            quoteEscaped |= field == 0;
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                pos = ByteRows.skipSpaces(buffer, end + 1, to);
+                if (pos < to && buffer.get(pos) != ',') {
+                    throw new IllegalArgumentException("Row " + rowNum + " has text after a quoted value");
+                }
+            } else {
+                start = pos;
+                while (pos < to && buffer.get(pos) != ',') {
+                    pos++;
+                }
+                end = ByteRows.trimEnd(buffer, start, pos);
+            }
+            if (start == end) {
+                throw missingColumns(rowNum);
+            }
+            fields[field * 2] = start;
+            fields[field * 2 + 1] = end;
+            pos++; // Разделитель
+        }
+        return quoteEscaped;
+    }
+
+    private static boolean isHeader(ByteBuffer buffer, int[] fields) {
+        try {
+            ByteRows.parseInt(buffer, fields[2], fields[3]);
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static int toInt(ByteBuffer buffer, int from, int to, int rowNum) {
+        try {
+            return ByteRows.parseInt(buffer, from, to);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Row " + rowNum + " contains non-numeric value: " + ByteRows.decode(buffer, from, to));
+        }
+    }
+
+    private static IllegalArgumentException missingColumns(int rowNum) {
+        return new IllegalArgumentException("Row " + rowNum + " must contain color, cotton part and quantity");
+    }
+}
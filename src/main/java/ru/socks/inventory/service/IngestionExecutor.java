@@ -0,0 +1,57 @@
+package ru.socks.inventory.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Application-wide worker pool for batch ingestion, shared by all concurrent uploads.
+ * <p>
+ * The pool has a fixed number of threads (the number of cores by default) and a bounded
+ * queue. When the queue is full the submitting thread runs the task itself, which slows
+ * down the parser of that upload instead of buffering more chunks. Pool size, queue depth
+ * and task times are exported as {@code executor.*} meters with {@code name=socks.ingestion}.
+ * <p>
+ * Not exposed as an {@link java.util.concurrent.Executor} bean, so Spring Boot still creates
+ * its own {@code applicationTaskExecutor}.
+ */
+@Component
+public class IngestionExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public IngestionExecutor(@Value("${socks.ingestion.threads:0}") int threads,
+                             @Value("${socks.ingestion.queue-capacity:64}") int queueCapacity,
+                             MeterRegistry registry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "socks-ingestion-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        new ExecutorServiceMetrics(executor, "socks.ingestion", Tags.empty()).bindTo(registry);
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,323 @@
+package ru.socks.inventory.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.socks.inventory.dto.SockFilter;
+import ru.socks.inventory.dto.SortingEnum;
+import ru.socks.inventory.dto.VersionedSocks;
+import ru.socks.inventory.event.SockUpdatedEvent;
+import ru.socks.inventory.event.StockChangedEvent;
+import ru.socks.inventory.event.StockChangedEvent.StockDelta;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.repository.ColorDictionary;
+import ru.socks.inventory.repository.SockRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process copy of the whole inventory that serves {@code GET /api/socks} without the database.
+ * <p>
+ * Colors are kept in a dictionary; for every color there is an {@code int[101]} of quantities
+ * and a {@code long[101]} of sock ids indexed by cotton content (id 0 means the position does
+ * not exist). Filters become scans over these arrays.
+ * <p>
+ * The model is loaded from the table on startup, with the shard rows of hot positions added
+ * when sharding is on, and then kept up to date write-through:
+ * the write paths publish {@link StockChangedEvent} and {@link SockUpdatedEvent}, which are
+ * applied here after commit. Only writes made by this node are seen, so the mode is meant
+ * for a single writer node.
+ * <p>
+ * A rebuild blocks commits that publish these events until it has read the table and waits
+ * for the ones already committing, so no change is lost or applied twice around the copy.
+ * The model is first loaded once the event listeners are registered. Writes of the reactive
+ * stack publish their events without a transaction and are not held back.
+ * <p>
+ * ETags come from a local version counted per applied change; it is prefixed with an id of
+ * this instance, so ETags of another node or of a previous run never match.
+ */
+@Service
+@ConditionalOnProperty(prefix = "socks.read-model", name = "enabled", havingValue = "true")
+public class InventoryReadModel implements SmartInitializingSingleton {
+
+    private static final int COTTON_SLOTS = 101;
+
+    private final SockRepository sockRepository;
+    private final ColorDictionary colorDictionary;
+    private final ObjectProvider<ShardedStockService> shardedStock;
+    private final TransactionTemplate snapshotTransaction;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Общий захват держат коммитящиеся транзакции с событиями, исключительный - rebuild
+    private final ReentrantReadWriteLock commitGate = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> colorIds = new HashMap<>();
+    private final List<String> colors = new ArrayList<>();
+    private final List<long[]> ids = new ArrayList<>();
+    private final List<int[]> quantities = new ArrayList<>();
+    private final String instanceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private long version;
+
+    public InventoryReadModel(SockRepository sockRepository,
+                              ColorDictionary colorDictionary,
+                              ObjectProvider<ShardedStockService> shardedStock,
+                              TransactionTemplate transactionTemplate) {
+        this.sockRepository = sockRepository;
+        this.colorDictionary = colorDictionary;
+        this.shardedStock = shardedStock;
+        // Строки socks и шардов читаются из одного снимка: перенос остатка между ними событий не публикует
+        this.snapshotTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    // Слушатели событий к этому моменту уже зарегистрированы: их процессор создаётся раньше бинов приложения
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        commitGate.writeLock().lock();
+        try {
+            List<Sock> socks = snapshotTransaction.execute(status -> load());
+            lock.writeLock().lock();
+            try {
+                colorIds.clear();
+                colors.clear();
+                ids.clear();
+                quantities.clear();
+                for (Sock sock : socks) {
+                    put(sock.getId(), sock.getColor(), sock.getCottonContent(), sock.getQuantity());
+                }
+                version++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            commitGate.writeLock().unlock();
+        }
+    }
+
+    private List<Sock> load() {
+        List<Sock> socks = sockRepository.findAll();
+        ShardedStockService shards = shardedStock.getIfAvailable();
+        return shards != null ? shards.withShardTotals(socks) : socks;
+    }
+
+    /**
+     * Same filters and ordering as {@link SockService#getSocks}. Sorting by color uses
+     * {@link String#compareTo}, not the database collation.
+     */
+    public List<Sock> getSocks(String color,
+                               String operation,
+                               Integer cottonContent,
+                               Integer maxCottonContent,
+                               String sortBy) {
+        SortingEnum sorting = sortBy != null ? SortingEnum.fromString(sortBy) : null;
+        SockFilter filter = SockFilter.of(color, operation, cottonContent, maxCottonContent);
+        if (filter.color() != null) {
+            sorting = SortingEnum.COTTON_CONTENT;
+        }
+        return scan(filter.color() != null ? canonical(filter.color()) : null, filter.minCottonContent(), filter.maxCottonContent(), sorting);
+    }
+
+    /**
+     * {@link #getSocks} behind an ETag, see {@link SockService#getSocksIfNoneMatch}.
+     */
+    public VersionedSocks getSocksIfNoneMatch(String color,
+                                              String operation,
+                                              Integer cottonContent,
+                                              Integer maxCottonContent,
+                                              String sortBy,
+                                              String variant,
+                                              String ifNoneMatch) {
+        long current;
+        lock.readLock().lock();
+        try {
+            current = version;
+        } finally {
+            lock.readLock().unlock();
+        }
+        String etag = InventoryVersionService.etag(instanceId + "." + current,
+                color, operation, cottonContent, maxCottonContent, sortBy, variant);
+        if (InventoryVersionService.matches(ifNoneMatch, etag)) {
+            return new VersionedSocks(etag, null);
+        }
+        return new VersionedSocks(etag, getSocks(color, operation, cottonContent, maxCottonContent, sortBy));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void beforeStockCommit(StockChangedEvent event) {
+        holdCommitGate();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void beforeSockCommit(SockUpdatedEvent event) {
+        holdCommitGate();
+    }
+
+    // Без транзакции событие публикуется уже после записи (профиль reactive)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        List<StockDelta> deltas = new ArrayList<>(event.deltas().size());
+        for (StockDelta delta : event.deltas()) {
+            deltas.add(new StockDelta(new SockKey(canonical(delta.key().color()), delta.key().cottonContent()),
+                    delta.delta()));
+        }
+
+        Set<SockKey> missing = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            for (StockDelta delta : deltas) {
+                if (!exists(delta.key())) {
+                    missing.add(delta.key());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Новые позиции: id берём из таблицы, остаток набирается только из дельт
+        List<Sock> created = missing.isEmpty() ? List.of() : sockRepository.findByKeys(missing);
+
+        lock.writeLock().lock();
+        try {
+            for (Sock sock : created) {
+                if (!exists(SockKey.of(sock))) {
+                    put(sock.getId(), sock.getColor(), sock.getCottonContent(), 0);
+                }
+            }
+            for (StockDelta delta : deltas) {
+                SockKey key = delta.key();
+                Integer colorId = colorIds.get(key.color());
+                if (colorId != null && inRange(key.cottonContent())) {
+                    quantities.get(colorId)[key.cottonContent()] += delta.delta();
+                }
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSockUpdated(SockUpdatedEvent event) {
+        String color = canonical(event.key().color());
+        lock.writeLock().lock();
+        try {
+            for (int colorId = 0; colorId < ids.size(); colorId++) {
+                long[] colorIdsByCotton = ids.get(colorId);
+                for (int cotton = 0; cotton < COTTON_SLOTS; cotton++) {
+                    if (colorIdsByCotton[cotton] == event.id()) {
+                        colorIdsByCotton[cotton] = 0;
+                        quantities.get(colorId)[cotton] = 0;
+                    }
+                }
+            }
+            put(event.id(), color, event.key().cottonContent(), event.quantity());
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Отпускается после afterCommit всех синхронизаций, то есть после применения изменений
+    private void holdCommitGate() {
+        commitGate.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                commitGate.readLock().unlock();
+            }
+        });
+    }
+
+    private List<Sock> scan(String color, int fromCotton, int toCotton, SortingEnum sorting) {
+        int from = Math.max(fromCotton, 0);
+        int to = Math.min(toCotton, COTTON_SLOTS - 1);
+        List<Sock> result = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            if (color != null) {
+                Integer colorId = colorIds.get(color);
+                if (colorId != null) {
+                    collect(colorId, from, to, result);
+                }
+            } else if (sorting == SortingEnum.COTTON_CONTENT) {
+                for (int cotton = from; cotton <= to; cotton++) {
+                    for (int colorId = 0; colorId < colors.size(); colorId++) {
+                        collect(colorId, cotton, cotton, result);
+                    }
+                }
+            } else if (sorting == SortingEnum.COLOR) {
+                List<Integer> byName = new ArrayList<>(colorIds.values());
+                byName.sort((left, right) -> colors.get(left).compareTo(colors.get(right)));
+                for (int colorId : byName) {
+                    collect(colorId, from, to, result);
+                }
+            } else {
+                for (int colorId = 0; colorId < colors.size(); colorId++) {
+                    collect(colorId, from, to, result);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void collect(int colorId, int from, int to, List<Sock> result) {
+        long[] colorIdsByCotton = ids.get(colorId);
+        int[] colorQuantities = quantities.get(colorId);
+        for (int cotton = from; cotton <= to; cotton++) {
+            if (colorIdsByCotton[cotton] != 0) {
+                result.add(new Sock(colorIdsByCotton[cotton], colors.get(colorId), cotton, colorQuantities[cotton]));
+            }
+        }
+    }
+
+    private boolean exists(SockKey key) {
+        Integer colorId = colorIds.get(key.color());
+        return colorId != null && inRange(key.cottonContent()) && ids.get(colorId)[key.cottonContent()] != 0;
+    }
+
+    private void put(long id, String color, int cottonContent, int quantity) {
+        if (!inRange(cottonContent)) {
+            return;
+        }
+        Integer colorId = colorIds.get(color);
+        if (colorId == null) {
+            colorId = colors.size();
+            colorIds.put(color, colorId);
+            colors.add(color);
+            ids.add(new long[COTTON_SLOTS]);
+            quantities.add(new int[COTTON_SLOTS]);
+        }
+        ids.get(colorId)[cottonContent] = id;
+        quantities.get(colorId)[cottonContent] = quantity;
+    }
+
+    // События и фильтры несут цвет в написании запроса, строки таблицы - в написании словаря
+    private String canonical(String color) {
+        return colorDictionary.findName(color).orElse(color);
+    }
+
+    private static boolean inRange(int cottonContent) {
+        return cottonContent >= 0 && cottonContent < COTTON_SLOTS;
+    }
+}
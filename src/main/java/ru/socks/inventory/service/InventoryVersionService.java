@@ -0,0 +1,87 @@
+package ru.socks.inventory.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.socks.inventory.repository.InventoryVersionRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Strong ETags for inventory reads. An ETag is the inventory version plus a hash of the
+ * request filters, so it changes after any committed write and differs between filters.
+ * A background task compacts the version rows of closed connections.
+ */
+@Service
+public class InventoryVersionService {
+    private static final Logger log = LogManager.getLogger(InventoryVersionService.class);
+
+    private final InventoryVersionRepository versionRepository;
+    private final ScheduledExecutorService compaction;
+
+    public InventoryVersionService(InventoryVersionRepository versionRepository,
+                                   @Value("${socks.inventory-version.compact-ms:600000}") long compactMs) {
+        this.versionRepository = versionRepository;
+        this.compaction = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sock-version-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compaction.scheduleWithFixedDelay(this::compactSafely, compactMs, compactMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compaction.shutdownNow();
+    }
+
+    /**
+     * Must be called in the transaction that then reads the data, before the read: the data
+     * is then at least as new as the version.
+     */
+    public long currentVersion() {
+        return versionRepository.currentVersion();
+    }
+
+    public static String etag(String version, Object... filter) {
+        return "\"" + version + "-" + Integer.toHexString(Arrays.hashCode(filter)) + "\"";
+    }
+
+    /**
+     * {@code If-None-Match} check: a list of ETags or {@code *}, compared weakly as RFC 9110 requires.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void compactSafely() {
+        try {
+            int folded = versionRepository.compact();
+            if (folded > 0) {
+                log.debug("Compacted {} inventory version rows", folded);
+            }
+        } catch (RuntimeException e) {
+            log.error("Inventory version compaction failed", e);
+        }
+    }
+}
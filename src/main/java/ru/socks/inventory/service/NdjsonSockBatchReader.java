@@ -0,0 +1,236 @@
+package ru.socks.inventory.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads one JSON object per line, {@code {"color":"Red","cottonContent":80,"quantity":10}},
+ * straight from the file bytes.
+ * <p>
+ * Only flat objects are expected: the three fields are picked by name, other fields are
+ * skipped. Blank lines are skipped; rows are numbered by line.
+ */
+@Component
+public class NdjsonSockBatchReader implements SockBatchReader {
+
+    private static final byte[] COLOR = "color".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COTTON_CONTENT = "cottonContent".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] QUANTITY = "quantity".getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    public void read(File file, SockRowHandler handler) throws IOException {
+        ByteBuffer buffer = ByteRows.open(file);
+        LineParser parser = new LineParser(buffer);
+        int rowNum = 0;
+        int pos = ByteRows.skipBom(buffer);
+        while (pos < buffer.limit()) {
+            rowNum++;
+            int end = ByteRows.lineEnd(buffer, pos);
+            int lineEnd = ByteRows.trimEnd(buffer, pos, end);
+            if (ByteRows.skipSpaces(buffer, pos, lineEnd) < lineEnd) {
+                parser.parse(pos, lineEnd, rowNum, handler);
+            }
+            pos = end + 1;
+        }
+    }
+
+    private static final class LineParser {
+        private final ByteBuffer buffer;
+        private final ByteRows.ColorCache colors = new ByteRows.ColorCache();
+
+        private int pos;
+        private int end;
+        private int rowNum;
+
+        // Границы последней прочитанной строки JSON (без кавычек)
+        private int stringStart;
+        private int stringEnd;
+        private boolean stringEscaped;
+
+        private LineParser(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void parse(int from, int to, int rowNum, SockRowHandler handler) {
+            this.pos = from;
+            this.end = to;
+            this.rowNum = rowNum;
+            String color = null;
+            int cottonContent = 0;
+            int quantity = 0;
+            boolean hasCotton = false;
+            boolean hasQuantity = false;
+
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    expect('"');
+                    readString();
+                    int keyStart = stringStart;
+                    int keyEnd = stringEnd;
+                    expect(':');
+                    skipSpaces();
+                    if (is(keyStart, keyEnd, COLOR) && peek() == '"') {
+                        pos++;
+                        readString();
+                        color = colors.get(buffer, stringStart, stringEnd);
+                        if (stringEscaped) {
+                            color = unescape(color);
+                        }
+                    } else if (is(keyStart, keyEnd, COTTON_CONTENT) && peek() != 'n') {
+                        cottonContent = readInt();
+                        hasCotton = true;
+                    } else if (is(keyStart, keyEnd, QUANTITY) && peek() != 'n') {
+                        quantity = readInt();
+                        hasQuantity = true;
+                    } else {
+                        skipValue();
+                    }
+                    skipSpaces();
+                    if (peek() == ',') {
+                        pos++;
+                        continue;
+                    }
+                    expect('}');
+                    break;
+                }
+            }
+            skipSpaces();
+            if (pos != end) {
+                throw invalid();
+            }
+            if (color == null || !hasCotton || !hasQuantity) {
+                throw new IllegalArgumentException("Row " + rowNum + " must contain color, cotton part and quantity");
+            }
+            handler.onRow(color, cottonContent, quantity);
+        }
+
+        private void readString() {
+            stringStart = pos;
+            stringEscaped = false;
+            while (pos < end) {
+                byte b = buffer.get(pos);
+                if (b == '\\') {
+                    stringEscaped = true;
+                    pos += 2;
+                } else if (b == '"') {
+                    stringEnd = pos++;
+                    return;
+                } else {
+                    pos++;
+                }
+            }
+            throw invalid();
+        }
+
+        private int readInt() {
+            int start = pos;
+            while (pos < end && isNumberByte(buffer.get(pos))) {
+                pos++;
+            }
+            try {
+                return ByteRows.parseInt(buffer, start, pos);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Row " + rowNum + " contains non-numeric value: "
+                        + ByteRows.decode(buffer, start, Math.max(pos, Math.min(start + 1, end))));
+            }
+        }
+
+        private void skipValue() {
+            int depth = 0;
+            do {
+                if (pos >= end) {
+                    throw invalid();
+                }
+                byte b = buffer.get(pos);
+                if (b == '"') {
+                    pos++;
+                    readString();
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    if (depth == 0) {
+                        return;
+                    }
+                    depth--;
+                } else if (b == ',' && depth == 0) {
+                    return;
+                }
+                pos++;
+            } while (true);
+        }
+
+        private void expect(char c) {
+            skipSpaces();
+            if (pos >= end || buffer.get(pos) != c) {
+                throw invalid();
+            }
+            pos++;
+        }
+
+        private byte peek() {
+            skipSpaces();
+            return pos < end ? buffer.get(pos) : 0;
+        }
+
+        private void skipSpaces() {
+            pos = ByteRows.skipSpaces(buffer, pos, end);
+        }
+
+        private boolean is(int from, int to, byte[] name) {
+            if (to - from != name.length) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (buffer.get(from + i) != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private IllegalArgumentException invalid() {
+            return new IllegalArgumentException("Row " + rowNum + " is not a valid JSON object");
+        }
+
+        private static boolean isNumberByte(byte b) {
+            return b >= '0' && b <= '9' || b == '-' || b == '+' || b == '.';
+        }
+
+        private static String unescape(String value) {
+            StringBuilder result = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c != '\\' || i + 1 == value.length()) {
+                    result.append(c);
+                    continue;
+                }
+                char escaped = value.charAt(++i);
+                switch (escaped) {
+                    case 'n' -> result.append('\n');
+                    case 't' -> result.append('\t');
+                    case 'r' -> result.append('\r');
+                    case 'b' -> result.append('\b');
+                    case 'f' -> result.append('\f');
+                    case 'u' -> {
+                        if (i + 4 >= value.length()) {
+                            throw new IllegalArgumentException("Invalid escape in color: " + value);
+                        }
+                        result.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                        i += 4;
+                    }
+                    default -> result.append(escaped);
+                }
+            }
+            return result.toString();
+        }
+    }
+}
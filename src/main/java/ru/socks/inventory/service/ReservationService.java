@@ -0,0 +1,250 @@
+package ru.socks.inventory.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.socks.inventory.dto.Reservation;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.event.StockChangedEvent;
+import ru.socks.inventory.event.StockChangedEvent.StockDelta;
+import ru.socks.inventory.exception.ConflictOutcomeSocksException;
+import ru.socks.inventory.exception.ReservationNotFoundException;
+import ru.socks.inventory.metrics.SockMetrics;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.repository.ColorDictionary;
+import ru.socks.inventory.repository.ReservationRepository;
+import ru.socks.inventory.repository.SockRepository;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-phase outcomes: a reservation takes the stock at once and is later committed, released
+ * or left to expire, so a checkout never keeps a transaction or a row lock open.
+ * <p>
+ * Reserving is one short transaction: the reservation row is written, then the stock is
+ * decreased with the same conditional update as an outcome, and the transaction commits.
+ * Commit only deletes the row; release and expiry delete it and return the stock. The row is
+ * deleted exactly once, so a reservation is never both committed and returned.
+ * <p>
+ * Held reservations are indexed in memory by id, and their expiries sit in a
+ * {@link ReservationTimerWheel}. Every {@code socks.reservations.tick-ms} the due ones are
+ * returned in batches of {@code socks.reservations.expire-batch-size}, one transaction per
+ * batch. Reservations are loaded from the table at startup; a periodic sweep returns expired
+ * rows no node has returned, for example of a node that is gone.
+ */
+@Service
+public class ReservationService {
+    private static final Logger log = LogManager.getLogger(ReservationService.class);
+
+    private final ReservationRepository reservationRepository;
+    private final SockRepository sockRepository;
+    private final SockService sockService;
+    private final ColorDictionary colors;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SockMetrics metrics;
+    private final long defaultTtlSeconds;
+    private final long maxTtlSeconds;
+    private final long tickMs;
+    private final int expireBatchSize;
+    private final Map<UUID, Reservation> holds = new ConcurrentHashMap<>();
+    private final ReservationTimerWheel wheel;
+    private final ScheduledExecutorService expiry;
+
+    public ReservationService(ReservationRepository reservationRepository,
+                              SockRepository sockRepository,
+                              SockService sockService,
+                              ColorDictionary colors,
+                              TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              SockMetrics metrics,
+                              @Value("${socks.reservations.default-ttl-seconds:900}") long defaultTtlSeconds,
+                              @Value("${socks.reservations.max-ttl-seconds:86400}") long maxTtlSeconds,
+                              @Value("${socks.reservations.tick-ms:1000}") long tickMs,
+                              @Value("${socks.reservations.wheel-size:512}") int wheelSize,
+                              @Value("${socks.reservations.expire-batch-size:500}") int expireBatchSize,
+                              @Value("${socks.reservations.sweep-ms:60000}") long sweepMs) {
+        this.reservationRepository = reservationRepository;
+        this.sockRepository = sockRepository;
+        this.sockService = sockService;
+        this.colors = colors;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.maxTtlSeconds = maxTtlSeconds;
+        this.tickMs = tickMs;
+        this.expireBatchSize = expireBatchSize;
+        this.wheel = new ReservationTimerWheel(tickMs, wheelSize, System.currentTimeMillis());
+        metrics.reservationsHeld(holds);
+        this.expiry = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sock-reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Один поток: загрузка резервов гарантированно раньше первого тика
+        expiry.execute(this::loadSafely);
+        expiry.scheduleWithFixedDelay(this::expireDueSafely, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        expiry.scheduleWithFixedDelay(this::sweepSafely, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiry.shutdownNow();
+    }
+
+    /**
+     * Takes the stock for {@code ttlSeconds} (default {@code socks.reservations.default-ttl-seconds}).
+     *
+     * @throws ru.socks.inventory.exception.ConflictOutcomeSocksException if the stock does not cover it
+     */
+    @Transactional
+    public Reservation reserve(SockRequest request, Long ttlSeconds) {
+        long ttl = ttlSeconds != null ? ttlSeconds : defaultTtlSeconds;
+        if (ttl < 1 || ttl > maxTtlSeconds) {
+            throw new IllegalArgumentException("ttlSeconds must be between 1 and " + maxTtlSeconds);
+        }
+        // Цвета нет в словаре - нет и остатка
+        int colorId = colors.findId(request.getColor())
+                .orElseThrow(() -> new ConflictOutcomeSocksException("Not enough socks in stock to perform outcome operation"));
+        Reservation reservation = new Reservation(UUID.randomUUID(), colors.nameOf(colorId),
+                request.getCottonContent(), request.getQuantity(), Instant.now().plusSeconds(ttl));
+
+        // Сначала строка резерва, потом списание: блокировка строки остатка держится только до коммита
+        reservationRepository.insert(reservation.getId(), colorId, reservation.getCottonContent(),
+                reservation.getQuantity(), reservation.getExpiresAt());
+        sockService.registerOutcome(request);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                hold(reservation);
+                metrics.reservations(SockMetrics.RESERVED, 1);
+            }
+        });
+        return reservation;
+    }
+
+    /**
+     * Makes the outcome final. Possible until the reservation is released or its stock is returned.
+     */
+    @Transactional
+    public Reservation commit(UUID id) {
+        Reservation reservation = reservationRepository.delete(id)
+                .orElseThrow(() -> new ReservationNotFoundException(id.toString()));
+        holds.remove(id);
+        metrics.reservations(SockMetrics.COMMITTED, 1);
+        return reservation;
+    }
+
+    /**
+     * Cancels the reservation and returns its stock.
+     */
+    @Transactional
+    public Reservation release(UUID id) {
+        Reservation reservation = reservationRepository.delete(id)
+                .orElseThrow(() -> new ReservationNotFoundException(id.toString()));
+        sockService.registerIncome(new SockRequest(reservation.getColor(), reservation.getCottonContent(),
+                reservation.getQuantity()));
+        holds.remove(id);
+        metrics.reservations(SockMetrics.RELEASED, 1);
+        return reservation;
+    }
+
+    void expireDue() {
+        long now = System.currentTimeMillis();
+        List<UUID> due = wheel.advance(now);
+        // Подтверждённые и отпущенные резервы остаются в колесе до своего срока
+        due.removeIf(id -> !holds.containsKey(id));
+        for (int from = 0; from < due.size(); from += expireBatchSize) {
+            List<UUID> batch = due.subList(from, Math.min(from + expireBatchSize, due.size()));
+            try {
+                List<Reservation> expired = transactionTemplate.execute(status ->
+                        returnStock(reservationRepository.deleteExpired(batch, Instant.ofEpochMilli(now))));
+                batch.forEach(holds::remove);
+                metrics.reservations(SockMetrics.EXPIRED, expired.size());
+            } catch (RuntimeException e) {
+                log.error("Failed to return {} expired reservations, retrying on the next tick", batch.size(), e);
+                batch.forEach(id -> wheel.schedule(id, now + tickMs));
+            }
+        }
+    }
+
+    void sweep() {
+        List<Reservation> expired;
+        do {
+            expired = transactionTemplate.execute(status ->
+                    returnStock(reservationRepository.deleteAnyExpired(Instant.now(), expireBatchSize)));
+            expired.forEach(reservation -> holds.remove(reservation.getId()));
+            metrics.reservations(SockMetrics.EXPIRED, expired.size());
+        } while (expired.size() == expireBatchSize);
+    }
+
+    private void hold(Reservation reservation) {
+        holds.put(reservation.getId(), reservation);
+        wheel.schedule(reservation.getId(), reservation.getExpiresAt().toEpochMilli());
+    }
+
+    // Позиции пачки возвращаются одним оператором; у горячих позиций остаток попадает в основную строку
+    private List<Reservation> returnStock(List<Reservation> expired) {
+        if (expired.isEmpty()) {
+            return expired;
+        }
+        Map<SockKey, Integer> totals = new LinkedHashMap<>();
+        for (Reservation reservation : expired) {
+            totals.merge(new SockKey(reservation.getColor(), reservation.getCottonContent()),
+                    reservation.getQuantity(), Integer::sum);
+        }
+        List<Sock> socks = new ArrayList<>(totals.size());
+        List<StockDelta> deltas = new ArrayList<>(totals.size());
+        totals.forEach((key, quantity) -> {
+            socks.add(new Sock(null, key.color(), key.cottonContent(), quantity));
+            deltas.add(new StockDelta(key, quantity));
+        });
+        sockRepository.mergeQuantities(socks);
+        eventPublisher.publishEvent(new StockChangedEvent(deltas));
+        return expired;
+    }
+
+    private void loadSafely() {
+        try {
+            reservationRepository.findAll().forEach(this::hold);
+            log.info("Loaded {} stock reservations", holds.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to load stock reservations, they will be returned by the sweep", e);
+        }
+    }
+
+    private void expireDueSafely() {
+        try {
+            expireDue();
+        } catch (RuntimeException e) {
+            log.error("Reservation expiry failed", e);
+        }
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.error("Reservation sweep failed", e);
+        }
+    }
+}
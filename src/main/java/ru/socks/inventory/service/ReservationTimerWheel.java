@@ -0,0 +1,76 @@
+package ru.socks.inventory.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Hashed timer wheel of reservation expiries. Time is cut into ticks of {@code tickMs}; a
+ * reservation goes into the slot of the tick its expiry falls into, with that tick stored,
+ * so a slot holds expiries of several turns of the wheel. Scheduling is O(1) and a tick only
+ * looks at its own slot, however many reservations are pending.
+ * <p>
+ * Cancelled reservations are not removed: the caller drops due ids that are no longer held.
+ */
+final class ReservationTimerWheel {
+
+    private final long tickMs;
+    private final long startMs;
+    private final List<Set<Entry>> slots;
+    // Следующий необработанный тик
+    private long nextTick;
+
+    ReservationTimerWheel(long tickMs, int size, long startMs) {
+        this.tickMs = tickMs;
+        this.startMs = startMs;
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            slots.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * Schedules the id at {@code expiresAtMs}; an expiry in a tick already processed goes
+     * into the next tick.
+     */
+    synchronized void schedule(UUID id, long expiresAtMs) {
+        // Тик, в котором срок уже наступил: резерв не возвращается раньше срока
+        long tick = Math.max(Math.floorDiv(expiresAtMs - startMs + tickMs - 1, tickMs), nextTick);
+        slots.get(slotOf(tick)).add(new Entry(id, tick));
+    }
+
+    /**
+     * Ids whose expiry is at or before {@code nowMs}, removed from the wheel.
+     */
+    synchronized List<UUID> advance(long nowMs) {
+        long currentTick = Math.floorDiv(nowMs - startMs, tickMs);
+        List<UUID> due = new ArrayList<>();
+        if (currentTick < nextTick) {
+            return due;
+        }
+        // После долгой паузы каждый слот просматривается один раз, а не по разу на каждый оборот
+        long lastTick = Math.min(currentTick, nextTick + slots.size() - 1);
+        for (long tick = nextTick; tick <= lastTick; tick++) {
+            Iterator<Entry> entries = slots.get(slotOf(tick)).iterator();
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                if (entry.tick() <= currentTick) {
+                    due.add(entry.id());
+                    entries.remove();
+                }
+            }
+        }
+        nextTick = currentTick + 1;
+        return due;
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.size());
+    }
+
+    private record Entry(UUID id, long tick) {
+    }
+}
@@ -0,0 +1,221 @@
+package ru.socks.inventory.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.socks.inventory.dto.HotSock;
+import ru.socks.inventory.event.StockChangedEvent;
+import ru.socks.inventory.exception.ConflictOutcomeSocksException;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.repository.ColorDictionary;
+import ru.socks.inventory.repository.SockRepository;
+import ru.socks.inventory.repository.SockShardRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sharded stock counters for hot positions.
+ * <p>
+ * The stock of a hot position is spread over N rows: its {@code socks} row (shard 0) and
+ * N-1 rows in {@code sock_stock_shards}. Writes pick a random shard, so concurrent requests
+ * for the same position mostly lock different rows. An outcome first tries single shards;
+ * if none covers the quantity, it locks all shards and borrows across them.
+ * <p>
+ * Reads always add the shard rows to the main row, whether or not the position is still
+ * marked hot, so a stale hot list on another node never changes the totals.
+ */
+@Service
+@ConditionalOnProperty(prefix = "socks.sharding", name = "enabled", havingValue = "true")
+public class ShardedStockService {
+
+    private final SockRepository sockRepository;
+    private final SockShardRepository shardRepository;
+    private final ColorDictionary colors;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int defaultShards;
+    private final long refreshMs;
+
+    private volatile Map<SockKey, Integer> hotSocks = Map.of();
+    private volatile long loadedAt;
+
+    public ShardedStockService(SockRepository sockRepository,
+                               SockShardRepository shardRepository,
+                               ColorDictionary colors,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${socks.sharding.default-shards:8}") int defaultShards,
+                               @Value("${socks.sharding.refresh-ms:5000}") long refreshMs) {
+        this.sockRepository = sockRepository;
+        this.shardRepository = shardRepository;
+        this.colors = colors;
+        this.eventPublisher = eventPublisher;
+        this.defaultShards = defaultShards;
+        this.refreshMs = refreshMs;
+    }
+
+    public boolean isHot(String color, int cottonContent) {
+        return shardCount(new SockKey(color, cottonContent)) > 1;
+    }
+
+    public void registerIncome(String color, int cottonContent, int quantity) {
+        SockKey key = new SockKey(color, cottonContent);
+        int shard = ThreadLocalRandom.current().nextInt(shardCount(key));
+        if (shard == 0) {
+            sockRepository.incrementOrInsertSock(color, cottonContent, quantity);
+        } else {
+            shardRepository.increment(key, shard, quantity);
+        }
+    }
+
+    public void registerOutcome(String color, int cottonContent, int quantity) {
+        SockKey key = new SockKey(color, cottonContent);
+        int shards = shardCount(key);
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (start + i) % shards;
+            int updatedRows = shard == 0
+                    ? sockRepository.decreaseStock(color, cottonContent, quantity)
+                    : shardRepository.decrease(key, shard, quantity);
+            if (updatedRows > 0) {
+                return;
+            }
+        }
+        borrow(key, quantity);
+    }
+
+    /**
+     * Must run before an update by id, in its transaction: the new quantity replaces the whole
+     * stock of the position, so its shard rows are folded into the main row first, and a hot mark
+     * moves to {@code newKey} together with the row. The update itself then logs one movement.
+     */
+    public void beforeUpdate(Long id, SockKey newKey) {
+        shardRepository.beginTransfer();
+        shardRepository.foldShardsOfSock(id);
+        shardRepository.endTransfer();
+        if (shardRepository.moveHotSock(id, newKey)) {
+            reloadAfterCommit();
+        }
+    }
+
+    /**
+     * Quantities held in shards 1..N-1 per position; add them to the {@code socks} row.
+     */
+    public Map<SockKey, Long> shardTotals() {
+        return shardRepository.findShardTotals();
+    }
+
+    public List<Sock> withShardTotals(List<Sock> socks) {
+        Map<SockKey, Long> totals = shardTotals();
+        if (totals.isEmpty()) {
+            return socks;
+        }
+        List<Sock> result = new ArrayList<>(socks.size());
+        for (Sock sock : socks) {
+            Long shardTotal = totals.get(SockKey.of(sock));
+            result.add(shardTotal == null
+                    ? sock
+                    : new Sock(sock.getId(), sock.getColor(), sock.getCottonContent(),
+                    Math.toIntExact(sock.getQuantity() + shardTotal)));
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public List<HotSock> getHotSocks() {
+        return shardRepository.findHotSocks();
+    }
+
+    @Transactional
+    public void markHot(HotSock hotSock) {
+        SockKey key = new SockKey(hotSock.getColor(), hotSock.getCottonContent());
+        int shards = hotSock.getShards() != null ? hotSock.getShards() : defaultShards;
+        sockRepository.incrementOrInsertSock(key.color(), key.cottonContent(), 0);
+        shardRepository.saveHotSock(key, shards);
+        eventPublisher.publishEvent(StockChangedEvent.of(key.color(), key.cottonContent(), 0));
+        reloadAfterCommit();
+    }
+
+    /**
+     * Folds the shard rows back into the main row and removes the hot mark.
+     */
+    @Transactional
+    public void unmarkHot(String color, int cottonContent) {
+        SockKey key = new SockKey(color, cottonContent);
+        Map<Integer, Integer> shards = shardRepository.lockAllShards(key);
+        if (shardRepository.deleteHotSock(key) == 0 || shards.isEmpty()) {
+            throw new ConflictOutcomeSocksException("Sock is not marked as hot");
+        }
+        long total = shards.values().stream().mapToLong(Integer::longValue).sum();
+        shardRepository.beginTransfer();
+        shardRepository.deleteShards(key);
+        shardRepository.setQuantity(key, 0, Math.toIntExact(total));
+        shardRepository.endTransfer();
+        reloadAfterCommit();
+    }
+
+    private void borrow(SockKey key, int quantity) {
+        Map<Integer, Integer> shards = shardRepository.lockAllShards(key);
+        long total = shards.values().stream().mapToLong(Integer::longValue).sum();
+        if (total < quantity) {
+            throw new ConflictOutcomeSocksException("Not enough socks in stock to perform outcome operation");
+        }
+
+        // Берём с самых полных шардов, чтобы затронуть как можно меньше строк
+        List<Map.Entry<Integer, Integer>> byQuantity = new ArrayList<>(shards.entrySet());
+        byQuantity.sort(Map.Entry.<Integer, Integer>comparingByValue(Comparator.reverseOrder()));
+        // Журнал получает одно движение на весь отпуск, а не по строке на каждый шард
+        shardRepository.beginTransfer();
+        int remaining = quantity;
+        for (Map.Entry<Integer, Integer> shard : byQuantity) {
+            if (remaining == 0) {
+                break;
+            }
+            int taken = Math.min(shard.getValue(), remaining);
+            if (taken > 0) {
+                shardRepository.setQuantity(key, shard.getKey(), shard.getValue() - taken);
+                remaining -= taken;
+            }
+        }
+        shardRepository.endTransfer();
+        shardRepository.recordMovement(key, -quantity);
+    }
+
+    private int shardCount(SockKey key) {
+        // Горячие позиции хранятся в написании словаря
+        return colors.findName(key.color())
+                .map(color -> hotSocks().getOrDefault(new SockKey(color, key.cottonContent()), 1))
+                .orElse(1);
+    }
+
+    // Сброс до коммита мог бы снова загрузить старые отметки и держать их refresh-ms
+    private void reloadAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                loadedAt = 0;
+            }
+        });
+    }
+
+    private Map<SockKey, Integer> hotSocks() {
+        long now = System.currentTimeMillis();
+        if (now - loadedAt > refreshMs) {
+            Map<SockKey, Integer> loaded = new HashMap<>();
+            for (HotSock hotSock : shardRepository.findHotSocks()) {
+                loaded.put(new SockKey(hotSock.getColor(), hotSock.getCottonContent()), hotSock.getShards());
+            }
+            hotSocks = loaded;
+            loadedAt = now;
+        }
+        return hotSocks;
+    }
+}
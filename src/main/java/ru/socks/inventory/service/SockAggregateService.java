@@ -0,0 +1,90 @@
+package ru.socks.inventory.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.socks.inventory.dto.GroupingEnum;
+import ru.socks.inventory.dto.SockAggregate;
+import ru.socks.inventory.dto.SockFilter;
+import ru.socks.inventory.repository.SockTotalsRepository;
+import ru.socks.inventory.repository.SockTotalsRepository.TotalsRow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Totals of stock for a filter, optionally grouped by color or by cotton content range.
+ * <p>
+ * Whenever the filter allows it the totals come from the summary tables, which hold at most
+ * 101 * 8 rows per cotton content and 8 rows per color. Only a color combined with a partial
+ * cotton range, or grouping by color within a partial range, falls back to summing the
+ * matching positions.
+ */
+@Service
+public class SockAggregateService {
+
+    private final SockTotalsRepository totalsRepository;
+
+    public SockAggregateService(SockTotalsRepository totalsRepository) {
+        this.totalsRepository = totalsRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public SockAggregate aggregate(SockFilter filter, GroupingEnum grouping, int bucketSize) {
+        boolean fullRange = filter.minCottonContent() <= SockFilter.MIN_COTTON_CONTENT
+                && filter.maxCottonContent() >= SockFilter.MAX_COTTON_CONTENT;
+        List<TotalsRow> rows;
+        if (fullRange && grouping != GroupingEnum.COTTON_CONTENT
+                && (filter.color() != null || grouping == GroupingEnum.COLOR)) {
+            rows = totalsRepository.findColorTotals(filter.color());
+        } else if (filter.color() != null || grouping == GroupingEnum.COLOR) {
+            rows = totalsRepository.findActualTotals(filter.color(), filter.minCottonContent(), filter.maxCottonContent());
+        } else {
+            rows = totalsRepository.findCottonTotals(filter.minCottonContent(), filter.maxCottonContent());
+        }
+
+        long totalQuantity = 0;
+        long skuCount = 0;
+        Map<String, SockAggregate.Group> groups = new TreeMap<>();
+        for (TotalsRow row : rows) {
+            totalQuantity += row.totalQuantity();
+            skuCount += row.skuCount();
+            if (grouping != null && row.skuCount() > 0) {
+                String group = grouping == GroupingEnum.COLOR ? row.color() : bucket(row.cottonContent(), bucketSize);
+                SockAggregate.Group totals = groups.computeIfAbsent(group, key -> new SockAggregate.Group(key, 0, 0));
+                totals.setTotalQuantity(totals.getTotalQuantity() + row.totalQuantity());
+                totals.setSkuCount(totals.getSkuCount() + row.skuCount());
+            }
+        }
+        return new SockAggregate(totalQuantity, skuCount, grouping != null ? sorted(groups, grouping) : null);
+    }
+
+    /**
+     * Compares the summary tables with {@code socks}; an empty list means they agree.
+     */
+    @Transactional(readOnly = true)
+    public List<String> checkConsistency() {
+        return totalsRepository.findMismatches();
+    }
+
+    private static List<SockAggregate.Group> sorted(Map<String, SockAggregate.Group> groups, GroupingEnum grouping) {
+        List<SockAggregate.Group> result = new ArrayList<>(groups.values());
+        if (grouping == GroupingEnum.COTTON_CONTENT) {
+            // Диапазоны упорядочиваем по числу, а не по строке
+            result.sort((left, right) -> Integer.compare(lowerBound(left), lowerBound(right)));
+        }
+        return result;
+    }
+
+    private static String bucket(int cottonContent, int bucketSize) {
+        int from = cottonContent / bucketSize * bucketSize;
+        int to = Math.min(from + bucketSize - 1, SockFilter.MAX_COTTON_CONTENT);
+        return from == to ? String.valueOf(from) : from + "-" + to;
+    }
+
+    private static int lowerBound(SockAggregate.Group group) {
+        int dash = group.getGroup().indexOf('-');
+        return Integer.parseInt(dash < 0 ? group.getGroup() : group.getGroup().substring(0, dash));
+    }
+}
@@ -0,0 +1,12 @@
+package ru.socks.inventory.service;
+
+import java.io.File;
+
+/**
+ * Parses a spooled batch upload and hands its data rows to a {@link SockRowHandler}
+ * one by one, in file order.
+ */
+public interface SockBatchReader {
+
+    void read(File file, SockRowHandler handler) throws Exception;
+}
@@ -0,0 +1,28 @@
+package ru.socks.inventory.service;
+
+import org.springframework.stereotype.Component;
+import ru.socks.inventory.dto.BatchFormatEnum;
+
+@Component
+public class SockBatchReaders {
+
+    private final XlsxSockBatchReader xlsxReader;
+    private final CsvSockBatchReader csvReader;
+    private final NdjsonSockBatchReader ndjsonReader;
+
+    public SockBatchReaders(XlsxSockBatchReader xlsxReader,
+                            CsvSockBatchReader csvReader,
+                            NdjsonSockBatchReader ndjsonReader) {
+        this.xlsxReader = xlsxReader;
+        this.csvReader = csvReader;
+        this.ndjsonReader = ndjsonReader;
+    }
+
+    public SockBatchReader forFormat(BatchFormatEnum format) {
+        return switch (format) {
+            case XLSX -> xlsxReader;
+            case CSV -> csvReader;
+            case NDJSON -> ndjsonReader;
+        };
+    }
+}
@@ -0,0 +1,418 @@
+package ru.socks.inventory.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.socks.inventory.metrics.SockMetrics;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.repository.ColorDictionary;
+import ru.socks.inventory.repository.SockChangeRepository;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent stream of stock changes for {@code GET /api/socks/changes}.
+ * <p>
+ * Every node listens on {@link SockChangeRepository#CHANNEL} over its own connection, outside
+ * the pool, and collects the positions named by the notifications. Every
+ * {@code socks.changes.coalesce-ms} the collected positions are read in one query and each
+ * becomes one {@code stock} event with the current position, so a burst of writes to a sock
+ * costs one event. Events carry absolute quantities, so applying one twice is harmless.
+ * A position that no longer exists, because its sock was moved to another color or cotton
+ * content, is sent with quantity 0 and no id.
+ * <p>
+ * Event ids are this instance's id and a sequence number. The last
+ * {@code socks.changes.replay-size} events are kept, and a client reconnecting with
+ * {@code Last-Event-ID} gets the ones it missed. When that is not possible (another node,
+ * a restart, an evicted id or a gap in the notifications) the client gets a {@code reset}
+ * event instead and should read {@code GET /api/socks} again. A new subscription also starts
+ * with {@code reset}, which gives the client an id to resume from.
+ * <p>
+ * Events are built under the feed lock and put on a queue of each subscriber, holding at most
+ * {@code socks.changes.subscriber-queue} events; a pool of {@code socks.changes.sender-threads}
+ * threads writes them to the clients, so a slow client never holds up the others. A client
+ * whose queue overflows gets a {@code reset} in place of the queued events and is disconnected.
+ */
+@Service
+@ConditionalOnProperty(prefix = "socks.changes", name = "enabled", havingValue = "true")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class SockChangeFeed {
+    private static final Logger log = LogManager.getLogger(SockChangeFeed.class);
+
+    public static final String STOCK = "stock";
+    public static final String RESET = "reset";
+
+    private static final int POLL_MS = 500;
+
+    private final SockChangeRepository changeRepository;
+    private final DataSourceProperties dataSourceProperties;
+    private final SockMetrics metrics;
+    private final long streamTimeoutMs;
+    private final long reconnectMs;
+    private final int replaySize;
+    private final int queueCapacity;
+    private final String instanceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    // Позиция - id цвета в старших 32 битах, содержание хлопка в младших
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Под блокировкой this: события и подписки идут в одном порядке
+    private final Deque<Change> replay = new ArrayDeque<>();
+    private long lastSeq;
+    // Клиент с этим или более поздним id может продолжить по буферу
+    private long replayFrom;
+
+    private final ExecutorService listener;
+    private final ScheduledExecutorService publisher;
+    private final ExecutorService sender;
+    private volatile boolean running = true;
+
+    public SockChangeFeed(SockChangeRepository changeRepository,
+                          DataSourceProperties dataSourceProperties,
+                          SockMetrics metrics,
+                          @Value("${socks.changes.coalesce-ms:250}") long coalesceMs,
+                          @Value("${socks.changes.replay-size:10000}") int replaySize,
+                          @Value("${socks.changes.heartbeat-ms:15000}") long heartbeatMs,
+                          @Value("${socks.changes.stream-timeout-ms:1800000}") long streamTimeoutMs,
+                          @Value("${socks.changes.reconnect-ms:1000}") long reconnectMs,
+                          @Value("${socks.changes.subscriber-queue:1000}") int queueCapacity,
+                          @Value("${socks.changes.sender-threads:4}") int senderThreads) {
+        this.changeRepository = changeRepository;
+        this.dataSourceProperties = dataSourceProperties;
+        this.metrics = metrics;
+        this.replaySize = replaySize;
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.reconnectMs = reconnectMs;
+        this.queueCapacity = queueCapacity;
+        metrics.changeSubscribers(subscribers);
+        this.listener = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "sock-change-listener");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sock-change-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderNumber = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "sock-change-sender-" + senderNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        listener.execute(this::listen);
+        publisher.scheduleWithFixedDelay(this::publishSafely, coalesceMs, coalesceMs, TimeUnit.MILLISECONDS);
+        publisher.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        listener.shutdownNow();
+        publisher.shutdownNow();
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Opens a stream of the positions of {@code color} (any color if {@code null}) with cotton
+     * content in the inclusive range, resuming after {@code lastEventId} when it is given.
+     */
+    public SseEmitter subscribe(String color, int minCottonContent, int maxCottonContent, String lastEventId) {
+        if (minCottonContent > maxCottonContent) {
+            throw new IllegalArgumentException("minCottonContent must not exceed maxCottonContent");
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, color != null ? ColorDictionary.normalize(color) : null,
+                minCottonContent, maxCottonContent);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        synchronized (this) {
+            subscribers.add(subscriber);
+            long resumeAfter = resumePoint(lastEventId);
+            if (resumeAfter < 0) {
+                subscriber.enqueue(reset());
+            } else {
+                for (Change change : replay) {
+                    if (change.seq() > resumeAfter && subscriber.matches(change.sock())) {
+                        subscriber.enqueue(stock(change));
+                    }
+                }
+            }
+        }
+        return emitter;
+    }
+
+    void publish() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Integer> colorIds = new ArrayList<>();
+        List<Integer> cottonContents = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        for (Iterator<Long> it = pending.iterator(); it.hasNext(); ) {
+            long position = it.next();
+            it.remove();
+            positions.add(position);
+            colorIds.add((int) (position >>> 32));
+            cottonContents.add((int) position);
+        }
+        if (subscribers.isEmpty()) {
+            // Читать позиции некому: пропуск в буфере, переподключившийся клиент получит reset
+            gap();
+            return;
+        }
+
+        List<Sock> socks;
+        try {
+            socks = changeRepository.findPositions(colorIds, cottonContents);
+        } catch (RuntimeException e) {
+            pending.addAll(positions);
+            throw e;
+        }
+        synchronized (this) {
+            for (Sock sock : socks) {
+                Change change = new Change(++lastSeq, sock);
+                replay.addLast(change);
+                if (replay.size() > replaySize) {
+                    replayFrom = replay.removeFirst().seq();
+                }
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.matches(sock)) {
+                        subscriber.enqueue(stock(change));
+                    }
+                }
+            }
+        }
+        metrics.changeEvents(positions.size(), socks.size());
+    }
+
+    private void listen() {
+        boolean lost = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + SockChangeRepository.CHANNEL);
+                if (lost) {
+                    log.info("Stock change listener reconnected, subscribers will be reset");
+                    gap();
+                    lost = false;
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            collect(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                // Уведомления, пришедшие без соединения, потеряны
+                lost = true;
+                log.warn("Stock change listener lost its connection, reconnecting in {} ms", reconnectMs, e);
+                try {
+                    Thread.sleep(reconnectMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void collect(String payload) {
+        for (String pair : payload.split(",")) {
+            int separator = pair.indexOf(':');
+            if (separator < 0) {
+                continue;
+            }
+            long colorId = Integer.parseInt(pair, 0, separator, 10);
+            long cottonContent = Integer.parseInt(pair, separator + 1, pair.length(), 10);
+            pending.add(colorId << 32 | cottonContent);
+        }
+    }
+
+    // Изменения после lastSeq потеряны: продолжать по буферу больше нельзя
+    private synchronized void gap() {
+        lastSeq++;
+        replay.clear();
+        replayFrom = lastSeq;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(reset());
+        }
+    }
+
+    /**
+     * Sequence number to replay after, or -1 when the client has to start over.
+     */
+    private long resumePoint(String lastEventId) {
+        if (lastEventId == null) {
+            return -1;
+        }
+        int separator = lastEventId.lastIndexOf('.');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(instanceId)) {
+            return -1;
+        }
+        try {
+            long seq = Long.parseLong(lastEventId.substring(separator + 1));
+            return seq >= replayFrom && seq <= lastSeq ? seq : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private SseEmitter.SseEventBuilder stock(Change change) {
+        return SseEmitter.event()
+                .id(instanceId + "." + change.seq())
+                .name(STOCK)
+                .data(change.sock(), MediaType.APPLICATION_JSON);
+    }
+
+    private SseEmitter.SseEventBuilder reset() {
+        return SseEmitter.event()
+                .id(instanceId + "." + lastSeq)
+                .name(RESET)
+                .data(RESET);
+    }
+
+    private synchronized void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(SseEmitter.event().comment(""));
+        }
+    }
+
+    private void publishSafely() {
+        try {
+            publish();
+        } catch (RuntimeException e) {
+            log.error("Publishing stock changes failed, retrying on the next run", e);
+        }
+    }
+
+    private record Change(long seq, Sock sock) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final String color;
+        private final int minCottonContent;
+        private final int maxCottonContent;
+        // Под блокировкой подписчика; отправка идёт без блокировок
+        private final Deque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closing;
+
+        Subscriber(SseEmitter emitter, String color, int minCottonContent, int maxCottonContent) {
+            this.emitter = emitter;
+            this.color = color;
+            this.minCottonContent = minCottonContent;
+            this.maxCottonContent = maxCottonContent;
+        }
+
+        boolean matches(Sock sock) {
+            return (color == null || color.equalsIgnoreCase(sock.getColor()))
+                    && sock.getCottonContent() >= minCottonContent
+                    && sock.getCottonContent() <= maxCottonContent;
+        }
+
+        /**
+         * Queues the event for sending; called under the feed lock, never blocks on the client.
+         */
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            synchronized (this) {
+                if (closing) {
+                    return;
+                }
+                if (queue.size() >= queueCapacity) {
+                    // Клиент не успевает читать: вместо очереди - reset, после него соединение закрывается
+                    log.debug("Stock change subscriber is too slow, resetting it");
+                    queue.clear();
+                    queue.add(reset());
+                    closing = true;
+                    subscribers.remove(this);
+                } else {
+                    queue.addLast(event);
+                }
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Узел останавливается
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = queue.pollFirst();
+                    if (event == null) {
+                        draining = false;
+                        if (!closing) {
+                            return;
+                        }
+                    }
+                }
+                if (event == null) {
+                    emitter.complete();
+                    return;
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Dropping stock change subscriber: {}", e.getMessage());
+                    synchronized (this) {
+                        queue.clear();
+                        closing = true;
+                        draining = false;
+                    }
+                    subscribers.remove(this);
+                    return;
+                }
+            }
+        }
+    }
+}
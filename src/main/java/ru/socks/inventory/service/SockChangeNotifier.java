@@ -0,0 +1,84 @@
+package ru.socks.inventory.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.socks.inventory.event.SockUpdatedEvent;
+import ru.socks.inventory.event.StockChangedEvent;
+import ru.socks.inventory.event.StockChangedEvent.StockDelta;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.repository.ColorDictionary;
+import ru.socks.inventory.repository.SockChangeRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns the change events of the write paths into notifications on
+ * {@link SockChangeRepository#CHANNEL}, sent just before the writing transaction commits.
+ * <p>
+ * A notification only names the changed positions, as {@code colorId:cottonContent} pairs
+ * separated by commas; quantities are read by the listening nodes. Payloads stay below the
+ * Postgres limit of 8000 bytes, so a large upload sends several. Color ids come from the
+ * in-memory dictionary only: the writing transaction has already resolved every color it wrote.
+ */
+@Component
+@ConditionalOnProperty(prefix = "socks.changes", name = "enabled", havingValue = "true")
+public class SockChangeNotifier {
+
+    private static final int MAX_PAYLOAD = 7900;
+
+    private final SockChangeRepository changeRepository;
+    private final ColorDictionary colors;
+
+    public SockChangeNotifier(SockChangeRepository changeRepository, ColorDictionary colors) {
+        this.changeRepository = changeRepository;
+        this.colors = colors;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        Set<SockKey> keys = new LinkedHashSet<>();
+        for (StockDelta delta : event.deltas()) {
+            keys.add(delta.key());
+        }
+        notify(keys);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onSockUpdated(SockUpdatedEvent event) {
+        // Прежняя позиция тоже изменилась: её больше нет
+        notify(new LinkedHashSet<>(List.of(event.previousKey(), event.key())));
+    }
+
+    private void notify(Collection<SockKey> keys) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder();
+        for (SockKey key : keys) {
+            // Записывающая транзакция уже прочитала или добавила цвет: он в памяти, второе соединение не нужно
+            Integer colorId = colors.cachedId(key.color());
+            if (colorId == null) {
+                continue;
+            }
+            String pair = colorId + ":" + key.cottonContent();
+            if (payload.length() + pair.length() + 1 > MAX_PAYLOAD) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+            }
+            if (payload.length() > 0) {
+                payload.append(',');
+            }
+            payload.append(pair);
+        }
+        if (payload.length() > 0) {
+            payloads.add(payload.toString());
+        }
+        if (!payloads.isEmpty()) {
+            changeRepository.notify(payloads);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package ru.socks.inventory.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.socks.inventory.dto.LedgerCursor;
+import ru.socks.inventory.dto.LedgerEntry;
+import ru.socks.inventory.dto.LedgerPage;
+import ru.socks.inventory.dto.StockPosition;
+import ru.socks.inventory.repository.ColorDictionary;
+import ru.socks.inventory.repository.SockLedgerRepository;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History of stock movements and the stock as of any moment.
+ * <p>
+ * Every change of a quantity is appended to {@code sock_ledger} by triggers, in the
+ * transaction of the change. The ledger is partitioned by month (UTC). A background task
+ * keeps partitions created ahead of time, stores a stock snapshot at the start of every
+ * month and, when {@code socks.ledger.retention-months} is set, detaches and drops the
+ * partitions that fell out of retention together with the snapshots that relied on them.
+ * The stock at a moment is the latest snapshot before it plus at most one month of movements.
+ * <p>
+ * A month is snapshotted only {@code socks.ledger.snapshot-lag-seconds} after it ended:
+ * movements are stamped with the start time of their transaction, so a transaction that was
+ * still running at the boundary could otherwise commit a movement the snapshot missed.
+ */
+@Service
+public class SockLedgerService {
+    private static final Logger log = LogManager.getLogger(SockLedgerService.class);
+
+    private final SockLedgerRepository ledgerRepository;
+    private final ColorDictionary colors;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final long snapshotLagSeconds;
+    private final ScheduledExecutorService maintenance;
+
+    public SockLedgerService(SockLedgerRepository ledgerRepository,
+                             ColorDictionary colors,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${socks.ledger.months-ahead:2}") int monthsAhead,
+                             @Value("${socks.ledger.retention-months:0}") int retentionMonths,
+                             @Value("${socks.ledger.snapshot-lag-seconds:3600}") long snapshotLagSeconds,
+                             @Value("${socks.ledger.maintenance-ms:3600000}") long maintenanceMs) {
+        this.ledgerRepository = ledgerRepository;
+        this.colors = colors;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.snapshotLagSeconds = snapshotLagSeconds;
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sock-ledger-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintainSafely, 0, maintenanceMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+    }
+
+    /**
+     * Movements in {@code [from, to)}; {@code to} defaults to now.
+     */
+    @Transactional(readOnly = true)
+    public LedgerPage getMovements(String from, String to, String color, Integer cottonContent,
+                                   String cursorToken, int limit) {
+        Instant fromInstant = parseTimestamp(from);
+        Instant toInstant = to != null ? parseTimestamp(to) : Instant.now();
+        LedgerCursor cursor = LedgerCursor.decode(cursorToken);
+        Integer colorId = null;
+        if (color != null) {
+            Optional<Integer> knownColor = colors.findId(color);
+            if (knownColor.isEmpty()) {
+                return new LedgerPage(List.of(), null);
+            }
+            colorId = knownColor.get();
+        }
+
+        List<LedgerEntry> movements = ledgerRepository.findMovements(
+                fromInstant, toInstant, colorId, cottonContent, cursor, limit + 1);
+        String nextCursor = null;
+        if (movements.size() > limit) {
+            movements = movements.subList(0, limit);
+            nextCursor = LedgerCursor.after(movements.get(limit - 1)).encode();
+        }
+        return new LedgerPage(movements, nextCursor);
+    }
+
+    /**
+     * Non-zero stock per position as of {@code at}, movements at exactly {@code at} included.
+     */
+    @Transactional(readOnly = true)
+    public List<StockPosition> getStockAt(String at) {
+        Instant instant = parseTimestamp(at);
+        Instant snapshotAt = ledgerRepository.findSnapshotAtOrBefore(instant)
+                .orElseThrow(() -> new IllegalArgumentException("Stock history starts at "
+                        + ledgerRepository.findEarliestSnapshot().map(Instant::toString).orElse("an unknown time")));
+        return ledgerRepository.findStockAt(snapshotAt, instant);
+    }
+
+    /**
+     * Stores a snapshot at {@code at} so that later rebuilds start from it. Snapshots are
+     * taken automatically at month starts; {@code at} must be later than the latest one and
+     * older than any transaction still running.
+     */
+    @Transactional
+    public void snapshot(Instant at) {
+        Instant baseAt = ledgerRepository.findLatestSnapshot()
+                .orElseThrow(() -> new IllegalStateException("Ledger has no baseline snapshot"));
+        if (!at.isAfter(baseAt)) {
+            throw new IllegalArgumentException("Snapshot must be later than " + baseAt);
+        }
+        ledgerRepository.createSnapshot(at, baseAt);
+    }
+
+    /**
+     * One maintenance pass: partitions ahead, month-start snapshots, retention. Skipped if
+     * another node is running it.
+     */
+    public void maintain() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!ledgerRepository.tryLockMaintenance()) {
+                return;
+            }
+            YearMonth current = YearMonth.now(ZoneOffset.UTC);
+            createPartitions(current);
+            takeMonthSnapshots();
+            if (retentionMonths > 0) {
+                dropExpired(current.minusMonths(retentionMonths));
+            }
+        });
+    }
+
+    private void createPartitions(YearMonth current) {
+        TreeSet<YearMonth> months = new TreeSet<>(ledgerRepository.findDefaultPartitionMonths());
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        for (YearMonth month : months) {
+            if (ledgerRepository.createPartition(month)) {
+                log.info("Created ledger partition for {}", month);
+            }
+        }
+    }
+
+    private void takeMonthSnapshots() {
+        Instant latest = ledgerRepository.findLatestSnapshot().orElse(null);
+        if (latest == null) {
+            return;
+        }
+        Instant snapshotUntil = Instant.now().minusSeconds(snapshotLagSeconds);
+        YearMonth month = YearMonth.from(latest.atOffset(ZoneOffset.UTC)).plusMonths(1);
+        Instant boundary = monthStart(month);
+        while (!boundary.isAfter(snapshotUntil)) {
+            ledgerRepository.createSnapshot(boundary, latest);
+            log.info("Took stock snapshot at {}", boundary);
+            latest = boundary;
+            month = month.plusMonths(1);
+            boundary = monthStart(month);
+        }
+    }
+
+    /**
+     * Drops the partitions of the months before {@code keepFrom}. A month is dropped only if
+     * the snapshot at the start of the next month exists, so the stock after it can still
+     * be rebuilt.
+     */
+    private void dropExpired(YearMonth keepFrom) {
+        Instant horizon = null;
+        for (YearMonth month : ledgerRepository.findPartitions()) {
+            if (!month.isBefore(keepFrom)) {
+                break;
+            }
+            Instant next = monthStart(month.plusMonths(1));
+            if (!ledgerRepository.findSnapshotAtOrBefore(next).filter(next::equals).isPresent()) {
+                break;
+            }
+            ledgerRepository.dropPartition(month);
+            log.info("Dropped ledger partition for {}", month);
+            horizon = next;
+        }
+        if (horizon != null) {
+            // Снимкам до горизонта не хватает удалённых движений
+            ledgerRepository.deleteSnapshotsBefore(horizon);
+        }
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.error("Ledger maintenance failed", e);
+        }
+    }
+
+    private static Instant monthStart(YearMonth month) {
+        return month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+    }
+
+    private static Instant parseTimestamp(String value) {
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid timestamp: " + value);
+        }
+    }
+}
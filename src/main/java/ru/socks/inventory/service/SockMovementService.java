@@ -0,0 +1,179 @@
+package ru.socks.inventory.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.socks.inventory.dto.DirectionEnum;
+import ru.socks.inventory.dto.MovementStatusEnum;
+import ru.socks.inventory.dto.SockMovement;
+import ru.socks.inventory.dto.SockMovementResult;
+import ru.socks.inventory.event.StockChangedEvent;
+import ru.socks.inventory.event.StockChangedEvent.StockDelta;
+import ru.socks.inventory.exception.ConflictOutcomeSocksException;
+import ru.socks.inventory.metrics.SockMetrics;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.repository.SockRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies many income and outcome movements in one request.
+ * <p>
+ * Movements are applied in request order. Consecutive movements of the same direction form
+ * a run that is sent as one JDBC batch: incomes of a run are summed per position first,
+ * outcomes keep one conditional update each so that every item gets its own result.
+ * Within a run the statements are ordered by position (stable, so the order per position
+ * is kept), which makes concurrent batches lock rows in the same order.
+ * <p>
+ * With {@code socks.movements.chunk-size} = 0 the whole request is one transaction;
+ * otherwise every chunk of that many movements commits on its own.
+ */
+@Service
+public class SockMovementService {
+
+    private static final Comparator<Sock> POSITION_ORDER =
+            Comparator.comparing(Sock::getColor).thenComparingInt(Sock::getCottonContent);
+
+    private final SockRepository sockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SockMetrics metrics;
+    // null, если шардирование остатков (socks.sharding.enabled) выключено
+    private final ShardedStockService shardedStock;
+    private final int chunkSize;
+
+    public SockMovementService(SockRepository sockRepository,
+                               TransactionTemplate transactionTemplate,
+                               ApplicationEventPublisher eventPublisher,
+                               SockMetrics metrics,
+                               ObjectProvider<ShardedStockService> shardedStock,
+                               @Value("${socks.movements.chunk-size:0}") int chunkSize) {
+        this.sockRepository = sockRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.shardedStock = shardedStock.getIfAvailable();
+        this.chunkSize = chunkSize;
+    }
+
+    public SockMovementResult registerMovements(List<SockMovement> movements) {
+        MovementStatusEnum[] statuses = new MovementStatusEnum[movements.size()];
+        int step = chunkSize > 0 ? chunkSize : Math.max(movements.size(), 1);
+        for (int from = 0; from < movements.size(); from += step) {
+            List<SockMovement> chunk = movements.subList(from, Math.min(from + step, movements.size()));
+            int offset = from;
+            transactionTemplate.executeWithoutResult(status -> applyChunk(chunk, statuses, offset));
+        }
+
+        int rejected = (int) Arrays.stream(statuses).filter(status -> status != MovementStatusEnum.OK).count();
+        metrics.outcomeConflicts(SockMetrics.BATCH, rejected);
+        return new SockMovementResult(statuses.length - rejected, rejected, Arrays.asList(statuses));
+    }
+
+    private void applyChunk(List<SockMovement> chunk, MovementStatusEnum[] statuses, int offset) {
+        List<StockDelta> deltas = new ArrayList<>();
+        int runStart = 0;
+        while (runStart < chunk.size()) {
+            DirectionEnum direction = chunk.get(runStart).getDirection();
+            int runEnd = runStart;
+            while (runEnd < chunk.size() && chunk.get(runEnd).getDirection() == direction) {
+                runEnd++;
+            }
+            List<Integer> batched = new ArrayList<>();
+            for (int i = runStart; i < runEnd; i++) {
+                if (isHot(chunk.get(i))) {
+                    statuses[offset + i] = applyHot(chunk.get(i), deltas);
+                } else {
+                    batched.add(i);
+                }
+            }
+            if (direction == DirectionEnum.INCOME) {
+                applyIncomes(chunk, batched, statuses, offset, deltas);
+            } else {
+                applyOutcomes(chunk, batched, statuses, offset, deltas);
+            }
+            runStart = runEnd;
+        }
+        if (!deltas.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(deltas));
+        }
+    }
+
+    private void applyIncomes(List<SockMovement> chunk, List<Integer> indexes, MovementStatusEnum[] statuses,
+                              int offset, List<StockDelta> deltas) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        // Одна позиция может встретиться в пачке несколько раз, а upsert не может изменить строку дважды
+        Map<SockKey, Integer> totals = new TreeMap<>(
+                Comparator.comparing(SockKey::color).thenComparingInt(SockKey::cottonContent));
+        for (int i : indexes) {
+            SockMovement movement = chunk.get(i);
+            totals.merge(new SockKey(movement.getColor(), movement.getCottonContent()), movement.getQuantity(), Integer::sum);
+            statuses[offset + i] = MovementStatusEnum.OK;
+        }
+        List<Sock> socks = new ArrayList<>(totals.size());
+        totals.forEach((key, quantity) -> {
+            socks.add(new Sock(null, key.color(), key.cottonContent(), quantity));
+            deltas.add(new StockDelta(key, quantity));
+        });
+        sockRepository.incrementEach(socks);
+    }
+
+    private void applyOutcomes(List<SockMovement> chunk, List<Integer> indexes, MovementStatusEnum[] statuses,
+                               int offset, List<StockDelta> deltas) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        List<Integer> ordered = new ArrayList<>(indexes);
+        ordered.sort(Comparator.comparing(i -> toSock(chunk.get(i)), POSITION_ORDER));
+        List<Sock> socks = new ArrayList<>(ordered.size());
+        for (int i : ordered) {
+            socks.add(toSock(chunk.get(i)));
+        }
+
+        int[] updatedRows = sockRepository.decreaseEach(socks);
+        for (int j = 0; j < ordered.size(); j++) {
+            Sock sock = socks.get(j);
+            if (updatedRows[j] > 0) {
+                statuses[offset + ordered.get(j)] = MovementStatusEnum.OK;
+                deltas.add(new StockDelta(SockKey.of(sock), -sock.getQuantity()));
+            } else {
+                statuses[offset + ordered.get(j)] = MovementStatusEnum.INSUFFICIENT_STOCK;
+            }
+        }
+    }
+
+    // Горячие позиции пишутся по одной через шарды, как и в SockService
+    private MovementStatusEnum applyHot(SockMovement movement, List<StockDelta> deltas) {
+        SockKey key = new SockKey(movement.getColor(), movement.getCottonContent());
+        if (movement.getDirection() == DirectionEnum.INCOME) {
+            shardedStock.registerIncome(key.color(), key.cottonContent(), movement.getQuantity());
+            deltas.add(new StockDelta(key, movement.getQuantity()));
+            return MovementStatusEnum.OK;
+        }
+        try {
+            shardedStock.registerOutcome(key.color(), key.cottonContent(), movement.getQuantity());
+        } catch (ConflictOutcomeSocksException e) {
+            return MovementStatusEnum.INSUFFICIENT_STOCK;
+        }
+        deltas.add(new StockDelta(key, -movement.getQuantity()));
+        return MovementStatusEnum.OK;
+    }
+
+    private boolean isHot(SockMovement movement) {
+        return shardedStock != null && shardedStock.isHot(movement.getColor(), movement.getCottonContent());
+    }
+
+    private static Sock toSock(SockMovement movement) {
+        return new Sock(null, movement.getColor(), movement.getCottonContent(), movement.getQuantity());
+    }
+}
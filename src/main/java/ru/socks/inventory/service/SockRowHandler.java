@@ -0,0 +1,10 @@
+package ru.socks.inventory.service;
+
+/**
+ * Receives spreadsheet rows one by one as the batch reader parses them.
+ */
+@FunctionalInterface
+public interface SockRowHandler {
+
+    void onRow(String color, int cottonContent, int quantity);
+}
@@ -1,30 +1,42 @@
 package ru.socks.inventory.service;
 
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import ru.socks.inventory.dto.BatchFormatEnum;
 import ru.socks.inventory.dto.OperatorEnum;
+import ru.socks.inventory.dto.SockCursor;
+import ru.socks.inventory.dto.SockFilter;
+import ru.socks.inventory.dto.SockPage;
 import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.dto.SortingEnum;
+import ru.socks.inventory.dto.VersionedSocks;
+import ru.socks.inventory.event.SockUpdatedEvent;
+import ru.socks.inventory.event.StockChangedEvent;
+import ru.socks.inventory.event.StockChangedEvent.StockDelta;
 import ru.socks.inventory.exception.ConflictOutcomeSocksException;
+import ru.socks.inventory.metrics.SockMetrics;
 import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.repository.ColorDictionary;
 import ru.socks.inventory.repository.SockRepository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static ru.socks.inventory.dto.SortingEnum.getSort;
 
@@ -32,27 +44,72 @@ import static ru.socks.inventory.dto.SortingEnum.getSort;
 public class SockService {
 
     private final SockRepository sockRepository;
+    private final ColorDictionary colors;
+    private final SockBatchReaders batchReaders;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SockMetrics metrics;
+    private final IngestionExecutor ingestionExecutor;
+    private final int ingestionChunkSize;
+    private final InventoryVersionService versions;
+    // null, если шардирование остатков (socks.sharding.enabled) выключено
+    private final ShardedStockService shardedStock;
     @PersistenceContext
     private EntityManager entityManager;
 
     @Autowired
-    public SockService(SockRepository sockRepository) {
+    public SockService(SockRepository sockRepository,
+                       ColorDictionary colors,
+                       SockBatchReaders batchReaders,
+                       ApplicationEventPublisher eventPublisher,
+                       SockMetrics metrics,
+                       IngestionExecutor ingestionExecutor,
+                       @Value("${socks.ingestion.chunk-size:4096}") int ingestionChunkSize,
+                       InventoryVersionService versions,
+                       ObjectProvider<ShardedStockService> shardedStock) {
         this.sockRepository = sockRepository;
+        this.colors = colors;
+        this.batchReaders = batchReaders;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.ingestionExecutor = ingestionExecutor;
+        this.ingestionChunkSize = ingestionChunkSize;
+        this.versions = versions;
+        this.shardedStock = shardedStock.getIfAvailable();
     }
 
     // Регистрация прихода носок
     @Transactional
     public void registerIncome(SockRequest request) {
-        sockRepository.incrementOrInsertSock(request.getColor(), request.getCottonContent(), request.getQuantity());
+        if (isHot(request)) {
+            shardedStock.registerIncome(request.getColor(), request.getCottonContent(), request.getQuantity());
+        } else {
+            sockRepository.incrementOrInsertSock(request.getColor(), request.getCottonContent(), request.getQuantity());
+        }
+        eventPublisher.publishEvent(StockChangedEvent.of(request.getColor(), request.getCottonContent(), request.getQuantity()));
     }
 
     // Регистрация отпуска носок
     @Transactional
     public void registerOutcome(SockRequest request) {
-        int updatedRows = sockRepository.decreaseStock(request.getColor(), request.getCottonContent(), request.getQuantity());
-        if (updatedRows == 0) {
-            throw new ConflictOutcomeSocksException("Not enough socks in stock to perform outcome operation");
+        try {
+            if (isHot(request)) {
+                shardedStock.registerOutcome(request.getColor(), request.getCottonContent(), request.getQuantity());
+            } else {
+                int updatedRows = sockRepository.decreaseStock(request.getColor(), request.getCottonContent(), request.getQuantity());
+                if (updatedRows == 0) {
+                    throw new ConflictOutcomeSocksException("Not enough socks in stock to perform outcome operation");
+                }
+            }
+        } catch (ConflictOutcomeSocksException e) {
+            metrics.outcomeConflicts(SockMetrics.DIRECT, 1);
+            throw e;
         }
+        eventPublisher.publishEvent(StockChangedEvent.of(request.getColor(), request.getCottonContent(), -request.getQuantity()));
+    }
+
+    // Горячие позиции всегда пишутся напрямую в шарды, минуя группировку записей
+    public boolean isHot(SockRequest request) {
+        return shardedStock != null && shardedStock.isHot(request.getColor(), request.getCottonContent());
     }
 
     //Получение общего количества носков с фильтрацией и сортировкой
@@ -62,8 +119,45 @@ public class SockService {
                                Integer cottonContent,
                                Integer maxCottonContent,
                                String sortBy) {
+        List<Sock> socks = findSocks(color, operation, cottonContent, maxCottonContent, sortBy);
+        return shardedStock != null ? shardedStock.withShardTotals(socks) : socks;
+    }
+
+    // То же, что getSocks, но запрос не выполняется, если у клиента актуальная версия; variant - представление ответа
+    @Transactional(readOnly = true)
+    public VersionedSocks getSocksIfNoneMatch(String color,
+                                              String operation,
+                                              Integer cottonContent,
+                                              Integer maxCottonContent,
+                                              String sortBy,
+                                              String variant,
+                                              String ifNoneMatch) {
+        // Версия читается до данных в той же транзакции: данные не старше ETag
+        String etag = InventoryVersionService.etag(String.valueOf(versions.currentVersion()),
+                color, operation, cottonContent, maxCottonContent, sortBy, variant);
+        if (InventoryVersionService.matches(ifNoneMatch, etag)) {
+            return new VersionedSocks(etag, null);
+        }
+        return new VersionedSocks(etag, getSocks(color, operation, cottonContent, maxCottonContent, sortBy));
+    }
+
+    private List<Sock> findSocks(String color,
+                                 String operation,
+                                 Integer cottonContent,
+                                 Integer maxCottonContent,
+                                 String sortBy) {
         Sort sort = getSort(sortBy);
+        boolean sortByColor = sortBy != null && SortingEnum.fromString(sortBy) == SortingEnum.COLOR;
 
+        if (color != null && (operation == null || cottonContent == null)) {
+            // Неизвестный цвет не добавляем в словарь ради пустого ответа
+            return colors.findId(color).isPresent() ? sockRepository.findByColorOrderByCottonContentAsc(color) : List.of();
+        }
+        if (sortByColor) {
+            // В таблице хранится id цвета, а не имя: сортировка по имени идёт через join со словарём
+            long[] range = cottonRange(operation, cottonContent, maxCottonContent);
+            return sockRepository.findByCottonContentInsideOrderByColorName(range[0], range[1]);
+        }
         if (operation != null && cottonContent != null) {
             OperatorEnum operatorEnum = OperatorEnum.fromString(operation);
             return switch (operatorEnum) {
@@ -71,63 +165,148 @@ public class SockService {
                 case LESS_THAN -> sockRepository.findByCottonContentLessThan(cottonContent, sort);
                 case EQUAL -> sockRepository.findByCottonContent(cottonContent, sort);
             };
-        } else if (color != null) {
-            return sockRepository.findByColorOrderByCottonContentAsc(color);
         } else if (cottonContent != null && maxCottonContent != null) {
             return sockRepository.findByCottonContentBetween(cottonContent, maxCottonContent, sort);
-        } else {
-            return sockRepository.findAll(sort);
+        }
+        return sockRepository.findAll(sort);
+    }
+
+    // Фильтр по хлопку как открытый интервал (above, below), без переполнения на границах int
+    private static long[] cottonRange(String operation, Integer cottonContent, Integer maxCottonContent) {
+        if (operation != null && cottonContent != null) {
+            return switch (OperatorEnum.fromString(operation)) {
+                case MORE_THAN -> new long[]{cottonContent, Long.MAX_VALUE};
+                case LESS_THAN -> new long[]{Long.MIN_VALUE, cottonContent};
+                case EQUAL -> new long[]{cottonContent - 1L, cottonContent + 1L};
+            };
+        }
+        if (cottonContent != null && maxCottonContent != null) {
+            return new long[]{cottonContent - 1L, maxCottonContent + 1L};
+        }
+        return new long[]{Long.MIN_VALUE, Long.MAX_VALUE};
+    }
+
+    // Постраничное получение носков: keyset по (color, cottonContent, id)
+    @Transactional(readOnly = true)
+    public SockPage getSocksPage(SockFilter filter, String cursorToken, int limit) {
+        SockCursor cursor = SockCursor.decode(cursorToken);
+        Optional<Integer> colorId = filter.color() != null ? colors.findId(filter.color()) : Optional.empty();
+        if (filter.color() != null && colorId.isEmpty()) {
+            return new SockPage(List.of(), null);
+        }
+        List<Sock> socks = colorId.isPresent()
+                ? sockRepository.findPageByColor(colorId.get(), filter.minCottonContent(), filter.maxCottonContent(),
+                cursor.cottonContent(), cursor.id(), limit + 1)
+                : sockRepository.findPage(filter.minCottonContent(), filter.maxCottonContent(),
+                cursor.color(), cursor.cottonContent(), cursor.id(), limit + 1);
+
+        String nextCursor = null;
+        if (socks.size() > limit) {
+            socks = socks.subList(0, limit);
+            nextCursor = SockCursor.after(socks.get(limit - 1)).encode();
+        }
+        if (shardedStock != null) {
+            socks = shardedStock.withShardTotals(socks);
+        }
+        return new SockPage(socks, nextCursor);
+    }
+
+    // Потоковая выгрузка носков: сущности отсоединяются сразу после передачи, чтобы контекст не рос
+    @Transactional(readOnly = true)
+    public void streamSocks(SockFilter filter, Consumer<Sock> consumer) {
+        if (filter.color() != null && colors.findId(filter.color()).isEmpty()) {
+            return;
+        }
+        Map<SockKey, Long> shardTotals = shardedStock != null ? shardedStock.shardTotals() : Map.of();
+        try (Stream<Sock> socks = filter.color() != null
+                ? sockRepository.streamByColorAndCottonContentBetweenOrderByCottonContentAsc(
+                filter.color(), filter.minCottonContent(), filter.maxCottonContent())
+                : sockRepository.streamByCottonContentBetweenOrderByColorAscCottonContentAsc(
+                filter.minCottonContent(), filter.maxCottonContent())) {
+            socks.forEach(sock -> {
+                entityManager.detach(sock);
+                Long shardTotal = shardTotals.get(SockKey.of(sock));
+                if (shardTotal != null) {
+                    sock.setQuantity(Math.toIntExact(sock.getQuantity() + shardTotal));
+                }
+                consumer.accept(sock);
+            });
         }
     }
 
     // Обновление данных носка
     @Transactional(rollbackFor = ConflictOutcomeSocksException.class)
     public void updateSock(String id, SockRequest updatedSock) {
-        int updatedRows = sockRepository.updateSockWithUniqueCheck(
+        if (shardedStock != null) {
+            shardedStock.beforeUpdate(Long.valueOf(id), new SockKey(updatedSock.getColor(), updatedSock.getCottonContent()));
+        }
+        Optional<SockKey> previousKey = sockRepository.updateSockWithUniqueCheck(
                 Long.valueOf(id),
                 updatedSock.getColor(),
                 updatedSock.getCottonContent(),
                 updatedSock.getQuantity()
         );
 
-        if (updatedRows == 0) {
+        if (previousKey.isEmpty()) {
+            metrics.updateConflict();
             throw new ConflictOutcomeSocksException("Conflict detected or sock not found");
         }
+        eventPublisher.publishEvent(new SockUpdatedEvent(Long.parseLong(id), previousKey.get(),
+                new SockKey(updatedSock.getColor(), updatedSock.getCottonContent()), updatedSock.getQuantity()));
     }
 
     //Загрузка насков через xml файл
     @Transactional(rollbackFor = Exception.class)
     public void uploadBatch(MultipartFile file) {
-        try (InputStream inputStream = file.getInputStream()) {
-            Workbook workbook = WorkbookFactory.create(inputStream);
-            Sheet sheet = workbook.getSheetAt(0);
-            ExecutorService executorService = Executors.newFixedThreadPool(4);
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-            ConcurrentHashMap<String, Sock> sockMap = new ConcurrentHashMap<>();
-
-            for (Row row : sheet) {
-                if (row.getRowNum() == 0) continue; // Skip header
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                    String color = row.getCell(0).getStringCellValue();
-                    int cottonPart = (int) row.getCell(1).getNumericCellValue();
-                    int quantity = (int) row.getCell(2).getNumericCellValue();
-
-                    String key = color + "_" + cottonPart;
-                    sockMap.merge(key, new Sock()
-                                    .setColor(color)
-                                    .setCottonContent(cottonPart)
-                                    .setQuantity(quantity),
-                            (existing, newSock) -> {
-                                existing.setQuantity(existing.getQuantity() + newSock.getQuantity());
-                                return existing;
-                            });
-                }, executorService);
-                futures.add(future);
-            }
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            sockRepository.saveAll(sockMap.values());
+        BatchFormatEnum format = BatchFormatEnum.detect(file.getContentType(), file.getOriginalFilename());
+        Path spooled = null;
+        try {
+            // Файл читается потоково с диска, чтобы память не зависела от количества строк
+            spooled = Files.createTempFile("socks-batch-", "." + format.getExtension());
+            file.transferTo(spooled);
+            importBatch(spooled, file.getSize(), format);
+        } catch (IOException e) {
+            metrics.uploadFailed();
+            throw new IllegalArgumentException("Error processing file: " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(spooled);
+        }
+    }
+
+    // Загрузка файла, уже сохранённого на диск; файл не удаляется
+    @Transactional(rollbackFor = Exception.class)
+    public void importBatch(Path file, long bytes, BatchFormatEnum format) {
+        ChunkedSockAggregator aggregator = new ChunkedSockAggregator(ingestionExecutor, ingestionChunkSize);
+        try {
+            long startedAt = System.nanoTime();
+            // Парсер только раскладывает строки по порциям, суммирование идёт в общем пуле
+            batchReaders.forFormat(format).read(file.toFile(), aggregator);
+            List<Sock> socks = aggregator.finish().entrySet().stream()
+                    .map(entry -> new Sock(null, entry.getKey().color(), entry.getKey().cottonContent(), entry.getValue()))
+                    .toList();
+            sockRepository.mergeQuantities(socks);
+            eventPublisher.publishEvent(new StockChangedEvent(socks.stream()
+                    .map(sock -> new StockDelta(SockKey.of(sock), sock.getQuantity()))
+                    .toList()));
+            metrics.uploadCompleted(aggregator.rows(), bytes, System.nanoTime() - startedAt);
         } catch (Exception e) {
+            aggregator.cancel();
+            metrics.uploadFailed();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             throw new IllegalArgumentException("Error processing file: " + e.getMessage(), e);
         }
     }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Временный файл будет удалён ОС
+        }
+    }
 }
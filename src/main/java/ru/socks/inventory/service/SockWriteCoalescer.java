@@ -0,0 +1,394 @@
+package ru.socks.inventory.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.event.StockChangedEvent;
+import ru.socks.inventory.event.StockChangedEvent.StockDelta;
+import ru.socks.inventory.exception.ConflictOutcomeSocksException;
+import ru.socks.inventory.exception.WriteNotConfirmedException;
+import ru.socks.inventory.metrics.SockMetrics;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.repository.ColorDictionary;
+import ru.socks.inventory.repository.SockRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Group commit for income and outcome requests.
+ * <p>
+ * Requests are queued in lock-striped maps keyed by color and cotton content. Every
+ * {@code socks.coalescing.window-ms} the queued requests are flushed in one transaction:
+ * all incomes go through one set-based upsert, then the rows with pending outcomes are
+ * locked and every outcome is checked in arrival order against the locked stock.
+ * The accepted outcomes are applied with one set-based decrement. Callers are released
+ * only after the flush has committed. Outcomes that would make the stock negative fail
+ * on their own with {@link ConflictOutcomeSocksException}.
+ * <p>
+ * Known colors are queued in the dictionary spelling, so spellings of a color share a queue and
+ * match the color of the rows locked by the flush. A new color is added only by the flush that
+ * applies its income; an outcome of an unknown color fails at once.
+ * <p>
+ * A caller waits at most {@code socks.coalescing.timeout-ms}. A request still queued by then is
+ * withdrawn and fails with {@link WriteNotConfirmedException}; one already being flushed fails
+ * the same way, but may still be applied. Requests left when the application stops fail too.
+ */
+@Service
+@ConditionalOnProperty(prefix = "socks.coalescing", name = "enabled", havingValue = "true")
+public class SockWriteCoalescer {
+    private static final Logger log = LogManager.getLogger(SockWriteCoalescer.class);
+
+    private static final Comparator<SockKey> KEY_ORDER =
+            Comparator.comparing(SockKey::color).thenComparingInt(SockKey::cottonContent);
+
+    private final SockRepository sockRepository;
+    private final ColorDictionary colors;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SockMetrics metrics;
+    private final long timeoutMs;
+    private final Stripe[] stripes;
+    private final ScheduledExecutorService flusher;
+    // Проверяется под блокировкой полосы: принятый запрос попадёт в последний сброс при остановке
+    private volatile boolean closed;
+
+    public SockWriteCoalescer(SockRepository sockRepository,
+                              ColorDictionary colors,
+                              TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              SockMetrics metrics,
+                              @Value("${socks.coalescing.window-ms:5}") long windowMs,
+                              @Value("${socks.coalescing.stripes:16}") int stripeCount,
+                              @Value("${socks.coalescing.timeout-ms:10000}") long timeoutMs) {
+        this.sockRepository = sockRepository;
+        this.colors = colors;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.timeoutMs = timeoutMs;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sock-write-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void registerIncome(SockRequest request) {
+        // Новый цвет попадает в словарь только в транзакции сброса
+        String color = colors.findName(request.getColor()).orElse(ColorDictionary.normalize(request.getColor()));
+        SockKey key = new SockKey(color, request.getCottonContent());
+        await(key, enqueue(key, request.getQuantity(), true));
+    }
+
+    public void registerOutcome(SockRequest request) {
+        // Неизвестного цвета нет на складе: отказ сразу, без очереди и без записи в словарь
+        String color = colors.findName(request.getColor()).orElse(null);
+        if (color == null) {
+            metrics.outcomeConflicts(SockMetrics.COALESCED, 1);
+            throw new ConflictOutcomeSocksException("Not enough socks in stock to perform outcome operation");
+        }
+        SockKey key = new SockKey(color, request.getCottonContent());
+        await(key, enqueue(key, request.getQuantity(), false));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        closed = true;
+        flusher.shutdown();
+        if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Write coalescer flush did not finish in 5 s");
+        }
+        flushSafely();
+        // Обычно пусто; не дождавшиеся сброса запросы не должны висеть до таймаута
+        WriteNotConfirmedException stopped = new WriteNotConfirmedException("the application is stopping");
+        drain().forEach(movements -> movements.fail(stopped));
+    }
+
+    private Stripe stripeOf(SockKey key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    private CompletableFuture<Void> enqueue(SockKey key, int quantity, boolean income) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            if (closed) {
+                throw new WriteNotConfirmedException("the application is stopping");
+            }
+            PendingMovements movements = stripe.pending.computeIfAbsent(key, PendingMovements::new);
+            return income
+                    ? movements.addIncome(quantity)
+                    : movements.addOutcome(quantity);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void await(SockKey key, CompletableFuture<Void> waiter) {
+        try {
+            waiter.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new WriteNotConfirmedException(withdraw(key, waiter)
+                    ? "not applied in " + timeoutMs + " ms, retry later"
+                    : "no commit in " + timeoutMs + " ms, the write may still be applied");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            withdraw(key, waiter);
+            throw new WriteNotConfirmedException("interrupted while waiting for the commit");
+        }
+    }
+
+    /**
+     * Removes a request that has not been drained yet.
+     *
+     * @return {@code true} if the request will not be applied
+     */
+    private boolean withdraw(SockKey key, CompletableFuture<Void> waiter) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            PendingMovements movements = stripe.pending.get(key);
+            return movements != null && movements.remove(waiter);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Write coalescer flush failed: {}", e.getMessage());
+        }
+    }
+
+    private void flush() {
+        List<PendingMovements> batch = drain();
+        if (batch.isEmpty()) {
+            return;
+        }
+        batch.sort(Comparator.comparing((PendingMovements movements) -> movements.key, KEY_ORDER));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch));
+        } catch (RuntimeException e) {
+            batch.forEach(movements -> movements.fail(e));
+            return;
+        }
+        int rejected = 0;
+        for (PendingMovements movements : batch) {
+            rejected += movements.complete();
+        }
+        metrics.outcomeConflicts(SockMetrics.COALESCED, rejected);
+    }
+
+    private List<PendingMovements> drain() {
+        List<PendingMovements> batch = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                batch.addAll(stripe.pending.values());
+                stripe.pending.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return batch;
+    }
+
+    private void apply(List<PendingMovements> batch) {
+        List<Sock> incomes = new ArrayList<>();
+        List<SockKey> outcomeKeys = new ArrayList<>();
+        for (PendingMovements movements : batch) {
+            movements.resetDecisions();
+            if (movements.incomeTotal > 0) {
+                incomes.add(movements.toSock(movements.incomeTotal));
+            }
+            if (!movements.outcomes.isEmpty()) {
+                outcomeKeys.add(movements.key);
+            }
+        }
+        if (!incomes.isEmpty()) {
+            sockRepository.mergeQuantities(incomes);
+        }
+        if (outcomeKeys.isEmpty()) {
+            publishChanges(incomes, List.of());
+            return;
+        }
+
+        Map<SockKey, Integer> available = new HashMap<>();
+        for (Sock sock : sockRepository.lockForUpdate(outcomeKeys)) {
+            available.put(SockKey.of(sock), sock.getQuantity());
+        }
+
+        List<Sock> decrements = new ArrayList<>();
+        for (PendingMovements movements : batch) {
+            if (movements.outcomes.isEmpty()) {
+                continue;
+            }
+            int stock = available.getOrDefault(movements.key, 0);
+            int accepted = movements.decideOutcomes(stock);
+            if (accepted > 0) {
+                decrements.add(movements.toSock(accepted));
+            }
+        }
+        if (!decrements.isEmpty()) {
+            sockRepository.decreaseQuantities(decrements);
+        }
+        publishChanges(incomes, decrements);
+    }
+
+    private void publishChanges(List<Sock> incomes, List<Sock> decrements) {
+        List<StockDelta> deltas = new ArrayList<>(incomes.size() + decrements.size());
+        incomes.forEach(sock -> deltas.add(new StockDelta(SockKey.of(sock), sock.getQuantity())));
+        decrements.forEach(sock -> deltas.add(new StockDelta(SockKey.of(sock), -sock.getQuantity())));
+        if (!deltas.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(deltas));
+        }
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<SockKey, PendingMovements> pending = new HashMap<>();
+    }
+
+    /**
+     * Requests queued for one color/cotton pair during the current window.
+     * Mutated under the owning stripe lock until drained, then only by the flusher thread.
+     */
+    private static final class PendingMovements {
+        private final SockKey key;
+        private final List<PendingIncome> incomes = new ArrayList<>();
+        private final List<PendingOutcome> outcomes = new ArrayList<>();
+        private int incomeTotal;
+
+        private PendingMovements(SockKey key) {
+            this.key = key;
+        }
+
+        private CompletableFuture<Void> addIncome(int quantity) {
+            if (quantity > Integer.MAX_VALUE - incomeTotal) {
+                // Отклоняется только этот запрос, остальные позиции окна не затронуты
+                throw new IllegalArgumentException("Queued income for this sock would exceed " + Integer.MAX_VALUE);
+            }
+            PendingIncome income = new PendingIncome(quantity);
+            incomeTotal += quantity;
+            incomes.add(income);
+            return income.waiter;
+        }
+
+        private CompletableFuture<Void> addOutcome(int quantity) {
+            PendingOutcome outcome = new PendingOutcome(quantity);
+            outcomes.add(outcome);
+            return outcome.waiter;
+        }
+
+        private boolean remove(CompletableFuture<Void> waiter) {
+            for (PendingIncome income : incomes) {
+                if (income.waiter == waiter) {
+                    incomes.remove(income);
+                    incomeTotal -= income.quantity;
+                    return true;
+                }
+            }
+            return outcomes.removeIf(outcome -> outcome.waiter == waiter);
+        }
+
+        private void resetDecisions() {
+            outcomes.forEach(outcome -> outcome.accepted = false);
+        }
+
+        /**
+         * Accepts outcomes in arrival order while the stock covers them.
+         *
+         * @return the total quantity to subtract
+         */
+        private int decideOutcomes(int stock) {
+            int remaining = stock;
+            for (PendingOutcome outcome : outcomes) {
+                if (outcome.quantity <= remaining) {
+                    remaining -= outcome.quantity;
+                    outcome.accepted = true;
+                }
+            }
+            return stock - remaining;
+        }
+
+        private Sock toSock(int quantity) {
+            return new Sock()
+                    .setColor(key.color())
+                    .setCottonContent(key.cottonContent())
+                    .setQuantity(quantity);
+        }
+
+        /**
+         * @return the number of rejected outcomes
+         */
+        private int complete() {
+            incomes.forEach(income -> income.waiter.complete(null));
+            int rejected = 0;
+            for (PendingOutcome outcome : outcomes) {
+                if (outcome.accepted) {
+                    outcome.waiter.complete(null);
+                } else {
+                    outcome.waiter.completeExceptionally(new ConflictOutcomeSocksException(
+                            "Not enough socks in stock to perform outcome operation"));
+                    rejected++;
+                }
+            }
+            return rejected;
+        }
+
+        private void fail(RuntimeException e) {
+            incomes.forEach(income -> income.waiter.completeExceptionally(e));
+            outcomes.forEach(outcome -> outcome.waiter.completeExceptionally(e));
+        }
+    }
+
+    private static final class PendingIncome {
+        private final int quantity;
+        private final CompletableFuture<Void> waiter = new CompletableFuture<>();
+
+        private PendingIncome(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    private static final class PendingOutcome {
+        private final int quantity;
+        private final CompletableFuture<Void> waiter = new CompletableFuture<>();
+        private boolean accepted;
+
+        private PendingOutcome(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
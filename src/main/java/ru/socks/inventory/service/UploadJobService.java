@@ -0,0 +1,293 @@
+package ru.socks.inventory.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import ru.socks.inventory.dto.BatchFormatEnum;
+import ru.socks.inventory.dto.UploadJob;
+import ru.socks.inventory.dto.UploadJobStatusEnum;
+import ru.socks.inventory.event.StockChangedEvent;
+import ru.socks.inventory.event.StockChangedEvent.StockDelta;
+import ru.socks.inventory.exception.UploadJobConflictException;
+import ru.socks.inventory.exception.UploadJobNotFoundException;
+import ru.socks.inventory.exception.UploadQueueFullException;
+import ru.socks.inventory.metrics.SockMetrics;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.repository.SockRepository;
+import ru.socks.inventory.repository.UploadJobRepository;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background batch uploads.
+ * <p>
+ * The uploaded file is spooled to {@code socks.upload-jobs.dir} and a job id is returned
+ * right away. A worker then streams the file and applies it in chunks of
+ * {@code socks.upload-jobs.chunk-rows} data rows: every chunk is summed per position and
+ * merged into the stock in its own transaction, together with the job checkpoint. An
+ * invalid row or any other error fails the job; the chunks committed before it stay applied.
+ * <p>
+ * A failed job can be resumed: the file is read again and the rows up to the checkpoint are
+ * skipped. The spooled file is kept until the job completes, so a job can only be resumed
+ * on the node that holds its file. A sweep every {@code socks.upload-jobs.sweep-ms} removes
+ * the files of jobs that stayed failed for {@code socks.upload-jobs.failed-retention-seconds}
+ * and files left without a job.
+ * <p>
+ * At most {@code socks.upload-jobs.queue-capacity} jobs wait for a worker; beyond that a job is
+ * marked failed and can be resumed later. Queued jobs whose files are on this node are queued
+ * again at startup.
+ */
+@Service
+public class UploadJobService {
+
+    private static final Logger log = LogManager.getLogger(UploadJobService.class);
+
+    private final UploadJobRepository jobRepository;
+    private final SockRepository sockRepository;
+    private final SockBatchReaders batchReaders;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SockMetrics metrics;
+    private final Path directory;
+    private final int chunkRows;
+    private final long staleSeconds;
+    private final long failedRetentionSeconds;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService maintenance;
+
+    public UploadJobService(UploadJobRepository jobRepository,
+                            SockRepository sockRepository,
+                            SockBatchReaders batchReaders,
+                            TransactionTemplate transactionTemplate,
+                            ApplicationEventPublisher eventPublisher,
+                            SockMetrics metrics,
+                            @Value("${socks.upload-jobs.dir:${java.io.tmpdir}/socks-upload-jobs}") Path directory,
+                            @Value("${socks.upload-jobs.chunk-rows:10000}") int chunkRows,
+                            @Value("${socks.upload-jobs.stale-seconds:600}") long staleSeconds,
+                            @Value("${socks.upload-jobs.workers:2}") int workers,
+                            @Value("${socks.upload-jobs.queue-capacity:100}") int queueCapacity,
+                            @Value("${socks.upload-jobs.failed-retention-seconds:259200}") long failedRetentionSeconds,
+                            @Value("${socks.upload-jobs.sweep-ms:3600000}") long sweepMs) throws IOException {
+        this.jobRepository = jobRepository;
+        this.sockRepository = sockRepository;
+        this.batchReaders = batchReaders;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.directory = Files.createDirectories(directory);
+        this.chunkRows = chunkRows;
+        this.staleSeconds = staleSeconds;
+        this.failedRetentionSeconds = failedRetentionSeconds;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "socks-upload-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "socks-upload-job-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.execute(this::enqueueLocalSafely);
+        maintenance.scheduleWithFixedDelay(this::sweepSafely, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    public UploadJob submit(MultipartFile file) {
+        String id = UUID.randomUUID().toString();
+        BatchFormatEnum format = BatchFormatEnum.detect(file.getContentType(), file.getOriginalFilename());
+        // Формат восстанавливается при запуске по расширению сохранённого файла
+        Path spooled = directory.resolve(id + "." + format.getExtension());
+        try {
+            file.transferTo(spooled);
+        } catch (IOException e) {
+            metrics.uploadFailed();
+            throw new IllegalArgumentException("Error processing file: " + e.getMessage(), e);
+        }
+        jobRepository.create(id, file.getOriginalFilename(), spooled.toString(), file.getSize());
+        enqueue(id, 1);
+        return getJob(id);
+    }
+
+    public UploadJob getJob(String id) {
+        return jobRepository.findById(id).orElseThrow(() -> new UploadJobNotFoundException(id));
+    }
+
+    public UploadJob resume(String id) {
+        UploadJob job = getJob(id);
+        if (job.getStatus() != UploadJobStatusEnum.COMPLETED && !Files.exists(Path.of(job.getFilePath()))) {
+            throw new UploadJobConflictException("the file of job " + id + " is not on this node");
+        }
+        int attempt = jobRepository.requeue(id, staleSeconds)
+                .orElseThrow(() -> new UploadJobConflictException("job " + id + " is " + job.getStatus().getStatus()
+                        + " and cannot be resumed"));
+        enqueue(id, attempt);
+        return getJob(id);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+        workers.shutdown();
+    }
+
+    private void enqueue(String id, int attempt) {
+        try {
+            workers.execute(() -> run(id, attempt));
+        } catch (RejectedExecutionException e) {
+            // Файл остаётся: задание можно продолжить, когда очередь освободится
+            jobRepository.markFailed(id, attempt, "Upload queue is full");
+            throw new UploadQueueFullException("job " + id + " was not started, resume it later");
+        }
+    }
+
+    /**
+     * Removes the files of jobs failed longer than the retention and files without a job.
+     */
+    void sweep() throws IOException {
+        for (UploadJob job : jobRepository.findFailedBefore(failedRetentionSeconds)) {
+            Path file = Path.of(job.getFilePath());
+            if (file.startsWith(directory) && Files.deleteIfExists(file)) {
+                jobRepository.noteFileRemoved(job.getId());
+                log.info("Removed the file of upload job {}, failed since {}", job.getId(), job.getUpdatedAt());
+            }
+        }
+        // Файл без задания: запись не создалась после сохранения файла; свежий файл может ждать своей записи
+        Instant orphanedBefore = Instant.now().minusSeconds(staleSeconds);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int dot = name.indexOf('.');
+                String id = dot < 0 ? name : name.substring(0, dot);
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(orphanedBefore)
+                        && jobRepository.findById(id).isEmpty()) {
+                    Files.deleteIfExists(file);
+                    log.info("Removed upload file {} without a job", file);
+                }
+            }
+        }
+    }
+
+    // Задания в очереди при остановке узла: их файлы здесь, значит, больше их никто не запустит
+    private void enqueueLocalSafely() {
+        try {
+            for (UploadJob job : jobRepository.findQueued()) {
+                if (Files.exists(Path.of(job.getFilePath()))) {
+                    try {
+                        enqueue(job.getId(), job.getAttempt());
+                    } catch (UploadQueueFullException e) {
+                        log.warn("Upload job {} left from the previous run was not queued: {}", job.getId(), e.getMessage());
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to queue upload jobs left from the previous run, resume them by hand", e);
+        }
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (IOException | RuntimeException e) {
+            log.error("Upload job sweep failed", e);
+        }
+    }
+
+    private void run(String id, int attempt) {
+        if (!jobRepository.markRunning(id, attempt)) {
+            return; // Задание уже перезапущено другим запросом
+        }
+        UploadJob job = getJob(id);
+        ChunkWriter writer = new ChunkWriter(id, attempt, job.getRowsCommitted());
+        try {
+            long startedAt = System.nanoTime();
+            BatchFormatEnum format = BatchFormatEnum.detect(null, job.getFilePath());
+            batchReaders.forFormat(format).read(Path.of(job.getFilePath()).toFile(), writer);
+            writer.commit();
+            if (jobRepository.markCompleted(id, attempt)) {
+                Files.deleteIfExists(Path.of(job.getFilePath()));
+            }
+            metrics.uploadCompleted(writer.rows - job.getRowsCommitted(), job.getFileBytes(), System.nanoTime() - startedAt);
+        } catch (Exception e) {
+            log.warn("Upload job {} failed after {} rows", id, writer.committedRows, e);
+            metrics.uploadFailed();
+            jobRepository.markFailed(id, attempt, e.getMessage());
+        }
+    }
+
+    /**
+     * Sums the rows after the checkpoint into chunks and commits every full chunk.
+     */
+    private final class ChunkWriter implements SockRowHandler {
+        private final String id;
+        private final int attempt;
+        private final Map<SockKey, Integer> chunk = new HashMap<>();
+
+        private long committedRows;
+        private long rows;
+
+        private ChunkWriter(String id, int attempt, long committedRows) {
+            this.id = id;
+            this.attempt = attempt;
+            this.committedRows = committedRows;
+        }
+
+        @Override
+        public void onRow(String color, int cottonContent, int quantity) {
+            rows++;
+            if (rows <= committedRows) {
+                return; // Строка применена при прошлом запуске
+            }
+            if (cottonContent < 0 || cottonContent > 100 || quantity <= 0) {
+                throw new IllegalArgumentException("Invalid row " + rows + ": " + color + ", " + cottonContent + ", " + quantity);
+            }
+            ChunkedSockAggregator.add(chunk, new SockKey(color, cottonContent), quantity);
+            if (rows - committedRows == chunkRows) {
+                commit();
+            }
+        }
+
+        private void commit() {
+            if (rows == committedRows) {
+                return;
+            }
+            List<Sock> socks = chunk.entrySet().stream()
+                    .map(entry -> new Sock(null, entry.getKey().color(), entry.getKey().cottonContent(), entry.getValue()))
+                    .toList();
+            transactionTemplate.executeWithoutResult(status -> {
+                // Отметка двигается в той же транзакции, что и остатки: порция применяется ровно один раз
+                if (!jobRepository.checkpoint(id, attempt, committedRows, rows)) {
+                    throw new IllegalStateException("Upload job " + id + " was resumed elsewhere");
+                }
+                sockRepository.mergeQuantities(socks);
+                eventPublisher.publishEvent(new StockChangedEvent(socks.stream()
+                        .map(sock -> new StockDelta(SockKey.of(sock), sock.getQuantity()))
+                        .toList()));
+            });
+            committedRows = rows;
+            chunk.clear();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package ru.socks.inventory.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.springframework.stereotype.Component;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Streams the first sheet of an XLSX file through the XSSF event API.
+ * <p>
+ * Rows are handed to a {@link SockRowHandler} as soon as they are parsed, so memory
+ * does not grow with the number of rows. Only the shared strings table (the distinct
+ * colors) is kept in memory. The first row is treated as a header and skipped.
+ */
+@Component
+public class XlsxSockBatchReader implements SockBatchReader {
+
+    private static final int COLOR_COLUMN = 0;
+    private static final int COTTON_COLUMN = 1;
+    private static final int QUANTITY_COLUMN = 2;
+
+    @Override
+    public void read(File file, SockRowHandler handler)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("Workbook contains no sheets");
+            }
+
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new SheetHandler(strings, handler));
+            try (InputStream sheet = sheets.next()) {
+                parser.parse(new InputSource(sheet));
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    /**
+     * Minimal sheet handler working on raw cell values: numeric cells are read as stored,
+     * without going through DataFormatter, which matches {@code Cell.getNumericCellValue()}.
+     */
+    private static final class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable strings;
+        private final SockRowHandler handler;
+        private final StringBuilder text = new StringBuilder();
+
+        private int rowNum;
+        private int column;
+        private int nextColumn;
+        private String cellType;
+        private boolean collecting;
+        private int cellsInRow;
+
+        private String color;
+        private String cottonContent;
+        private String quantity;
+
+        private SheetHandler(ReadOnlySharedStringsTable strings, SockRowHandler handler) {
+            this.strings = strings;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attributes.getValue("r");
+                    rowNum = r != null ? Integer.parseInt(r) : rowNum + 1;
+                    nextColumn = 0;
+                    cellsInRow = 0;
+                    color = null;
+                    cottonContent = null;
+                    quantity = null;
+                }
+                case "c" -> {
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? columnIndex(ref) : nextColumn;
+                    nextColumn = column + 1;
+                    cellType = attributes.getValue("t");
+                    text.setLength(0);
+                }
+                case "v", "t" -> collecting = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> collecting = false;
+                case "c" -> onCell();
+                case "row" -> onRow();
+                default -> {
+                }
+            }
+        }
+
+        private void onCell() {
+            if (text.length() == 0) {
+                return;
+            }
+            cellsInRow++;
+            String value = "s".equals(cellType)
+                    ? strings.getItemAt(Integer.parseInt(text.toString())).getString()
+                    : text.toString();
+            switch (column) {
+                case COLOR_COLUMN -> color = value;
+                case COTTON_COLUMN -> cottonContent = value;
+                case QUANTITY_COLUMN -> quantity = value;
+                default -> {
+                }
+            }
+        }
+
+        private void onRow() {
+            if (rowNum == 1 || cellsInRow == 0) {
+                return; // Skip header and rows without values
+            }
+            if (color == null || cottonContent == null || quantity == null) {
+                throw new IllegalArgumentException("Row " + rowNum + " must contain color, cotton part and quantity");
+            }
+            handler.onRow(color, toInt(cottonContent), toInt(quantity));
+        }
+
+        private int toInt(String value) {
+            try {
+                return (int) Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Row " + rowNum + " contains non-numeric value: " + value);
+            }
+        }
+
+        private static int columnIndex(String cellReference) {
+            int index = 0;
+            for (int i = 0; i < cellReference.length(); i++) {
+                char ch = cellReference.charAt(i);
+                if (ch < 'A' || ch > 'Z') {
+                    break;
+                }
+                index = index * 26 + (ch - 'A' + 1);
+            }
+            return index - 1;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package ru.socks.inventory.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.socks.inventory.dto.BatchFormatEnum;
+import ru.socks.inventory.dto.SockFilter;
+import ru.socks.inventory.dto.SockMovement;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.dto.SortingEnum;
+import ru.socks.inventory.event.SockUpdatedEvent;
+import ru.socks.inventory.event.StockChangedEvent;
+import ru.socks.inventory.exception.ConflictOutcomeSocksException;
+import ru.socks.inventory.metrics.SockMetrics;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import ru.socks.inventory.repository.ReactiveSockRepository;
+import ru.socks.inventory.service.SockMovementService;
+import ru.socks.inventory.service.SockService;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * WebFlux handlers of the {@code /api/socks} contract. Income, outcome, update and the filtered
+ * list go through {@link ReactiveSockRepository} without blocking. The batch upload and the batch
+ * movements reuse the blocking services on the bounded elastic scheduler. Responses and error
+ * bodies are the same as in {@code SocksController} and {@code GlobalExceptionHandler}.
+ * <p>
+ * Every write statement commits on its own, after which the handler publishes the same events
+ * and metrics as {@code SockService}, so the read model and the change feed see reactive writes too.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSocksHandler {
+
+    private static final ParameterizedTypeReference<List<SockMovement>> MOVEMENTS =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final ReactiveSockRepository sockRepository;
+    private final SockService sockService;
+    private final SockMovementService movementService;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SockMetrics metrics;
+
+    public ReactiveSocksHandler(ReactiveSockRepository sockRepository,
+                                SockService sockService,
+                                SockMovementService movementService,
+                                Validator validator,
+                                ApplicationEventPublisher eventPublisher,
+                                SockMetrics metrics) {
+        this.sockRepository = sockRepository;
+        this.sockService = sockService;
+        this.movementService = movementService;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+    }
+
+    public Mono<ServerResponse> registerIncome(ServerRequest request) {
+        return request.bodyToMono(SockRequest.class)
+                .map(this::validate)
+                .flatMap(socks -> sockRepository.incrementOrInsertSock(
+                                socks.getColor(), socks.getCottonContent(), socks.getQuantity())
+                        .then(publish(StockChangedEvent.of(socks.getColor(), socks.getCottonContent(), socks.getQuantity()))))
+                .then(ServerResponse.ok().bodyValue("Income registered successfully"))
+                .onErrorResume(ReactiveSocksHandler::error);
+    }
+
+    public Mono<ServerResponse> registerOutcome(ServerRequest request) {
+        return request.bodyToMono(SockRequest.class)
+                .map(this::validate)
+                .flatMap(socks -> sockRepository.decreaseStock(
+                                socks.getColor(), socks.getCottonContent(), socks.getQuantity())
+                        .flatMap(updatedRows -> {
+                            if (updatedRows == 0) {
+                                metrics.outcomeConflicts(SockMetrics.DIRECT, 1);
+                                return Mono.error(new ConflictOutcomeSocksException(
+                                        "Not enough socks in stock to perform outcome operation"));
+                            }
+                            return publish(StockChangedEvent.of(socks.getColor(), socks.getCottonContent(), -socks.getQuantity()));
+                        }))
+                .then(ServerResponse.ok().bodyValue("Outcome registered successfully"))
+                .onErrorResume(ReactiveSocksHandler::error);
+    }
+
+    public Mono<ServerResponse> getSocks(ServerRequest request) {
+        return Mono.fromCallable(() -> {
+                    String color = request.queryParam("color").orElse(null);
+                    String operation = request.queryParam("operation").orElse(null);
+                    Integer cottonContent = intParam(request, "cottonContent");
+                    Integer maxCottonContent = intParam(request, "maxCottonContent");
+                    String sortBy = request.queryParam("sortBy").orElse(null);
+                    if (cottonContent != null && cottonContent < SockFilter.MIN_COTTON_CONTENT) {
+                        throw new ConstraintException("getSocks.cottonContent: must be greater than or equal to 0");
+                    }
+                    if (maxCottonContent != null && maxCottonContent > SockFilter.MAX_COTTON_CONTENT) {
+                        throw new ConstraintException("getSocks.maxCottonContent: must be less than or equal to 100");
+                    }
+
+                    SockFilter filter = SockFilter.of(color, operation, cottonContent, maxCottonContent);
+                    // Как и в SockService: фильтр по цвету всегда упорядочен по содержанию хлопка
+                    SortingEnum sorting = filter.color() != null
+                            ? SortingEnum.COTTON_CONTENT
+                            : sortBy != null ? SortingEnum.fromString(sortBy) : null;
+                    return sockRepository.findSocks(filter, sorting);
+                })
+                .flatMap(socks -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(socks, Sock.class))
+                .onErrorResume(ReactiveSocksHandler::error);
+    }
+
+    public Mono<ServerResponse> updateSocks(ServerRequest request) {
+        return Mono.fromCallable(() -> Long.valueOf(request.pathVariable("id")))
+                .zipWith(request.bodyToMono(SockRequest.class).map(this::validate))
+                .flatMap(idAndSocks -> {
+                    long id = idAndSocks.getT1();
+                    SockRequest socks = idAndSocks.getT2();
+                    return sockRepository.updateSockWithUniqueCheck(id, socks.getColor(), socks.getCottonContent(), socks.getQuantity())
+                            .switchIfEmpty(Mono.defer(() -> {
+                                metrics.updateConflict();
+                                return Mono.error(new ConflictOutcomeSocksException("Conflict detected or sock not found"));
+                            }))
+                            .flatMap(previousKey -> publish(new SockUpdatedEvent(id, previousKey,
+                                    new SockKey(socks.getColor(), socks.getCottonContent()), socks.getQuantity())));
+                })
+                .then(ServerResponse.ok().bodyValue("Socks updated successfully"))
+                .onErrorResume(ReactiveSocksHandler::error);
+    }
+
+    public Mono<ServerResponse> uploadBatch(ServerRequest request) {
+        return request.multipartData()
+                .flatMap(parts -> Optional.ofNullable(parts.getFirst("file"))
+                        .filter(FilePart.class::isInstance)
+                        .map(part -> Mono.just((FilePart) part))
+                        .orElseGet(() -> Mono.error(new IllegalArgumentException("Required part 'file' is not present"))))
+                .flatMap(file -> {
+                    MediaType contentType = file.headers().getContentType();
+                    BatchFormatEnum format = BatchFormatEnum.detect(
+                            contentType != null ? contentType.toString() : null, file.filename());
+                    return Mono.fromCallable(() -> Files.createTempFile("socks-batch-", "." + format.getExtension()))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .flatMap(spooled -> file.transferTo(spooled)
+                                    .then(Mono.fromRunnable(() -> sockService.importBatch(spooled, size(spooled), format))
+                                            .subscribeOn(Schedulers.boundedElastic()))
+                                    .doFinally(signal -> deleteQuietly(spooled)));
+                })
+                .then(ServerResponse.ok().bodyValue("Batch uploaded successfully"))
+                .onErrorResume(ReactiveSocksHandler::error);
+    }
+
+    public Mono<ServerResponse> registerMovements(ServerRequest request) {
+        return request.bodyToMono(MOVEMENTS)
+                .map(movements -> {
+                    if (movements.isEmpty()) {
+                        throw new ConstraintException("registerMovements.movements: must not be empty");
+                    }
+                    movements.forEach(this::validate);
+                    return movements;
+                })
+                .flatMap(movements -> Mono.fromCallable(() -> movementService.registerMovements(movements))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(result -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(result))
+                .onErrorResume(ReactiveSocksHandler::error);
+    }
+
+    // Запись уже закоммичена; слушатели блокирующие (JDBC), поэтому не на event loop
+    private Mono<Void> publish(Object event) {
+        return Mono.fromRunnable(() -> eventPublisher.publishEvent(event))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private <T> T validate(T body) {
+        Set<ConstraintViolation<T>> violations = validator.validate(body);
+        if (!violations.isEmpty()) {
+            StringBuilder message = new StringBuilder("Validation errors: ");
+            for (ConstraintViolation<T> violation : violations) {
+                message.append(String.format("Field: %s, Error: %s; ", violation.getPropertyPath(), violation.getMessage()));
+            }
+            throw new ValidationException(message.toString());
+        }
+        return body;
+    }
+
+    private static Integer intParam(ServerRequest request, String name) {
+        return request.queryParam(name).map(Integer::valueOf).orElse(null);
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Временный файл будет удалён ОС
+        }
+    }
+
+    private static Mono<ServerResponse> error(Throwable e) {
+        if (e instanceof ValidationException) {
+            return text(HttpStatus.BAD_REQUEST, e.getMessage());
+        } else if (e instanceof ConstraintException) {
+            return text(HttpStatus.BAD_REQUEST, "Validation failed: " + e.getMessage());
+        } else if (e instanceof ConflictOutcomeSocksException) {
+            return text(HttpStatus.CONFLICT, "Conflict while searching for socks: " + e.getMessage());
+        } else if (e instanceof IllegalArgumentException || e instanceof ServerWebInputException) {
+            return text(HttpStatus.BAD_REQUEST, "Invalid data format: " + e.getMessage());
+        }
+        return text(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred: " + e.getMessage());
+    }
+
+    private static Mono<ServerResponse> text(HttpStatus status, String body) {
+        return ServerResponse.status(status).contentType(MediaType.TEXT_PLAIN).bodyValue(body);
+    }
+
+    // Ошибка проверки тела запроса, как MethodArgumentNotValidException
+    private static final class ValidationException extends RuntimeException {
+        private ValidationException(String message) {
+            super(message);
+        }
+    }
+
+    // Ошибка проверки параметров запроса, как ConstraintViolationException
+    private static final class ConstraintException extends RuntimeException {
+        private ConstraintException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.socks.inventory.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PUT;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Routes of the reactive profile ({@code spring.main.web-application-type=reactive}).
+ * <p>
+ * Reactive writes go straight to the {@code socks} row, so the profile refuses to start with
+ * sharding (stock of hot socks lives in the shard rows) or write coalescing enabled.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSocksRouter {
+
+    public ReactiveSocksRouter(@Value("${socks.sharding.enabled:false}") boolean sharding,
+                               @Value("${socks.coalescing.enabled:false}") boolean coalescing) {
+        if (sharding) {
+            throw new IllegalStateException("The reactive profile does not support socks.sharding.enabled=true");
+        }
+        if (coalescing) {
+            throw new IllegalStateException("The reactive profile does not support socks.coalescing.enabled=true");
+        }
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> socksRoutes(ReactiveSocksHandler handler) {
+        return route(POST("/api/socks/income"), handler::registerIncome)
+                .andRoute(POST("/api/socks/outcome"), handler::registerOutcome)
+                .andRoute(POST("/api/socks/movements:batch"), handler::registerMovements)
+                .andRoute(GET("/api/socks"), handler::getSocks)
+                .andRoute(PUT("/api/socks/{id}"), handler::updateSocks)
+                .andRoute(POST("/api/socks/batch"), handler::uploadBatch);
+    }
+
+    // Tomcat тоже есть в classpath; реактивный режим должен работать на Netty
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,150 @@
+package ru.socks.inventory.repository;
+
+import io.r2dbc.spi.Row;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import ru.socks.inventory.dto.SockFilter;
+import ru.socks.inventory.dto.SortingEnum;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.model.SockKey;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * R2DBC versions of the native queries of {@link SockRepository} for the reactive profile.
+ * Every write is a single statement, so it runs in auto-commit without a transaction manager.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSockRepository {
+
+    private static final String FIND_SQL = """
+                SELECT s.id, c.name AS color, s.cotton_content, s.quantity + coalesce(sh.quantity, 0) AS quantity
+                FROM socks s
+                JOIN sock_colors c ON c.id = s.color_id
+                LEFT JOIN (SELECT color_id, cotton_content, sum(quantity)::int AS quantity
+                           FROM sock_stock_shards
+                           GROUP BY color_id, cotton_content) sh
+                  ON sh.color_id = s.color_id AND sh.cotton_content = s.cotton_content
+                WHERE s.cotton_content BETWEEN :minCottonContent AND :maxCottonContent
+            """;
+
+    private final DatabaseClient databaseClient;
+    private final ColorDictionary colors;
+
+    public ReactiveSockRepository(DatabaseClient databaseClient, ColorDictionary colors) {
+        this.databaseClient = databaseClient;
+        this.colors = colors;
+    }
+
+    public Mono<Integer> incrementOrInsertSock(String color, int cottonContent, int quantity) {
+        return colorId(color).flatMap(colorId -> databaseClient.sql("""
+                            INSERT INTO socks (id, color_id, cotton_content, quantity)
+                            VALUES (nextval('sock_sequence'), :colorId, :cottonContent, :quantity)
+                            ON CONFLICT (color_id, cotton_content)
+                            DO UPDATE SET quantity = socks.quantity + :quantity
+                        """)
+                .bind("colorId", colorId)
+                .bind("cottonContent", cottonContent)
+                .bind("quantity", quantity)
+                .fetch()
+                .rowsUpdated());
+    }
+
+    public Mono<Integer> decreaseStock(String color, int cottonContent, int quantity) {
+        return knownColorId(color).flatMap(colorId -> databaseClient.sql("""
+                            UPDATE socks
+                            SET quantity = quantity - :quantity
+                            WHERE color_id = :colorId AND cotton_content = :cottonContent AND quantity >= :quantity
+                        """)
+                .bind("colorId", colorId)
+                .bind("cottonContent", cottonContent)
+                .bind("quantity", quantity)
+                .fetch()
+                .rowsUpdated())
+                .defaultIfEmpty(0);
+    }
+
+    /**
+     * Same as {@link SockBulkRepository#updateSockWithUniqueCheck}: emits the pair the sock had
+     * before, nothing if it does not exist or the new pair is taken.
+     */
+    public Mono<SockKey> updateSockWithUniqueCheck(long id, String color, int cottonContent, int quantity) {
+        return colorId(color).flatMap(colorId -> databaseClient.sql("""
+                            UPDATE socks
+                            SET color_id = :colorId, cotton_content = :cottonContent, quantity = :quantity
+                            FROM (SELECT id, color_id, cotton_content FROM socks WHERE id = :id FOR UPDATE) AS previous
+                            WHERE socks.id = previous.id
+                              AND NOT EXISTS (
+                                  SELECT 1
+                                  FROM socks other
+                                  WHERE other.color_id = :colorId AND other.cotton_content = :cottonContent AND other.id != :id
+                              )
+                            RETURNING (SELECT name FROM sock_colors WHERE id = previous.color_id) AS color,
+                                      previous.cotton_content
+                        """)
+                .bind("id", id)
+                .bind("colorId", colorId)
+                .bind("cottonContent", cottonContent)
+                .bind("quantity", quantity)
+                .map((row, metadata) -> new SockKey(row.get("color", String.class), row.get("cotton_content", Integer.class)))
+                .one());
+    }
+
+    /**
+     * Socks matching the filter with their shard quantities added, ordered by {@code sorting}
+     * ({@code null} means unordered).
+     */
+    public Flux<Sock> findSocks(SockFilter filter, SortingEnum sorting) {
+        if (filter.color() != null) {
+            // Неизвестного цвета нет в таблице
+            return knownColorId(filter.color()).flatMapMany(colorId -> findSocks(filter, colorId, sorting));
+        }
+        return findSocks(filter, null, sorting);
+    }
+
+    private Flux<Sock> findSocks(SockFilter filter, Integer colorId, SortingEnum sorting) {
+        StringBuilder sql = new StringBuilder(FIND_SQL);
+        if (colorId != null) {
+            sql.append(" AND s.color_id = :colorId");
+        }
+        if (sorting == SortingEnum.COLOR) {
+            sql.append(" ORDER BY c.name");
+        } else if (sorting == SortingEnum.COTTON_CONTENT) {
+            sql.append(" ORDER BY s.cotton_content");
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .bind("minCottonContent", filter.minCottonContent())
+                .bind("maxCottonContent", filter.maxCottonContent());
+        if (colorId != null) {
+            spec = spec.bind("colorId", colorId);
+        }
+        return spec.map((row, metadata) -> toSock(row)).all();
+    }
+
+    // Известный цвет берётся из памяти; новый добавляется в словарь через JDBC вне event loop
+    private Mono<Integer> colorId(String color) {
+        Integer cached = colors.cachedId(color);
+        return cached != null
+                ? Mono.just(cached)
+                : Mono.fromCallable(() -> colors.idOf(color)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Integer> knownColorId(String color) {
+        Integer cached = colors.cachedId(color);
+        return cached != null
+                ? Mono.just(cached)
+                : Mono.fromCallable(() -> colors.findId(color).orElse(null)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Sock toSock(Row row) {
+        return new Sock(
+                row.get("id", Long.class),
+                row.get("color", String.class),
+                row.get("cotton_content", Integer.class),
+                row.get("quantity", Integer.class));
+    }
+}
@@ -0,0 +1,200 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.dto.OperatorEnum;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.repository.SockRepository;
+import ru.socks.inventory.service.InventoryReadModel;
+
+import java.io.File;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveSocksApiTest {
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @Autowired
+    InventoryReadModel readModel;
+
+    @LocalServerPort
+    private Integer port;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getFirstMappedPort() + "/" + postgres.getDatabaseName());
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+        registry.add("socks.read-model.enabled", () -> "true");
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        sockRepository.deleteAll();
+    }
+
+    @Test
+    void sameContractAsMvcTest() {
+        post("/api/socks/income", new SockRequest("Red", 80, 10), 200);
+        post("/api/socks/income", new SockRequest("Red", 80, 5), 200);
+        post("/api/socks/income", new SockRequest("Blue", 20, 3), 200);
+        post("/api/socks/outcome", new SockRequest("Red", 80, 4), 200);
+        post("/api/socks/outcome", new SockRequest("Blue", 20, 4), 409);
+        post("/api/socks/income", new SockRequest("Red", 180, 1), 400);
+
+        given()
+                .param("color", "Red")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .body("[0].quantity", equalTo(11));
+
+        given()
+                .param("operation", OperatorEnum.LESS_THAN.getOperator())
+                .param("cottonContent", 50)
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .body("[0].color", equalTo("Blue"));
+
+        Long id = sockRepository.findByColorOrderByCottonContentAsc("Blue").get(0).getId();
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Red", 80, 1))
+                .when()
+                .put("/api/socks/" + id)
+                .then()
+                .statusCode(409)
+                .body(startsWith("Conflict while searching for socks"));
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Green", 20, 7))
+                .when()
+                .put("/api/socks/" + id)
+                .then()
+                .statusCode(200);
+
+        given()
+                .param("sortBy", "color")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("color", equalTo(List.of("Green", "Red")));
+    }
+
+    @Test
+    void batchUploadTest() {
+        File file = new File("src/test/resources/sock_batch.xlsx");
+        given()
+                .multiPart("file", file, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
+                .when()
+                .post("/api/socks/batch")
+                .then()
+                .statusCode(200);
+
+        given()
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(799))
+                .body("quantity.sum()", equalTo(49320));
+    }
+
+    @Test
+    void writesReachReadModelTest() {
+        post("/api/socks/income", new SockRequest("Violet", 30, 10), 200);
+        post("/api/socks/outcome", new SockRequest("Violet", 30, 4), 200);
+        assertThat(readModel.getSocks("Violet", null, null, null, null))
+                .extracting(Sock::getQuantity)
+                .containsExactly(6);
+
+        Long id = sockRepository.findByColorOrderByCottonContentAsc("Violet").get(0).getId();
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Violet", 35, 2))
+                .when()
+                .put("/api/socks/" + id)
+                .then()
+                .statusCode(200);
+        assertThat(readModel.getSocks("Violet", null, null, null, null))
+                .extracting(Sock::getCottonContent, Sock::getQuantity)
+                .containsExactly(tuple(35, 2));
+    }
+
+    @Test
+    void rejectsShardingTest() {
+        // Записи реактивного режима идут мимо строк шардов
+        assertThatThrownBy(() -> new SpringApplicationBuilder(SocksInventoryApplication.class)
+                .profiles("reactive")
+                .properties("server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "spring.r2dbc.url=r2dbc:postgresql://" + postgres.getHost() + ":"
+                                + postgres.getFirstMappedPort() + "/" + postgres.getDatabaseName(),
+                        "spring.r2dbc.username=" + postgres.getUsername(),
+                        "spring.r2dbc.password=" + postgres.getPassword(),
+                        "socks.sharding.enabled=true")
+                .run()
+                .close())
+                .hasRootCauseMessage("The reactive profile does not support socks.sharding.enabled=true");
+    }
+
+    private void post(String path, SockRequest sockRequest, int expectedStatus) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(sockRequest)
+                .when()
+                .post(path)
+                .then()
+                .statusCode(expectedStatus);
+    }
+}
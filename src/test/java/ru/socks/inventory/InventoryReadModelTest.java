@@ -0,0 +1,207 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.dto.HotSock;
+import ru.socks.inventory.dto.OperatorEnum;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.repository.SockRepository;
+import ru.socks.inventory.service.InventoryReadModel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"socks.read-model.enabled=true", "socks.sharding.enabled=true"})
+class InventoryReadModelTest {
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    InventoryReadModel readModel;
+
+    @LocalServerPort
+    private Integer port;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        jdbcTemplate.update("DELETE FROM sock_stock_shards");
+        jdbcTemplate.update("DELETE FROM hot_socks");
+        sockRepository.deleteAll();
+        readModel.rebuild();
+    }
+
+    @Test
+    void writesAreVisibleWithoutDatabaseTest() {
+        post("/api/socks/income", new SockRequest("Red", 80, 10));
+        post("/api/socks/income", new SockRequest("Blue", 20, 5));
+        post("/api/socks/outcome", new SockRequest("Red", 80, 3));
+
+        given()
+                .param("color", "Red")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .body("[0].quantity", equalTo(7))
+                .body("[0].id", equalTo(sockRepository.findByColorOrderByCottonContentAsc("Red").get(0).getId().intValue()));
+
+        given()
+                .param("operation", OperatorEnum.MORE_THAN.getOperator())
+                .param("cottonContent", 20)
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .body("[0].color", equalTo("Red"));
+
+        Long id = sockRepository.findByColorOrderByCottonContentAsc("Blue").get(0).getId();
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Green", 20, 1))
+                .when()
+                .put("/api/socks/" + id)
+                .then()
+                .statusCode(200);
+
+        given()
+                .param("cottonContent", 0)
+                .param("maxCottonContent", 50)
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .body("[0].color", equalTo("Green"))
+                .body("[0].quantity", equalTo(1));
+    }
+
+    @Test
+    void batchUploadIsVisibleTest() {
+        File file = new File("src/test/resources/sock_batch.xlsx");
+        given()
+                .multiPart("file", file, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
+                .when()
+                .post("/api/socks/batch")
+                .then()
+                .statusCode(200);
+
+        given()
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(799))
+                .body("quantity.sum()", equalTo(49320));
+    }
+
+    @Test
+    void writesDuringRebuildAreKeptTest() throws Exception {
+        post("/api/socks/income", new SockRequest("Red", 80, 1));
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(writers.submit(() -> post("/api/socks/income", new SockRequest("Red", 80, 1))));
+        }
+        for (int i = 0; i < 20; i++) {
+            readModel.rebuild();
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        writers.shutdown();
+
+        given()
+                .param("color", "Red")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(201));
+    }
+
+    @Test
+    void rebuildAddsShardTotalsTest() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new HotSock("Red", 80, 4))
+                .when()
+                .put("/api/socks/hot")
+                .then()
+                .statusCode(200);
+        for (int i = 0; i < 40; i++) {
+            post("/api/socks/income", new SockRequest("Red", 80, 1));
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT coalesce(sum(quantity), 0) FROM sock_stock_shards", Integer.class))
+                .isPositive();
+
+        readModel.rebuild();
+        post("/api/socks/income", new SockRequest("Red", 80, 1));
+
+        given()
+                .param("color", "Red")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(41));
+    }
+
+    private void post(String path, SockRequest sockRequest) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(sockRequest)
+                .when()
+                .post(path)
+                .then()
+                .statusCode(200);
+    }
+}
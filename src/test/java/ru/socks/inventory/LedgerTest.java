@@ -0,0 +1,171 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.repository.SockRepository;
+import ru.socks.inventory.service.SockLedgerService;
+
+import java.time.Instant;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LedgerTest {
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @Autowired
+    SockLedgerService ledgerService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private Integer port;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        sockRepository.deleteAll();
+    }
+
+    @Test
+    void movementsAreRecordedTest() {
+        Instant start = Instant.now();
+        post("/api/socks/income", new SockRequest("Red", 80, 10));
+        post("/api/socks/outcome", new SockRequest("Red", 80, 3));
+        post("/api/socks/income", new SockRequest("Blue", 20, 5));
+
+        given()
+                .param("from", start.toString())
+                .param("color", "red")
+                .when()
+                .get("/api/socks/ledger/movements")
+                .then()
+                .statusCode(200)
+                .body("movements.delta", contains(10, -3))
+                .body("movements[0].color", equalTo("Red"))
+                .body("nextCursor", nullValue());
+
+        String cursor = given()
+                .param("from", start.toString())
+                .param("limit", 2)
+                .when()
+                .get("/api/socks/ledger/movements")
+                .then()
+                .statusCode(200)
+                .body("movements", hasSize(2))
+                .body("nextCursor", notNullValue())
+                .extract()
+                .path("nextCursor");
+
+        given()
+                .param("from", start.toString())
+                .param("limit", 2)
+                .param("cursor", cursor)
+                .when()
+                .get("/api/socks/ledger/movements")
+                .then()
+                .statusCode(200)
+                .body("movements.color", contains("Blue"));
+    }
+
+    @Test
+    void stockAsOfTest() throws InterruptedException {
+        post("/api/socks/income", new SockRequest("Green", 50, 10));
+        Instant afterIncome = pause();
+        post("/api/socks/outcome", new SockRequest("Green", 50, 4));
+
+        // Остаток восстанавливается и через снимок, и мимо него
+        assertStock(afterIncome, 10);
+        ledgerService.snapshot(afterIncome);
+        assertStock(afterIncome, 10);
+        assertStock(pause(), 6);
+
+        given()
+                .param("at", "2000-01-01T00:00:00Z")
+                .when()
+                .get("/api/socks/ledger/stock")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void partitionsAreCreatedAheadTest() {
+        ledgerService.maintain();
+
+        Integer partitions = jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM pg_inherits WHERE inhparent = 'sock_ledger'::regclass
+                """, Integer.class);
+        // Текущий месяц, два месяца вперёд и раздел DEFAULT
+        assertThat(partitions).isGreaterThanOrEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM sock_ledger_default", Integer.class)).isZero();
+    }
+
+    private void assertStock(Instant at, int quantity) {
+        given()
+                .param("at", at.toString())
+                .when()
+                .get("/api/socks/ledger/stock")
+                .then()
+                .statusCode(200)
+                .body("find { it.color == 'Green' }.quantity", equalTo(quantity));
+    }
+
+    // Отметка времени строго между двумя запросами
+    private static Instant pause() throws InterruptedException {
+        Thread.sleep(20);
+        Instant now = Instant.now();
+        Thread.sleep(20);
+        return now;
+    }
+
+    private void post(String path, SockRequest sockRequest) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(sockRequest)
+                .when()
+                .post(path)
+                .then()
+                .statusCode(200);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.repository.SockRepository;
+import ru.socks.inventory.service.SockService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class QueryMetricsTest {
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @Autowired
+    SockService sockService;
+
+    @LocalServerPort
+    private Integer port;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        // Каждый запрос считается медленным
+        registry.add("socks.queries.slow-ms", () -> "0");
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        sockRepository.deleteAll();
+    }
+
+    @Test
+    void statementBudgetTest() {
+        List<Sock> socks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            socks.add(new Sock(null, "Color " + i, 50, 10));
+        }
+        List<Sock> saved = sockRepository.saveAll(socks);
+
+        // Имена цветов берутся из словаря в памяти, а не запросом на каждую строку
+        List<Sock> found = StatementBudget.assertAtMost(1, () -> sockService.getSocks(null, null, null, null, "color"));
+        assertThat(found).hasSize(20);
+
+        assertThatThrownBy(() -> StatementBudget.assertAtMost(5,
+                () -> saved.forEach(sock -> sockRepository.findById(sock.getId()))))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("got 20");
+    }
+
+    @Test
+    void queriesEndpointTest() throws InterruptedException {
+        sockRepository.save(new Sock(null, "Red", 80, 10));
+        given().when().delete("/actuator/queries").then().statusCode(204);
+
+        given()
+                .param("color", "Red")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(10));
+
+        String method = "findByColorOrderByCottonContentAsc";
+        Response queries = given().when().get("/actuator/queries");
+        queries.then()
+                .statusCode(200)
+                .body("statements.find { it.method == '" + method + "' }.repository", equalTo("SockRepository"))
+                .body("statements.find { it.method == '" + method + "' }.count", greaterThan(0));
+
+        // План снимается в фоне
+        String plan = null;
+        for (int i = 0; i < 50 && plan == null; i++) {
+            plan = given().when().get("/actuator/queries")
+                    .path("slowQueries.find { it.method == '" + method + "' }.plan");
+            Thread.sleep(100);
+        }
+        assertThat(plan).contains("Scan");
+        given()
+                .when()
+                .get("/actuator/queries")
+                .then()
+                .body("slowQueries.find { it.method == '" + method + "' }.parameters.size()", greaterThan(0));
+    }
+}
@@ -0,0 +1,191 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.config.ReadAfterFilter;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.repository.ColorDictionary;
+import ru.socks.inventory.repository.SockRepository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * The "replica" here is a second independent server with the same schema, so a read shows
+ * which server served it. It is not in recovery and is taken as replayed up to its last
+ * check, which runs once at startup.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReplicaRoutingTest {
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static PostgreSQLContainer<?> replica =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @Autowired
+    ColorDictionary colors;
+
+    @LocalServerPort
+    private Integer port;
+
+    private JdbcTemplate replicaJdbc;
+
+    @BeforeAll
+    static void beforeAll() throws Exception {
+        postgres.start();
+        replica.start();
+        try (Connection connection = DriverManager.getConnection(
+                replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())) {
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            new Liquibase("db/changelog/db.changelog-master.xml", new ClassLoaderResourceAccessor(), database)
+                    .update(new Contexts());
+        }
+    }
+
+    @AfterAll
+    static void afterAll() {
+        replica.stop();
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("socks.replica.enabled", () -> "true");
+        registry.add("socks.replica.url", replica::getJdbcUrl);
+        registry.add("socks.replica.username", replica::getUsername);
+        registry.add("socks.replica.password", replica::getPassword);
+        registry.add("socks.replica.health-check-ms", () -> "3600000");
+        registry.add("socks.replica.max-lag-ms", () -> "3600000");
+        registry.add("management.endpoint.health.show-details", () -> "always");
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        sockRepository.deleteAll();
+        replicaJdbc = new JdbcTemplate(new DriverManagerDataSource(
+                replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()));
+        replicaJdbc.update("DELETE FROM socks");
+    }
+
+    @Test
+    @Order(1)
+    void readsGoToReplicaTest() {
+        String readAfter = given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Red", 80, 10))
+                .when()
+                .post("/api/socks/income")
+                .then()
+                .statusCode(200)
+                .extract()
+                .header(ReadAfterFilter.READ_AFTER_HEADER);
+        putOnReplica("Red", 80, 999);
+
+        assertQuantity(null, 999);
+        // Реплика проверялась до записи, значит записи ещё не видит
+        assertQuantity(readAfter, 10);
+
+        given()
+                .header(ReadAfterFilter.READ_AFTER_HEADER, "yesterday")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    @Order(2)
+    void fallbackToPrimaryTest() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Blue", 50, 7))
+                .when()
+                .post("/api/socks/income")
+                .then()
+                .statusCode(200);
+        putOnReplica("Blue", 50, 999);
+        given()
+                .param("color", "Blue")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(999));
+
+        replica.stop();
+
+        given()
+                .param("color", "Blue")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(7));
+        given()
+                .when()
+                .get("/actuator/health")
+                .then()
+                .statusCode(200)
+                .body("components.replica.details.route", equalTo("primary"));
+    }
+
+    // Та же позиция на "реплике", но с другим остатком
+    private void putOnReplica(String color, int cottonContent, int quantity) {
+        int colorId = colors.findId(color).orElseThrow();
+        replicaJdbc.update("""
+                INSERT INTO sock_colors (id, name, name_key) VALUES (?, ?, ?)
+                ON CONFLICT DO NOTHING
+                """, colorId, color, color.toLowerCase());
+        replicaJdbc.update("""
+                INSERT INTO socks (id, color_id, cotton_content, quantity)
+                VALUES (nextval('sock_sequence'), ?, ?, ?)
+                """, colorId, cottonContent, quantity);
+    }
+
+    private void assertQuantity(String readAfter, int quantity) {
+        var request = given().param("color", "Red");
+        if (readAfter != null) {
+            request.header(ReadAfterFilter.READ_AFTER_HEADER, readAfter);
+        }
+        request.when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(quantity));
+    }
+}
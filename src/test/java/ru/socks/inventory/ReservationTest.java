@@ -0,0 +1,157 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.repository.SockRepository;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReservationTest {
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private Integer port;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("socks.reservations.tick-ms", () -> "100");
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        sockRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM sock_reservations");
+        sockRepository.save(new Sock(null, "Red", 80, 10));
+    }
+
+    @Test
+    void reserveCommitTest() {
+        String id = reserve(4, null);
+        assertThat(quantity()).isEqualTo(6);
+
+        given()
+                .when()
+                .post("/api/socks/reservations/" + id + ":commit")
+                .then()
+                .statusCode(200)
+                .body("quantity", equalTo(4));
+        assertThat(quantity()).isEqualTo(6);
+
+        given().when().post("/api/socks/reservations/" + id + ":commit").then().statusCode(404);
+        given().when().post("/api/socks/reservations/" + id + ":release").then().statusCode(404);
+        assertThat(quantity()).isEqualTo(6);
+    }
+
+    @Test
+    void reserveReleaseTest() {
+        String id = reserve(4, null);
+        assertThat(quantity()).isEqualTo(6);
+
+        given()
+                .when()
+                .post("/api/socks/reservations/" + id + ":release")
+                .then()
+                .statusCode(200);
+        assertThat(quantity()).isEqualTo(10);
+
+        given().when().post("/api/socks/reservations/" + id + ":commit").then().statusCode(404);
+        given().when().post("/api/socks/reservations/not-an-id:commit").then().statusCode(400);
+    }
+
+    @Test
+    void reserveConflictTest() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Red", 80, 11))
+                .when()
+                .post("/api/socks/reservations")
+                .then()
+                .statusCode(409);
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Red", 80, 1))
+                .queryParam("ttlSeconds", 100_000_000)
+                .when()
+                .post("/api/socks/reservations")
+                .then()
+                .statusCode(400);
+
+        assertThat(quantity()).isEqualTo(10);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM sock_reservations", Integer.class)).isZero();
+    }
+
+    @Test
+    void expiryTest() throws InterruptedException {
+        String expiring = reserve(3, 1L);
+        String kept = reserve(2, 600L);
+        assertThat(quantity()).isEqualTo(5);
+
+        for (int i = 0; i < 50 && quantity() != 8; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(quantity()).isEqualTo(8);
+
+        given().when().post("/api/socks/reservations/" + expiring + ":commit").then().statusCode(404);
+        given().when().post("/api/socks/reservations/" + kept + ":commit").then().statusCode(200);
+        assertThat(quantity()).isEqualTo(8);
+    }
+
+    private String reserve(int quantity, Long ttlSeconds) {
+        var request = given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Red", 80, quantity));
+        if (ttlSeconds != null) {
+            request.queryParam("ttlSeconds", ttlSeconds);
+        }
+        return request.when()
+                .post("/api/socks/reservations")
+                .then()
+                .statusCode(201)
+                .body("color", equalTo("Red"))
+                .body("quantity", equalTo(quantity))
+                .extract()
+                .path("id");
+    }
+
+    private int quantity() {
+        return sockRepository.findAll().get(0).getQuantity();
+    }
+}
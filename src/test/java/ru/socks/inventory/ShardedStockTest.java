@@ -0,0 +1,232 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.dto.HotSock;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.repository.SockRepository;
+
+import java.time.Instant;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "socks.sharding.enabled=true")
+class ShardedStockTest {
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private Integer port;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        jdbcTemplate.update("DELETE FROM sock_stock_shards");
+        jdbcTemplate.update("DELETE FROM hot_socks");
+        sockRepository.deleteAll();
+    }
+
+    @Test
+    void hotSockOutcomeBorrowsAcrossShardsTest() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new HotSock("Red", 80, 4))
+                .when()
+                .put("/api/socks/hot")
+                .then()
+                .statusCode(200);
+
+        for (int i = 0; i < 40; i++) {
+            post("/api/socks/income", 1, 200);
+        }
+        given()
+                .param("color", "Red")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(40));
+
+        post("/api/socks/outcome", 30, 200);
+        post("/api/socks/outcome", 20, 409);
+
+        given()
+                .param("color", "Red")
+                .param("cottonContent", 80)
+                .when()
+                .delete("/api/socks/hot")
+                .then()
+                .statusCode(200);
+
+        List<Sock> socks = sockRepository.findAll();
+        assertThat(socks).hasSize(1);
+        assertThat(socks.get(0).getQuantity()).isEqualTo(10);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM sock_stock_shards", Integer.class)).isZero();
+    }
+
+    @Test
+    void hotSockKeyUpdateMovesHotMarkTest() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new HotSock("Red", 80, 4))
+                .when()
+                .put("/api/socks/hot")
+                .then()
+                .statusCode(200);
+        for (int i = 0; i < 20; i++) {
+            post("/api/socks/income", 1, 200);
+        }
+
+        Long id = sockRepository.findAll().get(0).getId();
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Blue", 60, 5))
+                .when()
+                .put("/api/socks/" + id)
+                .then()
+                .statusCode(200);
+
+        given()
+                .when()
+                .get("/api/socks/hot")
+                .then()
+                .statusCode(200)
+                .body("color", equalTo(List.of("Blue")))
+                .body("cottonContent", equalTo(List.of(60)))
+                .body("shards", equalTo(List.of(4)));
+
+        // Приходы по старому ключу - обычная новая позиция, по новому - снова в шарды
+        post("/api/socks/income", 3, 200);
+        for (int i = 0; i < 20; i++) {
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(new SockRequest("Blue", 60, 1))
+                    .when()
+                    .post("/api/socks/income")
+                    .then()
+                    .statusCode(200);
+        }
+        given()
+                .param("color", "Blue")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(25));
+        given()
+                .param("color", "Red")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(3));
+        assertThat(jdbcTemplate.queryForObject("""
+                    SELECT count(*) FROM sock_stock_shards sh
+                    WHERE NOT EXISTS (SELECT 1 FROM hot_socks h
+                                      WHERE h.color_id = sh.color_id AND h.cotton_content = sh.cotton_content)
+                """, Integer.class)).isZero();
+    }
+
+    @Test
+    void shardTransfersAreNotLedgerMovementsTest() {
+        Instant start = Instant.now();
+        given()
+                .contentType(ContentType.JSON)
+                .body(new HotSock("Red", 80, 4))
+                .when()
+                .put("/api/socks/hot")
+                .then()
+                .statusCode(200);
+        for (int i = 0; i < 40; i++) {
+            post("/api/socks/income", 1, 200);
+        }
+
+        // Ни один шард не покрывает 30: отпуск занимает у нескольких шардов
+        post("/api/socks/outcome", 30, 200);
+        Long id = sockRepository.findAll().get(0).getId();
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Red", 80, 5))
+                .when()
+                .put("/api/socks/" + id)
+                .then()
+                .statusCode(200);
+        for (int i = 0; i < 8; i++) {
+            post("/api/socks/income", 1, 200);
+        }
+        given()
+                .param("color", "Red")
+                .param("cottonContent", 80)
+                .when()
+                .delete("/api/socks/hot")
+                .then()
+                .statusCode(200);
+
+        List<Integer> deltas = given()
+                .param("from", start.toString())
+                .param("color", "Red")
+                .when()
+                .get("/api/socks/ledger/movements")
+                .then()
+                .statusCode(200)
+                .extract()
+                .path("movements.delta");
+        assertThat(deltas).hasSize(50);
+        assertThat(deltas).filteredOn(delta -> delta < 0).containsExactly(-30, -5);
+        assertThat(sockRepository.findAll().get(0).getQuantity()).isEqualTo(13);
+    }
+
+    private void post(String path, int quantity, int expectedStatus) {
+        SockRequest sockRequest = new SockRequest()
+                .setColor("Red")
+                .setCottonContent(80)
+                .setQuantity(quantity);
+        given()
+                .contentType(ContentType.JSON)
+                .body(sockRequest)
+                .when()
+                .post(path)
+                .then()
+                .statusCode(expectedStatus);
+    }
+}
@@ -0,0 +1,113 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.repository.SockRepository;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Runs under the {@code heapCappedTest} Gradle task with a 256 MB heap.
+ * A DOM-based workbook of this size would not fit.
+ */
+@Tag("heap-capped")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SockBatchStreamingTest {
+
+    private static final int ROWS = 300_000;
+    private static final String[] COLORS = {"Red", "Blue", "Green", "Black", "White", "Gray", "Yellow"};
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @LocalServerPort
+    private Integer port;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        sockRepository.deleteAll();
+    }
+
+    @Test
+    void largeBatchUploadTest() throws IOException {
+        File file = generateBatch(ROWS);
+        try {
+            given()
+                    .multiPart("file", file, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
+                    .when()
+                    .post("/api/socks/batch")
+                    .then()
+                    .statusCode(200)
+                    .body(equalTo("Batch uploaded successfully"));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+
+        long total = sockRepository.findAll().stream().mapToLong(Sock::getQuantity).sum();
+        assertThat(total).isEqualTo((long) ROWS * 2);
+        assertThat(sockRepository.count()).isEqualTo(COLORS.length * 101L);
+    }
+
+    private File generateBatch(int rows) throws IOException {
+        File file = File.createTempFile("large-sock-batch-", ".xlsx");
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+             OutputStream out = new FileOutputStream(file)) {
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Color");
+            header.createCell(1).setCellValue("Cotton Part (%)");
+            header.createCell(2).setCellValue("Quantity");
+            for (int i = 1; i <= rows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(COLORS[i % COLORS.length]);
+                row.createCell(1).setCellValue(i % 101);
+                row.createCell(2).setCellValue(2);
+            }
+            workbook.write(out);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,224 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.repository.SockRepository;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SockChangesTest {
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @LocalServerPort
+    private Integer port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("socks.changes.enabled", () -> "true");
+        registry.add("socks.changes.coalesce-ms", () -> "200");
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        sockRepository.deleteAll();
+    }
+
+    @Test
+    void filteredCoalescedChangesTest() throws Exception {
+        try (EventStream stream = open("?color=red&minCottonContent=70&maxCottonContent=90", null)) {
+            assertThat(stream.next().name()).isEqualTo("reset");
+
+            income("Blue", 80, 5);
+            income("Red", 50, 5);
+            for (int i = 0; i < 10; i++) {
+                income("Red", 80, 1);
+            }
+
+            // Десять приходов подряд: не больше пары событий, последнее - с итоговым остатком
+            List<Event> events = stream.until(event -> event.data().contains("\"quantity\":10"));
+            assertThat(events).hasSizeLessThan(10);
+            assertThat(events).allSatisfy(event -> {
+                assertThat(event.name()).isEqualTo("stock");
+                assertThat(event.data()).contains("\"color\":\"Red\"").contains("\"cottonContent\":80");
+            });
+        }
+    }
+
+    @Test
+    void resumeTest() throws Exception {
+        // Второй подписчик остаётся на связи, пока первый переподключается
+        try (EventStream watcher = open("", null)) {
+            watcher.next();
+            String lastId;
+            try (EventStream stream = open("", null)) {
+                stream.next();
+                income("Red", 80, 3);
+                List<Event> seen = stream.until(event -> event.data().contains("\"quantity\":3"));
+                lastId = seen.get(seen.size() - 1).id();
+            }
+
+            income("Red", 80, 4);
+            watcher.until(event -> event.data().contains("\"quantity\":7"));
+            try (EventStream stream = open("", lastId)) {
+                Event missed = stream.next();
+                assertThat(missed.name()).isEqualTo("stock");
+                assertThat(missed.data()).contains("\"quantity\":7");
+            }
+
+            try (EventStream stream = open("", "unknown.1")) {
+                assertThat(stream.next().name()).isEqualTo("reset");
+            }
+        }
+    }
+
+    @Test
+    void movedSockLeavesFilteredStreamTest() throws Exception {
+        try (EventStream stream = open("?color=Red", null)) {
+            stream.next();
+            income("Red", 80, 5);
+            stream.until(event -> event.data().contains("\"quantity\":5"));
+
+            Long id = sockRepository.findAll().get(0).getId();
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(new SockRequest("Blue", 80, 5))
+                    .when()
+                    .put("/api/socks/" + id)
+                    .then()
+                    .statusCode(200);
+
+            Event left = stream.next();
+            assertThat(left.name()).isEqualTo("stock");
+            assertThat(left.data()).contains("\"color\":\"Red\"").contains("\"cottonContent\":80")
+                    .contains("\"quantity\":0");
+        }
+    }
+
+    private void income(String color, int cottonContent, int quantity) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest(color, cottonContent, quantity))
+                .when()
+                .post("/api/socks/income")
+                .then()
+                .statusCode(200);
+    }
+
+    private EventStream open(String query, String lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(RestAssured.baseURI + "/api/socks/changes" + query))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<Stream<String>> response = client.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return new EventStream(response.body());
+    }
+
+    private record Event(String id, String name, String data) {
+    }
+
+    private static final class EventStream implements AutoCloseable {
+        private final Stream<String> lines;
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+
+        EventStream(Stream<String> lines) {
+            this.lines = lines;
+            Thread reader = new Thread(this::read, "sse-test-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        Event next() throws InterruptedException {
+            Event event = events.poll(10, TimeUnit.SECONDS);
+            assertThat(event).as("event within 10 s").isNotNull();
+            return event;
+        }
+
+        List<Event> until(Predicate<Event> last) throws InterruptedException {
+            List<Event> received = new ArrayList<>();
+            Event event;
+            do {
+                event = next();
+                received.add(event);
+            } while (!last.test(event));
+            return received;
+        }
+
+        private void read() {
+            String id = null;
+            String name = null;
+            StringBuilder data = new StringBuilder();
+            try {
+                for (String line : (Iterable<String>) lines::iterator) {
+                    if (line.isEmpty()) {
+                        if (data.length() > 0) {
+                            events.add(new Event(id, name, data.toString()));
+                        }
+                        name = null;
+                        data.setLength(0);
+                    } else if (line.startsWith("id:")) {
+                        id = line.substring(3).strip();
+                    } else if (line.startsWith("event:")) {
+                        name = line.substring(6).strip();
+                    } else if (line.startsWith("data:")) {
+                        data.append(line.substring(5).strip());
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Поток закрыт тестом
+            }
+        }
+
+        @Override
+        public void close() {
+            lines.close();
+        }
+    }
+}
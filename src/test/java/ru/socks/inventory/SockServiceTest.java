@@ -1,5 +1,8 @@
 package ru.socks.inventory;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.AfterAll;
@@ -9,10 +12,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.dto.DirectionEnum;
 import ru.socks.inventory.dto.OperatorEnum;
+import ru.socks.inventory.dto.SockColumns;
+import ru.socks.inventory.dto.SockMovement;
 import ru.socks.inventory.dto.SockRequest;
 import ru.socks.inventory.model.Sock;
 import ru.socks.inventory.repository.SockRepository;
@@ -20,12 +27,22 @@ import ru.socks.inventory.repository.SockRepository;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static io.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class SockServiceTest {
@@ -36,6 +53,9 @@ class SockServiceTest {
     @Autowired
     SockRepository sockRepository;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     @LocalServerPort
     private Integer port;
 
@@ -215,6 +235,67 @@ class SockServiceTest {
                 .body("$.size()", greaterThan(1));
     }
 
+    @Test
+    void colorSpellingsShareOnePositionTest() {
+        for (String color : List.of("Dark Green", " dark  GREEN ")) {
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(new SockRequest(color, 40, 5))
+                    .when()
+                    .post("/api/socks/income")
+                    .then()
+                    .statusCode(200);
+        }
+
+        given()
+                .param("color", "DARK GREEN")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .body("[0].color", equalTo("Dark Green"))
+                .body("[0].quantity", equalTo(10));
+
+        given()
+                .param("color", "Unknown")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(0));
+    }
+
+    @Test
+    void sortByColorTest() {
+        // Id цветов идут не в алфавитном порядке: сортировка должна быть по имени
+        sockRepository.saveAll(List.of(
+                new Sock(null, "Red", 80, 1),
+                new Sock(null, "Green", 40, 1),
+                new Sock(null, "Blue", 60, 1),
+                new Sock(null, "Blue", 20, 1)
+        ));
+
+        given()
+                .param("sortBy", "color")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("color", contains("Blue", "Blue", "Green", "Red"))
+                .body("cottonContent", contains(20, 60, 40, 80));
+
+        given()
+                .param("sortBy", "color")
+                .param("operation", OperatorEnum.MORE_THAN.getOperator())
+                .param("cottonContent", 40)
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("color", contains("Blue", "Red"));
+    }
+
     @Test
     void updateSocksTest() {
         Sock sock = new Sock(null, "Red", 100, 10);
@@ -267,4 +348,452 @@ class SockServiceTest {
                 .statusCode(200)
                 .body(equalTo("Batch uploaded successfully"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void batchUploadMergesExistingSocksTest() {
+        File file = new File("src/test/resources/sock_batch.xlsx");
+
+        for (int i = 0; i < 2; i++) {
+            given()
+                    .multiPart("file", file, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
+                    .when()
+                    .post("/api/socks/batch")
+                    .then()
+                    .statusCode(200)
+                    .body(equalTo("Batch uploaded successfully"));
+        }
+
+        List<Sock> socks = sockRepository.findAll();
+        assertThat(socks).hasSize(799);
+        assertThat(socks.stream().mapToInt(Sock::getQuantity).sum()).isEqualTo(49320 * 2);
+    }
+
+    @Test
+    void batchUploadCsvAndNdjsonTest() {
+        String csv = """
+                color,cottonContent,quantity
+                Red,80,10
+                "Light, blue",20,5\r
+                Red,80.0,2
+
+                """;
+        upload("socks.csv", csv, "text/csv", 200);
+
+        String ndjson = """
+                {"color":"Red","cottonContent":80,"quantity":3}
+                {"quantity":1, "cottonContent":20, "note":{"a":[1,2]}, "color":"Light, blue"}
+                """;
+        upload("socks.ndjson", ndjson, "application/x-ndjson", 200);
+
+        assertThat(sockRepository.findByColorOrderByCottonContentAsc("Red").get(0).getQuantity()).isEqualTo(15);
+        assertThat(sockRepository.findByColorOrderByCottonContentAsc("Light, blue").get(0).getQuantity()).isEqualTo(6);
+
+        upload("broken.csv", "Red,80,ten\n", "text/csv", 400);
+        upload("broken.ndjson", "{\"color\":\"Red\",\"cottonContent\":80}\n", "application/x-ndjson", 400);
+        assertThat(sockRepository.findByColorOrderByCottonContentAsc("Red").get(0).getQuantity()).isEqualTo(15);
+    }
+
+    @Test
+    void uploadQuantityOverflowTest() {
+        sockRepository.save(new Sock(null, "Red", 80, 5));
+        String csv = """
+                Red,80,1000000000
+                Red,80,1000000000
+                Red,80,1000000000
+                """;
+
+        given()
+                .multiPart("file", "socks.csv", csv.getBytes(StandardCharsets.UTF_8), "text/csv")
+                .when()
+                .post("/api/socks/batch")
+                .then()
+                .statusCode(400)
+                .body(containsString("Invalid row"));
+        assertThat(sockRepository.findByColorOrderByCottonContentAsc("Red").get(0).getQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void getSocksPageTest() {
+        sockRepository.saveAll(List.of(
+                new Sock(null, "Red", 100, 10),
+                new Sock(null, "Red", 50, 10),
+                new Sock(null, "Blue", 50, 10),
+                new Sock(null, "Green", 1, 10),
+                new Sock(null, "Gray", 70, 10)
+        ));
+
+        List<String> colors = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = given().param("limit", 2);
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            var page = request
+                    .when()
+                    .get("/api/socks/page")
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .jsonPath();
+            colors.addAll(page.getList("items.color", String.class));
+            cursor = page.getString("nextCursor");
+        } while (cursor != null);
+
+        assertThat(colors).containsExactly("Blue", "Gray", "Green", "Red", "Red");
+
+        given()
+                .param("color", "Red")
+                .param("limit", 1)
+                .when()
+                .get("/api/socks/page")
+                .then()
+                .statusCode(200)
+                .body("items", hasSize(1))
+                .body("items[0].cottonContent", equalTo(50));
+    }
+
+    @Test
+    void streamSocksTest() {
+        sockRepository.saveAll(List.of(
+                new Sock(null, "Red", 100, 10),
+                new Sock(null, "Red", 50, 10),
+                new Sock(null, "Blue", 50, 10)
+        ));
+
+        given()
+                .accept(ContentType.JSON)
+                .param("operation", OperatorEnum.EQUAL.getOperator())
+                .param("cottonContent", 50)
+                .when()
+                .get("/api/socks/stream")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(2));
+
+        String ndjson = given()
+                .accept("application/x-ndjson")
+                .when()
+                .get("/api/socks/stream")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString();
+        assertThat(ndjson.lines().filter(line -> !line.isBlank())).hasSize(3);
+    }
+
+    @Test
+    void aggregateTest() {
+        sockRepository.saveAll(List.of(
+                new Sock(null, "Red", 100, 10),
+                new Sock(null, "Red", 55, 20),
+                new Sock(null, "Blue", 50, 30)
+        ));
+        Long blueId = sockRepository.findByColorOrderByCottonContentAsc("Blue").get(0).getId();
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Green", 50, 40))
+                .when()
+                .put("/api/socks/" + blueId)
+                .then()
+                .statusCode(200);
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Red", 55, 5))
+                .when()
+                .post("/api/socks/outcome")
+                .then()
+                .statusCode(200);
+
+        given()
+                .param("operation", OperatorEnum.MORE_THAN.getOperator())
+                .param("cottonContent", 50)
+                .when()
+                .get("/api/socks/aggregate")
+                .then()
+                .statusCode(200)
+                .body("totalQuantity", equalTo(25))
+                .body("skuCount", equalTo(2))
+                .body("groups", equalTo(null));
+
+        given()
+                .param("groupBy", "cottonContent")
+                .when()
+                .get("/api/socks/aggregate")
+                .then()
+                .statusCode(200)
+                .body("totalQuantity", equalTo(65))
+                .body("groups.group", equalTo(List.of("50-59", "100")))
+                .body("groups.totalQuantity", equalTo(List.of(55, 10)));
+
+        given()
+                .param("color", "Red")
+                .param("groupBy", "color")
+                .when()
+                .get("/api/socks/aggregate")
+                .then()
+                .statusCode(200)
+                .body("totalQuantity", equalTo(25))
+                .body("groups", hasSize(1));
+
+        given()
+                .param("cottonContent", 50)
+                .param("maxCottonContent", 60)
+                .param("groupBy", "color")
+                .when()
+                .get("/api/socks/aggregate")
+                .then()
+                .statusCode(200)
+                .body("groups.group", equalTo(List.of("Green", "Red")))
+                .body("groups.totalQuantity", equalTo(List.of(40, 15)));
+
+        given()
+                .when()
+                .get("/api/socks/aggregate/consistency")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(0));
+    }
+
+    @Test
+    void concurrentBatchesKeepTotalsTest() throws Exception {
+        // Пачки с одними и теми же позициями в противоположном порядке: сводки не должны блокироваться крест-накрест
+        List<SockMovement> ascending = new ArrayList<>();
+        for (String color : List.of("Red", "Blue")) {
+            for (int cotton = 0; cotton <= 40; cotton++) {
+                ascending.add(new SockMovement(DirectionEnum.INCOME, color, cotton, 1));
+            }
+        }
+        List<SockMovement> descending = new ArrayList<>(ascending);
+        Collections.reverse(descending);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                List<SockMovement> batch = i % 2 == 0 ? ascending : descending;
+                results.add(executor.submit(() -> given()
+                        .contentType(ContentType.JSON)
+                        .body(batch)
+                        .when()
+                        .post("/api/socks/movements:batch")
+                        .then()
+                        .extract()
+                        .statusCode()));
+            }
+            for (Future<Integer> result : results) {
+                assertThat(result.get(60, TimeUnit.SECONDS)).isEqualTo(200);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        given()
+                .when()
+                .get("/api/socks/aggregate")
+                .then()
+                .statusCode(200)
+                .body("totalQuantity", equalTo(20 * ascending.size()))
+                .body("skuCount", equalTo(ascending.size()));
+        given()
+                .when()
+                .get("/api/socks/aggregate/consistency")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(0));
+    }
+
+    @Test
+    void concurrentUploadsDoNotDeadlockTest() throws Exception {
+        // Одни и те же позиции в противоположном порядке: строки socks должны блокироваться в одном порядке
+        List<String> rows = new ArrayList<>();
+        for (String color : List.of("Red", "Blue", "Green")) {
+            for (int cotton = 0; cotton <= 100; cotton++) {
+                rows.add(color + "," + cotton + ",1");
+            }
+        }
+        String ascending = String.join("\n", rows) + "\n";
+        Collections.reverse(rows);
+        String descending = String.join("\n", rows) + "\n";
+        upload("warmup.csv", ascending, "text/csv", 200);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String content = i % 2 == 0 ? ascending : descending;
+                results.add(executor.submit(() -> upload("socks.csv", content, "text/csv", 200)));
+            }
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Sock> socks = sockRepository.findAll();
+        assertThat(socks).hasSize(rows.size());
+        assertThat(socks).allSatisfy(sock -> assertThat(sock.getQuantity()).isEqualTo(21));
+    }
+
+    @Test
+    void movementsBatchTest() {
+        sockRepository.save(new Sock(null, "Red", 80, 5));
+
+        List<SockMovement> movements = List.of(
+                new SockMovement(DirectionEnum.OUTCOME, "Red", 80, 3),
+                new SockMovement(DirectionEnum.OUTCOME, "Red", 80, 3),
+                new SockMovement(DirectionEnum.INCOME, "Red", 80, 10),
+                new SockMovement(DirectionEnum.INCOME, "Blue", 20, 4),
+                new SockMovement(DirectionEnum.INCOME, "Red", 80, 1),
+                new SockMovement(DirectionEnum.OUTCOME, "Red", 80, 12),
+                new SockMovement(DirectionEnum.OUTCOME, "Blue", 20, 5)
+        );
+        given()
+                .contentType(ContentType.JSON)
+                .body(movements)
+                .when()
+                .post("/api/socks/movements:batch")
+                .then()
+                .statusCode(200)
+                .body("accepted", equalTo(5))
+                .body("rejected", equalTo(2))
+                .body("statuses", equalTo(List.of("ok", "insufficientStock", "ok", "ok", "ok", "ok", "insufficientStock")));
+
+        assertThat(sockRepository.findByColorOrderByCottonContentAsc("Red").get(0).getQuantity()).isEqualTo(1);
+        assertThat(sockRepository.findByColorOrderByCottonContentAsc("Blue").get(0).getQuantity()).isEqualTo(4);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(List.of(new SockMovement(DirectionEnum.INCOME, "Red", 180, 1)))
+                .when()
+                .post("/api/socks/movements:batch")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void prometheusMetricsTest() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Red", 80, 1))
+                .when()
+                .post("/api/socks/outcome")
+                .then()
+                .statusCode(409);
+
+        String metrics = given()
+                .when()
+                .get("/actuator/prometheus")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString();
+        assertThat(metrics)
+                .contains("socks_outcome_conflicts_total{path=\"direct\"")
+                .contains("http_server_requests_seconds_bucket")
+                .contains("spring_data_repository_invocations_seconds")
+                .contains("hikaricp_connections_acquire_seconds")
+                .contains("hibernate_statements_total");
+    }
+
+    @Test
+    void conditionalGetTest() {
+        sockRepository.save(new Sock(null, "Red", 80, 10));
+
+        String etag = given()
+                .param("color", "Red")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .extract()
+                .header("ETag");
+        assertThat(etag).isNotNull();
+
+        given()
+                .param("color", "Red")
+                .header("If-None-Match", etag)
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(304)
+                .header("ETag", etag);
+
+        // Другой фильтр - другой ETag при той же версии
+        given()
+                .param("color", "Blue")
+                .header("If-None-Match", etag)
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200);
+
+        // Запись другого узла идёт мимо этого приложения, но меняет версию в базе
+        jdbcTemplate.update("UPDATE socks SET quantity = quantity + 1");
+
+        given()
+                .param("color", "Red")
+                .header("If-None-Match", etag)
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("[0].quantity", equalTo(11));
+    }
+
+    @Test
+    void binaryFormatsTest() throws IOException {
+        sockRepository.save(new Sock(null, "Red", 80, 10));
+        sockRepository.save(new Sock(null, "Blue", 50, 5));
+        sockRepository.save(new Sock(null, "Red", 90, 7));
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+        given()
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON);
+
+        byte[] cbor = given()
+                .accept("application/cbor")
+                .param("sortBy", "cottonContent")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .contentType("application/cbor")
+                .extract()
+                .asByteArray();
+        List<Sock> socks = cborMapper.readValue(cbor, new TypeReference<>() {
+        });
+        assertThat(socks).extracting(Sock::getCottonContent).containsExactly(50, 80, 90);
+
+        byte[] columns = given()
+                .accept(SockColumns.MEDIA_TYPE)
+                .param("sortBy", "cottonContent")
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .contentType(SockColumns.MEDIA_TYPE)
+                .extract()
+                .asByteArray();
+        SockColumns table = cborMapper.readValue(columns, SockColumns.class);
+        assertThat(table.getColors()).containsExactly("Blue", "Red");
+        assertThat(table.getColorIndexes()).containsExactly(0, 1, 1);
+        assertThat(table.getCottonContents()).containsExactly(50, 80, 90);
+        assertThat(table.getQuantities()).containsExactly(5, 10, 7);
+        assertThat(columns.length).isLessThan(cbor.length);
+    }
+
+    private void upload(String fileName, String content, String contentType, int expectedStatus) {
+        given()
+                .multiPart("file", fileName, content.getBytes(StandardCharsets.UTF_8), contentType)
+                .when()
+                .post("/api/socks/batch")
+                .then()
+                .statusCode(expectedStatus);
+    }
+}
@@ -0,0 +1,141 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.dto.SockRequest;
+import ru.socks.inventory.model.Sock;
+import ru.socks.inventory.repository.SockRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "socks.coalescing.enabled=true")
+class SockWriteCoalescerTest {
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private Integer port;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        sockRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentIncomesAreMergedTest() throws Exception {
+        List<Integer> statuses = post("/api/socks/income", 50, 2);
+
+        assertThat(statuses).containsOnly(200);
+        List<Sock> socks = sockRepository.findAll();
+        assertThat(socks).hasSize(1);
+        assertThat(socks.get(0).getQuantity()).isEqualTo(100);
+    }
+
+    @Test
+    void concurrentOutcomesNeverOversellTest() throws Exception {
+        sockRepository.save(new Sock(null, "Red", 80, 10));
+
+        List<Integer> statuses = post("/api/socks/outcome", 20, 1);
+
+        assertThat(statuses).filteredOn(status -> status == 200).hasSize(10);
+        assertThat(statuses).filteredOn(status -> status == 409).hasSize(10);
+        assertThat(sockRepository.findAll().get(0).getQuantity()).isZero();
+    }
+
+    @Test
+    void unknownColorOutcomeAddsNoColorTest() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Mauvve", 80, 1))
+                .when()
+                .post("/api/socks/outcome")
+                .then()
+                .statusCode(409);
+        assertThat(colorRows("mauvve")).isZero();
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(new SockRequest("Mauve", 80, 1))
+                .when()
+                .post("/api/socks/income")
+                .then()
+                .statusCode(200);
+        assertThat(colorRows("mauve")).isEqualTo(1);
+    }
+
+    private List<Integer> post(String path, int requests, int quantity) throws Exception {
+        SockRequest sockRequest = new SockRequest()
+                .setColor("Red")
+                .setCottonContent(80)
+                .setQuantity(quantity);
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> given()
+                        .contentType(ContentType.JSON)
+                        .body(sockRequest)
+                        .when()
+                        .post(path)
+                        .then()
+                        .extract()
+                        .statusCode()));
+            }
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                statuses.add(future.get());
+            }
+            return statuses;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Integer colorRows(String nameKey) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM sock_colors WHERE name_key = ?", Integer.class, nameKey);
+    }
+}
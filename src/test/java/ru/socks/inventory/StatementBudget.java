@@ -0,0 +1,36 @@
+package ru.socks.inventory;
+
+import ru.socks.inventory.metrics.QueryMetrics;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Fails a test when a call executes more JDBC statements than its budget, which is how an
+ * N+1 (one statement per loaded row) shows up. Counts statements of the calling thread only,
+ * so the call must not hand its work to another thread.
+ */
+final class StatementBudget {
+
+    private StatementBudget() {
+    }
+
+    static <T> T assertAtMost(int budget, Supplier<T> call) {
+        Object[] result = new Object[1];
+        List<String> statements = QueryMetrics.capture(() -> result[0] = call.get());
+        if (statements.size() > budget) {
+            throw new AssertionError("Expected at most " + budget + " statements, got " + statements.size()
+                    + ":\n" + String.join("\n", statements));
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+
+    static void assertAtMost(int budget, Runnable call) {
+        assertAtMost(budget, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
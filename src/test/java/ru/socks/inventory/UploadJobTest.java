@@ -0,0 +1,201 @@
+package ru.socks.inventory;
+
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.socks.inventory.repository.SockRepository;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UploadJobTest {
+
+    private static final String XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    SockRepository sockRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private Integer port;
+
+    @BeforeAll
+    static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        // Файл упавшего задания живёт 5 с: успевает продолжение в failedJobResumesAfterLastChunkTest
+        registry.add("socks.upload-jobs.failed-retention-seconds", () -> "5");
+        registry.add("socks.upload-jobs.sweep-ms", () -> "500");
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost:" + port;
+        jdbcTemplate.update("DELETE FROM upload_jobs");
+        sockRepository.deleteAll();
+    }
+
+    @Test
+    void uploadJobCommitsInChunksTest() throws Exception {
+        String id = submit(new File("src/test/resources/sock_batch.xlsx"));
+
+        Response job = awaitJob(id, "completed");
+        assertThat(job.jsonPath().getLong("rowsCommitted")).isEqualTo(1000);
+        assertThat(job.jsonPath().getInt("chunksCommitted")).isEqualTo(10);
+
+        given()
+                .when()
+                .get("/api/socks")
+                .then()
+                .statusCode(200)
+                .body("quantity.sum()", equalTo(49320));
+
+        given()
+                .when()
+                .post("/api/socks/batch/jobs/" + id + ":resume")
+                .then()
+                .statusCode(409);
+    }
+
+    @Test
+    void failedJobResumesAfterLastChunkTest() throws Exception {
+        Path broken = workbook(250);
+        String id = submit(broken.toFile());
+
+        Response failed = awaitJob(id, "failed");
+        assertThat(failed.jsonPath().getLong("rowsCommitted")).isEqualTo(200);
+        assertThat(failed.jsonPath().getString("error")).startsWith("Invalid row 250");
+        assertThat(sockRepository.findAll().get(0).getQuantity()).isEqualTo(200);
+
+        // Исправленный файл на месте сохранённого: строки до отметки не должны примениться повторно
+        String filePath = jdbcTemplate.queryForObject("SELECT file_path FROM upload_jobs WHERE id = ?", String.class, id);
+        Files.copy(workbook(0), Path.of(filePath), StandardCopyOption.REPLACE_EXISTING);
+
+        given()
+                .when()
+                .post("/api/socks/batch/jobs/" + id + ":resume")
+                .then()
+                .statusCode(202);
+
+        Response completed = awaitJob(id, "completed");
+        assertThat(completed.jsonPath().getLong("rowsCommitted")).isEqualTo(300);
+        assertThat(sockRepository.findAll().get(0).getQuantity()).isEqualTo(300);
+        assertThat(Files.exists(Path.of(filePath))).isFalse();
+    }
+
+    @Test
+    void failedJobFileIsRemovedAfterRetentionTest() throws Exception {
+        String id = submit(workbook(250).toFile());
+        awaitJob(id, "failed");
+        String filePath = jdbcTemplate.queryForObject("SELECT file_path FROM upload_jobs WHERE id = ?", String.class, id);
+
+        for (int i = 0; i < 200 && Files.exists(Path.of(filePath)); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(Files.exists(Path.of(filePath))).isFalse();
+        given()
+                .when()
+                .get("/api/socks/batch/jobs/" + id)
+                .then()
+                .statusCode(200)
+                .body("error", endsWith("spooled file removed"));
+        given()
+                .when()
+                .post("/api/socks/batch/jobs/" + id + ":resume")
+                .then()
+                .statusCode(409)
+                .body(startsWith("Upload job conflict"));
+    }
+
+    @Test
+    void unknownJobTest() {
+        given()
+                .when()
+                .get("/api/socks/batch/jobs/unknown")
+                .then()
+                .statusCode(404)
+                .body(startsWith("Upload job not found"));
+    }
+
+    private String submit(File file) {
+        return given()
+                .multiPart("file", file, XLSX)
+                .when()
+                .post("/api/socks/batch/jobs")
+                .then()
+                .statusCode(202)
+                .extract()
+                .path("id");
+    }
+
+    private Response awaitJob(String id, String status) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            Response job = given().when().get("/api/socks/batch/jobs/" + id);
+            if (status.equals(job.path("status"))) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Upload job " + id + " did not become " + status);
+    }
+
+    // 300 строк Red/50 по одной штуке; строка invalidRow (если задана) с нулевым количеством
+    private static Path workbook(int invalidRow) throws Exception {
+        Path file = Files.createTempFile("socks-job-", ".xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook();
+             OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("color");
+            header.createCell(1).setCellValue("cottonContent");
+            header.createCell(2).setCellValue("quantity");
+            for (int i = 1; i <= 300; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("Red");
+                row.createCell(1).setCellValue(50);
+                row.createCell(2).setCellValue(i == invalidRow ? 0 : 1);
+            }
+            workbook.write(out);
+        }
+        return file;
+    }
+}